@@ -0,0 +1,15 @@
+package com.sasindu.shoppingcart.abstractions.dto.response.order;
+
+
+import com.sasindu.shoppingcart.abstractions.enums.CheckoutStatus;
+import lombok.Data;
+
+@Data
+public class CheckoutResponseDto {
+    private String checkoutId;
+    private CheckoutStatus status;
+    // placed order, once the checkout is completed
+    private OrderResponseDto order;
+    // reason of the failure, once the checkout is failed
+    private String error;
+}
@@ -0,0 +1,17 @@
+package com.sasindu.shoppingcart.abstractions.dto.response.page;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CursorPageResponseDto<T> {
+    private List<T> items;
+    private int limit;
+    // id to pass as "after" to fetch the next page, null when this is the last page
+    private Long nextCursor;
+}
@@ -13,6 +13,8 @@ public class ProductResponseDto {
     private String brand;
     private BigDecimal price;
     private int inventory;
+    // inventory minus the stock held for the carts, only set by the product endpoints
+    private Long availableToSell;
     private String description;
     private String imageUrl;
     private List<String> images;
@@ -0,0 +1,8 @@
+package com.sasindu.shoppingcart.abstractions.enums;
+
+public enum CheckoutStatus {
+    QUEUED,
+    PROCESSING,
+    COMPLETED,
+    FAILED
+}
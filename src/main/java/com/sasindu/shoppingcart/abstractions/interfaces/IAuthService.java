@@ -4,6 +4,7 @@ package com.sasindu.shoppingcart.abstractions.interfaces;
 import com.sasindu.shoppingcart.abstractions.dto.request.auth.LoginRequestDto;
 import com.sasindu.shoppingcart.abstractions.dto.request.user.RegisterRequestDto;
 import com.sasindu.shoppingcart.models.AppUser;
+import com.sasindu.shoppingcart.security.jwt.AuthenticatedPrincipal;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
@@ -30,7 +31,16 @@ public interface IAuthService {
 
 
     /**
-     * Get the authenticated user
+     * Get the principal of the authenticated user, built from the access token (no database access)
+     *
+     * @return AuthenticatedPrincipal object
+     */
+    AuthenticatedPrincipal getAuthenticatedPrincipal();
+
+
+    /**
+     * Get the authenticated user, loaded from the database
+     * use getAuthenticatedPrincipal when only the id, email or roles are needed
      *
      * @return AppUser object
      */
@@ -47,11 +57,12 @@ public interface IAuthService {
 
 
     /**
-     * Logout
+     * Logout - revoke the refresh token family of the session
      *
+     * @param request  - HttpServletRequest object
      * @param response - HttpServletResponse object
      */
-    void logout(HttpServletResponse response);
+    void logout(HttpServletRequest request, HttpServletResponse response);
 
 
     /**
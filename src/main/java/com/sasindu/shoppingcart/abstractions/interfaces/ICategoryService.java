@@ -65,12 +65,14 @@ public interface ICategoryService {
 
 
     /**
-     * getAllProductsForCategory method is responsible for fetching all the products for a given category
+     * getAllProductsForCategory method is responsible for fetching a page of the products for a given category
      *
      * @param categoryName String value of the category name
+     * @param after        Long value of the last product id of the previous page (0 for the first page)
+     * @param limit        int value of the maximum number of products to return
      * @return List of Product objects containing the product details
      */
-    List<Product> getAllProductsForCategory(String categoryName);
+    List<Product> getAllProductsForCategory(String categoryName, long after, int limit);
 
 
     /**
@@ -0,0 +1,27 @@
+package com.sasindu.shoppingcart.abstractions.interfaces;
+
+
+import com.sasindu.shoppingcart.abstractions.dto.response.order.CheckoutResponseDto;
+
+/**
+ * The interface Checkout service. Defines the methods of the asynchronous order placement.
+ */
+public interface ICheckoutService {
+
+    /**
+     * Queue the checkout of the cart of the authenticated user, the order is placed by a checkout worker
+     *
+     * @param idempotencyKey the Idempotency-Key header of the request, null for none
+     * @return the queued checkout
+     */
+    CheckoutResponseDto submitCheckout(String idempotencyKey);
+
+
+    /**
+     * Get the status of a checkout
+     *
+     * @param checkoutId the checkout id
+     * @return the checkout, with the order once it is completed
+     */
+    CheckoutResponseDto getCheckoutStatus(String checkoutId);
+}
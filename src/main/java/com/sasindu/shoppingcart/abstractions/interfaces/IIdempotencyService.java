@@ -0,0 +1,28 @@
+package com.sasindu.shoppingcart.abstractions.interfaces;
+
+import java.util.function.Supplier;
+
+/**
+ * Interface for the IdempotencyService
+ */
+public interface IIdempotencyService {
+
+    /**
+     * Run an action once per idempotency key of a user, the retries get the response of the first run
+     * the action runs in a transaction together with the write of the key, so it is committed with its key or not at all
+     *
+     * @param userId         - id of the user that sent the key
+     * @param idempotencyKey - Idempotency-Key header sent by the client
+     * @param responseType   - type of the response, it is stored as JSON
+     * @param action         - action to run
+     * @param <T>            - type of the response
+     * @return the response of the first run
+     */
+    <T> T execute(Long userId, String idempotencyKey, Class<T> responseType, Supplier<T> action);
+
+
+    /**
+     * Delete the expired idempotency keys
+     */
+    void purgeExpiredKeys();
+}
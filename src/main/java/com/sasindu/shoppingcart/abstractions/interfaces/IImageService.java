@@ -1,6 +1,8 @@
 package com.sasindu.shoppingcart.abstractions.interfaces;
 
 import com.sasindu.shoppingcart.models.Image;
+import com.sasindu.shoppingcart.repository.projections.ImageFileProjection;
+import org.springframework.core.io.Resource;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.util.List;
@@ -20,6 +22,35 @@ public interface IImageService {
     Image getImageById(Long id);
 
 
+    /**
+     * getImageFileById method is responsible for fetching the file metadata (name, type, size and content hash) of an image
+     *
+     * @param id Long value of the image id
+     * @return ImageFileProjection object containing the file metadata
+     */
+    ImageFileProjection getImageFileById(Long id);
+
+
+    /**
+     * getImageVariantFileById method is responsible for fetching the file metadata of the smallest variant of an image
+     * that is at least the given width
+     *
+     * @param id    Long value of the image id
+     * @param width int value of the requested width in pixels
+     * @return ImageFileProjection object of the variant, or null if no variant is large enough (or none is generated yet)
+     */
+    ImageFileProjection getImageVariantFileById(Long id, int width);
+
+
+    /**
+     * getImageContent method is responsible for fetching the stored content of an image
+     *
+     * @param file ImageFileProjection object of the image
+     * @return Resource object pointing to the stored content
+     */
+    Resource getImageContent(ImageFileProjection file);
+
+
     /**
      * deleteImageById method is responsible for deleting an image by its id
      *
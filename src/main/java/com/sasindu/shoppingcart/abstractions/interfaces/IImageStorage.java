@@ -0,0 +1,48 @@
+package com.sasindu.shoppingcart.abstractions.interfaces;
+
+import com.sasindu.shoppingcart.storage.StoredContent;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+
+
+/**
+ * IImageStorage interface is responsible for defining how image content is stored
+ * content is addressed by its SHA-256 hash, so identical uploads are stored once
+ */
+public interface IImageStorage {
+
+    /**
+     * store method is responsible for storing the content of an image
+     * if the same content is already stored, the existing copy is kept
+     *
+     * @param content InputStream of the image content, it is not closed by this method
+     * @return StoredContent object containing the hash and the size of the content
+     * @throws IOException if the content cannot be read or stored
+     */
+    StoredContent store(InputStream content) throws IOException;
+
+
+    /**
+     * load method is responsible for loading the stored content of an image
+     *
+     * @param contentHash String value of the SHA-256 hash of the content
+     * @return Resource object pointing to the stored content
+     */
+    Resource load(String contentHash);
+
+
+    /**
+     * delete method is responsible for deleting the stored content of an image
+     * callers must make sure no image references the content anymore; content stored again after storedBefore
+     * (a deduplicated upload whose image is not saved yet) is kept
+     *
+     * @param contentHash  String value of the SHA-256 hash of the content
+     * @param storedBefore Instant value, content stored at or after it is not deleted
+     * @return true if the content was deleted or is missing, false if it was kept
+     * @throws IOException if the content cannot be deleted
+     */
+    boolean delete(String contentHash, Instant storedBefore) throws IOException;
+}
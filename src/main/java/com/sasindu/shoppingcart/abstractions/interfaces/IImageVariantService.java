@@ -0,0 +1,17 @@
+package com.sasindu.shoppingcart.abstractions.interfaces;
+
+
+/**
+ * IImageVariantService interface is responsible for defining the methods that should be implemented by the ImageVariantService class
+ */
+public interface IImageVariantService {
+
+    /**
+     * enqueueVariants method is responsible for scheduling the generation of the resized variants of an image
+     * the variants are generated in the background, the method returns immediately
+     *
+     * @param imageId     Long value of the image id
+     * @param contentHash String value of the hash of the image content the variants are generated from
+     */
+    void enqueueVariants(Long imageId, String contentHash);
+}
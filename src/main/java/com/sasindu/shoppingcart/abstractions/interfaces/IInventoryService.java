@@ -0,0 +1,25 @@
+package com.sasindu.shoppingcart.abstractions.interfaces;
+
+import java.util.Map;
+
+/**
+ * Interface for the InventoryService
+ */
+public interface IInventoryService {
+
+    /**
+     * Take the given quantities from the inventory of the products, all or nothing
+     * must run in the transaction of the order, a product without enough stock rolls it back
+     *
+     * @param quantitiesByProductId - quantity to take per product id
+     */
+    void decrementStock(Map<Long, Integer> quantitiesByProductId);
+
+
+    /**
+     * Give the given quantities back to the inventory of the products (e.g. cancelled order)
+     *
+     * @param quantitiesByProductId - quantity to give back per product id
+     */
+    void incrementStock(Map<Long, Integer> quantitiesByProductId);
+}
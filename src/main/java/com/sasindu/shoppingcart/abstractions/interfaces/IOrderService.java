@@ -1,6 +1,7 @@
 package com.sasindu.shoppingcart.abstractions.interfaces;
 
 
+import com.sasindu.shoppingcart.abstractions.dto.response.order.OrderResponseDto;
 import com.sasindu.shoppingcart.models.Order;
 
 import java.util.List;
@@ -18,6 +19,15 @@ public interface IOrderService {
     Order placeOrder();
 
 
+    /**
+     * Place order once per idempotency key, a repeated key returns the order placed by the first request
+     *
+     * @param idempotencyKey the Idempotency-Key header of the request
+     * @return the order response
+     */
+    OrderResponseDto placeOrder(String idempotencyKey);
+
+
     /**
      * Gets order.
      *
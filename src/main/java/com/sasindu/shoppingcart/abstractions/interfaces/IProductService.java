@@ -2,6 +2,7 @@ package com.sasindu.shoppingcart.abstractions.interfaces;
 
 import com.sasindu.shoppingcart.abstractions.dto.request.product.AddProductRequestDto;
 import com.sasindu.shoppingcart.abstractions.dto.request.product.UpdateProductRequestDto;
+import com.sasindu.shoppingcart.abstractions.dto.response.product.ProductResponseDto;
 import com.sasindu.shoppingcart.models.Product;
 
 import java.util.List;
@@ -23,11 +24,13 @@ public interface IProductService {
 
 
     /**
-     * Get all products.
+     * Get a page of all products, ordered by id.
      *
+     * @param after Id of the last product of the previous page (0 for the first page).
+     * @param limit Maximum number of products to return.
      * @return List of Product objects containing product details.
      */
-    List<Product> getAllProducts();
+    List<Product> getAllProducts(long after, int limit);
 
 
     /**
@@ -58,12 +61,14 @@ public interface IProductService {
 
 
     /**
-     * Get filtered products.
+     * Get a page of filtered products, ordered by id.
      *
      * @param filters Map of filters (category, brand and name).
+     * @param after   Id of the last product of the previous page (0 for the first page).
+     * @param limit   Maximum number of products to return.
      * @return List of Product objects containing product details.
      */
-    List<Product> getFilteredProducts(Map<String, String> filters);
+    List<Product> getFilteredProducts(Map<String, String> filters, long after, int limit);
 
 
     /**
@@ -82,4 +87,13 @@ public interface IProductService {
      * @return Product object containing the saved product details.
      */
     Product saveProduct(Product product);
+
+
+    /**
+     * Convert a product to its response, with the quantity available to sell.
+     *
+     * @param product Product object containing the product details.
+     * @return ProductResponseDto object containing the product details and the available-to-sell quantity.
+     */
+    ProductResponseDto toProductResponse(Product product);
 }
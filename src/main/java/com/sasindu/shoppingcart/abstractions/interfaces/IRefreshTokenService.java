@@ -0,0 +1,43 @@
+package com.sasindu.shoppingcart.abstractions.interfaces;
+
+import com.sasindu.shoppingcart.models.AppUser;
+import com.sasindu.shoppingcart.security.jwt.RefreshTokenClaims;
+
+/**
+ * Interface for the RefreshTokenService
+ */
+public interface IRefreshTokenService {
+
+    /**
+     * Issue the first refresh token of a new family (login)
+     *
+     * @param user - AppUser object
+     * @return refresh token
+     */
+    String issueToken(AppUser user);
+
+
+    /**
+     * Rotate a refresh token: the presented token is revoked and a new token of the same family is issued
+     * presenting a token that was already rotated or revoked revokes its whole family
+     *
+     * @param claims - RefreshTokenClaims of the presented (verified) token
+     * @param user   - AppUser object of the token
+     * @return new refresh token
+     */
+    String rotateToken(RefreshTokenClaims claims, AppUser user);
+
+
+    /**
+     * Revoke the family of a refresh token (logout)
+     *
+     * @param claims - RefreshTokenClaims of the presented (verified) token
+     */
+    void revokeFamily(RefreshTokenClaims claims);
+
+
+    /**
+     * Delete the expired refresh tokens and rebuild the revoked token lookup
+     */
+    void purgeExpiredTokens();
+}
@@ -0,0 +1,46 @@
+package com.sasindu.shoppingcart.abstractions.interfaces;
+
+import com.sasindu.shoppingcart.models.Product;
+
+import java.util.Collection;
+
+/**
+ * Interface for the StockReservationService
+ */
+public interface IStockReservationService {
+
+    /**
+     * Hold stock of a product for the cart of a user, for inventory.reservations.hold-minutes
+     * the hold is set to the given quantity (the quantity of the product in the cart) and its expiration is renewed
+     *
+     * @param userId   - id of the user
+     * @param product  - Product object
+     * @param quantity - quantity to hold, 0 releases the hold
+     * @throws com.sasindu.shoppingcart.exceptions.BadRequestException if the available stock is not enough
+     */
+    void holdStock(Long userId, Product product, int quantity);
+
+
+    /**
+     * Release the holds of a user on the given products, once the current transaction is committed
+     *
+     * @param userId     - id of the user
+     * @param productIds - ids of the products
+     */
+    void releaseStock(Long userId, Collection<Long> productIds);
+
+
+    /**
+     * Get the available-to-sell quantity of a product: its inventory minus the active holds
+     *
+     * @param product - Product object
+     * @return available-to-sell quantity
+     */
+    long getAvailableToSell(Product product);
+
+
+    /**
+     * Release the expired holds
+     */
+    void releaseExpiredHolds();
+}
@@ -0,0 +1,228 @@
+package com.sasindu.shoppingcart.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.sasindu.shoppingcart.models.Category;
+import com.sasindu.shoppingcart.models.Image;
+import com.sasindu.shoppingcart.models.Product;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+
+/**
+ * In-process cache for the public catalog reads (products and categories).
+ * Entries are bounded by size and expire after catalog.cache.ttl-seconds.
+ * Every write to the catalog evicts only the entries it can affect.
+ * Hit, miss and eviction counts are published as cache.* metrics (see /actuator/metrics).
+ * <p>
+ * The entries are immutable snapshots of the loaded entities, taken when they are loaded (the images of a product
+ * must be initialized by then). Every read returns a new detached copy built from the snapshot, so a caller may
+ * modify it or attach it to a new entity (e.g. a cart item) without changing what other requests read. The copies
+ * only carry what the snapshot holds: a category has no products and an image has no variants.
+ */
+@Component
+public class CatalogCache {
+    private static final String ALL_CATEGORIES_KEY = "all";
+
+    private final Cache<Long, CachedProduct> _productsById;
+    private final Cache<ProductPageKey, List<CachedProduct>> _productPages;
+    private final Cache<String, CachedCategory> _categoriesByName;
+    private final Cache<String, List<CachedCategory>> _allCategories;
+
+    public CatalogCache(
+            @Value("${catalog.cache.ttl-seconds:300}") long ttlSeconds,
+            @Value("${catalog.cache.max-size:10000}") long maxSize,
+            MeterRegistry meterRegistry
+    ) {
+        this._productsById = build(ttlSeconds, maxSize);
+        this._productPages = build(ttlSeconds, maxSize);
+        this._categoriesByName = build(ttlSeconds, maxSize);
+        this._allCategories = build(ttlSeconds, 1);
+
+        CaffeineCacheMetrics.monitor(meterRegistry, _productsById, "catalog.products");
+        CaffeineCacheMetrics.monitor(meterRegistry, _productPages, "catalog.product-pages");
+        CaffeineCacheMetrics.monitor(meterRegistry, _categoriesByName, "catalog.categories");
+        CaffeineCacheMetrics.monitor(meterRegistry, _allCategories, "catalog.all-categories");
+    }
+
+
+    /**
+     * Get a product by id, loading it on a miss
+     *
+     * @param id     id of the product
+     * @param loader function that loads the product with its category and images
+     * @return the product
+     */
+    public Product getProduct(Long id, Function<Long, Product> loader) {
+        return _productsById.get(id, key -> CachedProduct.of(loader.apply(key))).toProduct();
+    }
+
+
+    /**
+     * Get a keyset page of all products, loading it on a miss
+     *
+     * @param after  id of the last product of the previous page
+     * @param limit  page size
+     * @param loader supplier that loads the page with the categories and images
+     * @return the products of the page
+     */
+    public List<Product> getProductPage(long after, int limit, Supplier<List<Product>> loader) {
+        return _productPages.get(new ProductPageKey(after, limit), key -> loader.get().stream().map(CachedProduct::of).toList())
+                .stream().map(CachedProduct::toProduct).toList();
+    }
+
+
+    /**
+     * Get a category by name, loading it on a miss. A missing category is not cached
+     *
+     * @param name   name of the category
+     * @param loader function that loads the category, may return null
+     * @return the category or null
+     */
+    public Category getCategoryByName(String name, Function<String, Category> loader) {
+        CachedCategory category = _categoriesByName.get(name, key -> {
+            Category loaded = loader.apply(key);
+            return loaded == null ? null : CachedCategory.of(loaded);
+        });
+        return category == null ? null : category.toCategory();
+    }
+
+
+    /**
+     * Get all the categories, loading them on a miss
+     *
+     * @param loader supplier that loads all the categories
+     * @return all the categories
+     */
+    public List<Category> getAllCategories(Supplier<List<Category>> loader) {
+        return _allCategories.get(ALL_CATEGORIES_KEY, key -> loader.get().stream().map(CachedCategory::of).toList())
+                .stream().map(CachedCategory::toCategory).toList();
+    }
+
+
+    /**
+     * Evict a product that was added, updated or deleted (or whose images changed)
+     * Only the product itself and the pages whose id range contains it are evicted
+     *
+     * @param productId id of the product
+     */
+    public void evictProduct(Long productId) {
+        if (productId == null) {
+            return;
+        }
+        _productsById.invalidate(productId);
+        _productPages.asMap().entrySet().removeIf(entry -> entry.getKey().covers(productId, entry.getValue()));
+    }
+
+
+    /**
+     * Evict a category that was added, updated or deleted, together with the cached products of that category
+     * (the category is part of the product response)
+     *
+     * @param categoryId id of the category
+     * @param names      names of the category to evict (old and new name when it was renamed)
+     */
+    public void evictCategory(Long categoryId, String... names) {
+        _allCategories.invalidateAll();
+        _categoriesByName.invalidateAll(List.of(names));
+        if (categoryId == null) {
+            return;
+        }
+        _productsById.asMap().values().removeIf(product -> isInCategory(product, categoryId));
+        _productPages.asMap().values().removeIf(page -> page.stream().anyMatch(product -> isInCategory(product, categoryId)));
+    }
+
+
+    private static boolean isInCategory(CachedProduct product, Long categoryId) {
+        return product.category() != null && Objects.equals(product.category().id(), categoryId);
+    }
+
+
+    private static <K, V> Cache<K, V> build(long ttlSeconds, long maxSize) {
+        return Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+    }
+
+
+    /**
+     * Key of a keyset page: the page holds the products with after < id <= last id of the page,
+     * or every id above after when the page is not full (it is the last page)
+     */
+    private record ProductPageKey(long after, int limit) {
+        boolean covers(Long productId, List<CachedProduct> page) {
+            if (productId <= after) {
+                return false;
+            }
+            return page.size() < limit || productId <= page.getLast().id();
+        }
+    }
+
+
+    /**
+     * Immutable snapshot of a product with its category and images
+     */
+    private record CachedProduct(Long id, String name, String brand, BigDecimal price, int inventory,
+                                 String description, CachedCategory category, List<CachedImage> images) {
+        static CachedProduct of(Product product) {
+            return new CachedProduct(product.getId(), product.getName(), product.getBrand(), product.getPrice(),
+                    product.getInventory(), product.getDescription(),
+                    product.getCategory() == null ? null : CachedCategory.of(product.getCategory()),
+                    product.getImages().stream().map(CachedImage::of).toList());
+        }
+
+        Product toProduct() {
+            Product product = new Product(name, brand, price, inventory, description,
+                    category == null ? null : category.toCategory());
+            product.setId(id);
+            List<Image> productImages = new ArrayList<>(images.size());
+            images.forEach(image -> productImages.add(image.toImage(product)));
+            product.setImages(productImages);
+            return product;
+        }
+    }
+
+
+    private record CachedCategory(Long id, String name) {
+        static CachedCategory of(Category category) {
+            return new CachedCategory(category.getId(), category.getName());
+        }
+
+        Category toCategory() {
+            Category category = new Category(name);
+            category.setId(id);
+            return category;
+        }
+    }
+
+
+    private record CachedImage(Long id, String fileName, String fileType, String contentHash, Long contentLength) {
+        static CachedImage of(Image image) {
+            return new CachedImage(image.getId(), image.getFileName(), image.getFileType(), image.getContentHash(),
+                    image.getContentLength());
+        }
+
+        Image toImage(Product product) {
+            Image image = new Image();
+            image.setId(id);
+            image.setFileName(fileName);
+            image.setFileType(fileType);
+            image.setContentHash(contentHash);
+            image.setContentLength(contentLength);
+            image.setProduct(product);
+            return image;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.sasindu.shoppingcart.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.function.Function;
+
+
+/**
+ * Short lived cache for product counts, keyed by the normalized filter map.
+ * The storefront polls the count of every facet, so identical count queries are common.
+ * Setting product.count.cache.ttl-seconds to 0 disables the cache.
+ */
+@Component
+public class ProductCountCache {
+    private final Cache<Map<String, String>, Long> _cache;
+
+    public ProductCountCache(
+            @Value("${product.count.cache.ttl-seconds:5}") long ttlSeconds,
+            @Value("${product.count.cache.max-size:1000}") long maxSize
+    ) {
+        this._cache = ttlSeconds <= 0 ? null : Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .maximumSize(maxSize)
+                .build();
+    }
+
+
+    /**
+     * Get the count for the given filters, computing it with the loader on a miss
+     *
+     * @param filters normalized filters (see ProductSpecifications.normalizeFilters)
+     * @param loader  function that counts the products in the database
+     * @return number of products
+     */
+    public Long get(Map<String, String> filters, Function<Map<String, String>, Long> loader) {
+        if (_cache == null) {
+            return loader.apply(filters);
+        }
+        return _cache.get(filters, loader);
+    }
+
+
+    /**
+     * Drop all cached counts, called whenever products change
+     */
+    public void invalidateAll() {
+        if (_cache != null) {
+            _cache.invalidateAll();
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.sasindu.shoppingcart.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+
+/**
+ * In-memory lookup of the revoked refresh token ids: a Bloom filter of every revoked id in front of a bounded cache
+ * of the ids confirmed as revoked by the database.
+ * A token that is not in the Bloom filter was not revoked by this instance (the common case), so it is accepted
+ * without a database lookup. A token that may be in the filter is checked in the cache and then in the database,
+ * which also covers the false positives of the filter (refresh-token.revoked-filter.false-positive-rate).
+ * <p>
+ * The database stays the source of truth: ids revoked by another instance are not in this filter, the rotation
+ * itself (a conditional update) rejects them. The filter only grows, it is rebuilt from the database when the
+ * expired tokens are purged. The ids added since the previous rebuild are replayed into the new filter, a revocation
+ * that is not yet committed when the database is read is not lost.
+ */
+@Component
+public class RevokedRefreshTokenFilter {
+    private final long _expectedEntries;
+    private final double _falsePositiveRate;
+    private final Cache<String, Boolean> _confirmedRevoked;
+    private final Object _lock = new Object();
+    private volatile BloomFilter _bloomFilter;
+    private List<String> _recentAdds = new ArrayList<>();
+
+    public RevokedRefreshTokenFilter(
+            @Value("${refresh-token.revoked-filter.expected-entries:1000000}") long expectedEntries,
+            @Value("${refresh-token.revoked-filter.false-positive-rate:0.01}") double falsePositiveRate,
+            @Value("${refresh-token.revoked-cache.max-size:10000}") long maxSize,
+            MeterRegistry meterRegistry
+    ) {
+        this._expectedEntries = expectedEntries;
+        this._falsePositiveRate = falsePositiveRate;
+        this._bloomFilter = new BloomFilter(expectedEntries, falsePositiveRate);
+        this._confirmedRevoked = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, _confirmedRevoked, "refresh-tokens.revoked");
+    }
+
+
+    /**
+     * Check whether a token was revoked
+     *
+     * @param tokenId id of the token
+     * @param loader  database lookup, called only when the Bloom filter cannot rule the token out
+     * @return true if the token was revoked
+     */
+    public boolean isRevoked(String tokenId, Predicate<String> loader) {
+        if (!_bloomFilter.mightContain(tokenId)) {
+            return false;
+        }
+        if (_confirmedRevoked.getIfPresent(tokenId) != null) {
+            return true;
+        }
+        // a revoked token never becomes active again, only the revoked ids are cached
+        boolean revoked = loader.test(tokenId);
+        if (revoked) {
+            _confirmedRevoked.put(tokenId, Boolean.TRUE);
+        }
+        return revoked;
+    }
+
+
+    /**
+     * Record a revoked token
+     *
+     * @param tokenId id of the token
+     */
+    public void add(String tokenId) {
+        synchronized (_lock) {
+            _recentAdds.add(tokenId);
+            _bloomFilter.put(tokenId);
+        }
+        _confirmedRevoked.put(tokenId, Boolean.TRUE);
+    }
+
+
+    /**
+     * Replace the filter with one holding the loaded ids and the ids added since the previous rebuild
+     *
+     * @param loader loads the revoked ids that are not expired yet
+     * @return the number of loaded ids
+     */
+    public int rebuild(Supplier<Collection<String>> loader) {
+        List<String> previousAdds;
+        synchronized (_lock) {
+            previousAdds = _recentAdds;
+            _recentAdds = new ArrayList<>();
+        }
+        // the adds of the transactions that were in flight when the ids are loaded are in one of the two lists
+        Collection<String> tokenIds = loader.get();
+        BloomFilter bloomFilter = new BloomFilter(Math.max(_expectedEntries, tokenIds.size()), _falsePositiveRate);
+        tokenIds.forEach(bloomFilter::put);
+        synchronized (_lock) {
+            previousAdds.forEach(bloomFilter::put);
+            _recentAdds.forEach(bloomFilter::put);
+            _bloomFilter = bloomFilter;
+        }
+        return tokenIds.size();
+    }
+
+
+    /**
+     * Bloom filter over a lock-free bit array, the k bit positions of an id are derived from two 64-bit hashes
+     */
+    private static final class BloomFilter {
+        private final AtomicLongArray _words;
+        private final long _bitCount;
+        private final int _hashCount;
+
+        BloomFilter(long expectedEntries, double falsePositiveRate) {
+            long bitCount = (long) Math.ceil(-expectedEntries * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            this._words = new AtomicLongArray((int) Math.min(Integer.MAX_VALUE, (bitCount + 63) / 64));
+            this._bitCount = (long) _words.length() * 64;
+            this._hashCount = Math.max(1, (int) Math.round((double) _bitCount / expectedEntries * Math.log(2)));
+        }
+
+        void put(String value) {
+            long hash1 = hash(value);
+            long hash2 = mix(hash1);
+            for (int i = 0; i < _hashCount; i++) {
+                long bit = Math.floorMod(hash1 + i * hash2, _bitCount);
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long current;
+                do {
+                    current = _words.get(word);
+                } while ((current & mask) == 0 && !_words.compareAndSet(word, current, current | mask));
+            }
+        }
+
+        boolean mightContain(String value) {
+            long hash1 = hash(value);
+            long hash2 = mix(hash1);
+            for (int i = 0; i < _hashCount; i++) {
+                long bit = Math.floorMod(hash1 + i * hash2, _bitCount);
+                if ((_words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // FNV-1a over the bytes of the id
+        private static long hash(String value) {
+            long hash = 0xcbf29ce484222325L;
+            for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+                hash ^= b;
+                hash *= 0x100000001b3L;
+            }
+            return mix(hash);
+        }
+
+        // finalizer of SplitMix64, spreads the bits of the hash
+        private static long mix(long value) {
+            value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+            value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+            return (value ^ (value >>> 31)) | 1;
+        }
+    }
+}
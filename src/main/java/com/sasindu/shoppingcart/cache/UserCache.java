@@ -0,0 +1,138 @@
+package com.sasindu.shoppingcart.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.sasindu.shoppingcart.models.AppUser;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+
+/**
+ * In-process cache of the users, by id and by email, bounded by size and expiring after user.cache.ttl-seconds.
+ * <p>
+ * Every user has a version counter that is incremented whenever the user changes (invalidate). A cached entry
+ * remembers the version read before it was loaded and is ignored once the version moved on, so both the by-id and
+ * the by-email entry of a changed user are dropped with one increment, and a load that raced with a change of the
+ * same user is never served after it. Changes of the other users do not affect the entry.
+ * A user loaded by an email whose id is not known yet is not cached (its version could not be read before the
+ * load), only its id is remembered for the next load.
+ * <p>
+ * The cache serves the paths that load the user (login, refresh, profile). Authenticated requests use the roles of
+ * the access token (see AuthenticatedPrincipal), so a change of the roles applies to a session at its next refresh,
+ * at the latest after jwt.access.expiration.minutes.
+ * <p>
+ * The cached users are detached and shared between requests: they must not be modified, load the user from the
+ * repository to change it and invalidate it afterwards.
+ */
+@Component
+public class UserCache {
+    private final Cache<Long, CachedUser> _usersById;
+    private final Cache<String, CachedUser> _usersByEmail;
+    // versions outlive the cached entries (twice the ttl), an expired version can no longer match a cached entry
+    private final Cache<Long, Long> _versions;
+    private final Cache<String, Long> _idsByEmail;
+
+    public UserCache(
+            @Value("${user.cache.ttl-seconds:300}") long ttlSeconds,
+            @Value("${user.cache.max-size:10000}") long maxSize,
+            MeterRegistry meterRegistry
+    ) {
+        this._usersById = build(ttlSeconds, maxSize);
+        this._usersByEmail = build(ttlSeconds, maxSize);
+        this._versions = Caffeine.newBuilder()
+                .expireAfterAccess(Duration.ofSeconds(ttlSeconds * 2))
+                .build();
+        this._idsByEmail = Caffeine.newBuilder()
+                .expireAfterAccess(Duration.ofSeconds(ttlSeconds * 2))
+                .maximumSize(maxSize)
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, _usersById, "users.by-id");
+        CaffeineCacheMetrics.monitor(meterRegistry, _usersByEmail, "users.by-email");
+    }
+
+
+    /**
+     * Get a user by id, loading it on a miss. A missing user is not cached
+     *
+     * @param id     id of the user
+     * @param loader function that loads the user, may return null
+     * @return the user or null
+     */
+    public AppUser getById(Long id, Function<Long, AppUser> loader) {
+        CachedUser cached = _usersById.getIfPresent(id);
+        if (cached != null && cached.version() == version(id)) {
+            return cached.user();
+        }
+
+        long version = version(id);
+        AppUser user = loader.apply(id);
+        if (user != null) {
+            _usersById.put(id, new CachedUser(user, version));
+        }
+        return user;
+    }
+
+
+    /**
+     * Get a user by email, loading it on a miss. A missing user is not cached
+     *
+     * @param email  email of the user
+     * @param loader function that loads the user, may return null
+     * @return the user or null
+     */
+    public AppUser getByEmail(String email, Function<String, AppUser> loader) {
+        CachedUser cached = _usersByEmail.getIfPresent(email);
+        if (cached != null && cached.version() == version(cached.user().getId())) {
+            return cached.user();
+        }
+
+        Long knownId = _idsByEmail.getIfPresent(email);
+        long version = knownId == null ? 0L : version(knownId);
+        AppUser user = loader.apply(email);
+        if (user == null) {
+            return null;
+        }
+        if (user.getId().equals(knownId)) {
+            _usersByEmail.put(email, new CachedUser(user, version));
+        } else {
+            _idsByEmail.put(email, user.getId());
+        }
+        return user;
+    }
+
+
+    /**
+     * Invalidate a user that was updated or deleted (profile, password, role, cart)
+     *
+     * @param userId id of the user
+     */
+    public void invalidate(Long userId) {
+        _versions.asMap().merge(userId, 1L, Long::sum);
+        _usersById.invalidate(userId);
+    }
+
+
+    private long version(Long userId) {
+        Long version = _versions.getIfPresent(userId);
+        return version == null ? 0L : version;
+    }
+
+
+    private static <K, V> Cache<K, V> build(long ttlSeconds, long maxSize) {
+        return Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+    }
+
+
+    private record CachedUser(AppUser user, long version) {
+    }
+}
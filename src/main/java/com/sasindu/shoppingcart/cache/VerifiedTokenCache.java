@@ -0,0 +1,121 @@
+package com.sasindu.shoppingcart.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.sasindu.shoppingcart.security.jwt.AccessTokenClaims;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.function.Function;
+
+
+/**
+ * Cache of the verified access tokens, keyed by the SHA-256 digest of the token (the token itself is not kept).
+ * A browser session sends the same access token on every request, so after the first request its verification is
+ * a digest and a lookup. Every entry expires with its token (exp claim), the cache is bounded by
+ * jwt.verified-cache.max-size. Invalid tokens are never cached. Setting the max size to 0 disables the cache.
+ */
+@Component
+public class VerifiedTokenCache {
+    private final Cache<String, AccessTokenClaims> _cache;
+
+    public VerifiedTokenCache(
+            @Value("${jwt.verified-cache.max-size:10000}") long maxSize,
+            MeterRegistry meterRegistry
+    ) {
+        this._cache = maxSize <= 0 ? null : Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<String, AccessTokenClaims>() {
+                    @Override
+                    public long expireAfterCreate(String key, AccessTokenClaims claims, long currentTime) {
+                        return untilExpiration(claims).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, AccessTokenClaims claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, AccessTokenClaims claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        if (_cache != null) {
+            CaffeineCacheMetrics.monitor(meterRegistry, _cache, "jwt.verified-tokens");
+        }
+    }
+
+
+    /**
+     * Get the claims of a token, verifying it on a miss
+     *
+     * @param token    access token
+     * @param verifier function that verifies the token and extracts its claims, throws if the token is invalid
+     * @return claims of the token
+     */
+    public AccessTokenClaims get(String token, Function<String, AccessTokenClaims> verifier) {
+        if (_cache == null) {
+            return verifier.apply(token);
+        }
+        AccessTokenClaims claims = _cache.get(digest(token), key -> verifier.apply(token));
+        // an entry can outlive its token by the timer granularity of the cache
+        if (!claims.getExpiresAt().isAfter(Instant.now())) {
+            _cache.invalidate(digest(token));
+            return verifier.apply(token);
+        }
+        return claims;
+    }
+
+
+    /**
+     * Get the claims of a token only if it was already verified, the token is never parsed
+     *
+     * @param token access token
+     * @return claims of the token, or null if it is not cached or expired
+     */
+    public AccessTokenClaims getIfPresent(String token) {
+        if (_cache == null) {
+            return null;
+        }
+        AccessTokenClaims claims = _cache.getIfPresent(digest(token));
+        return claims != null && claims.getExpiresAt().isAfter(Instant.now()) ? claims : null;
+    }
+
+
+    /**
+     * Drop all verified tokens, called when the signing keys change
+     */
+    public void invalidateAll() {
+        if (_cache != null) {
+            _cache.invalidateAll();
+        }
+    }
+
+
+    private static Duration untilExpiration(AccessTokenClaims claims) {
+        Duration remaining = Duration.between(Instant.now(), claims.getExpiresAt());
+        return remaining.isNegative() ? Duration.ZERO : remaining;
+    }
+
+
+    private static String digest(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.sasindu.shoppingcart.checkout;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.sasindu.shoppingcart.abstractions.dto.response.order.OrderResponseDto;
+import com.sasindu.shoppingcart.abstractions.interfaces.IOrderService;
+import com.sasindu.shoppingcart.exceptions.ServiceUnavailableException;
+import com.sasindu.shoppingcart.helpers.ErrorResponseHandler;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Bounded pipeline of the asynchronous checkouts
+ * <p>
+ * A checkout is queued on the partition of its user and placed later by the single worker of the partition, so the
+ * checkouts of one user run in order and never race on the same cart, and at most one database connection per
+ * partition is used by checkouts however many requests arrive. Each checkout is placed in its own transaction, so a
+ * failed checkout rolls back (and gives back its stock) alone. A full partition rejects the checkout with a 503
+ * (Retry-After) instead of queueing without a bound. A failed checkout reports the message of its error response,
+ * the message of an unexpected error is not exposed.
+ * <p>
+ * The security context of the request is captured with the checkout and set on the worker while it is placed.
+ * The tickets are kept in memory, only the instance that accepted a checkout reports its status.
+ */
+@Slf4j
+@Component
+public class CheckoutPipeline {
+    private final IOrderService _orderService;
+    private final TransactionTemplate _transactionTemplate;
+    private final long _retryAfterSeconds;
+    private final List<BlockingQueue<CheckoutCommand>> _partitions = new ArrayList<>();
+    private final List<Thread> _workers = new ArrayList<>();
+    private final Cache<String, CheckoutTicket> _tickets;
+    private volatile boolean _running = true;
+
+    public CheckoutPipeline(
+            IOrderService orderService,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${checkout.pipeline.partitions:4}") int partitions,
+            @Value("${checkout.pipeline.queue-capacity:1000}") int queueCapacity,
+            @Value("${checkout.pipeline.retry-after-seconds:2}") long retryAfterSeconds,
+            @Value("${checkout.status.ttl-minutes:30}") long statusTtlMinutes,
+            @Value("${checkout.status.max-size:100000}") long statusMaxSize
+    ) {
+        this._orderService = orderService;
+        this._transactionTemplate = new TransactionTemplate(transactionManager);
+        this._retryAfterSeconds = retryAfterSeconds;
+        this._tickets = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMinutes(statusTtlMinutes))
+                .maximumSize(statusMaxSize)
+                .build();
+        for (int i = 0; i < Math.max(1, partitions); i++) {
+            BlockingQueue<CheckoutCommand> queue = new ArrayBlockingQueue<>(queueCapacity);
+            _partitions.add(queue);
+            Gauge.builder("checkout.queue.size", queue, Collection::size)
+                    .tag("partition", String.valueOf(i))
+                    .register(meterRegistry);
+        }
+    }
+
+
+    /**
+     * Start one worker per partition
+     */
+    @PostConstruct
+    public void start() {
+        for (int i = 0; i < _partitions.size(); i++) {
+            BlockingQueue<CheckoutCommand> queue = _partitions.get(i);
+            Thread worker = new Thread(() -> work(queue), "checkout-worker-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            _workers.add(worker);
+        }
+    }
+
+
+    /**
+     * Queue the checkout of a user, the security context of the calling thread is placed with it
+     *
+     * @param userId         id of the user, selects the partition
+     * @param idempotencyKey Idempotency-Key of the request, null for none
+     * @return the ticket of the queued checkout
+     * @throws ServiceUnavailableException if the partition of the user is full
+     */
+    public CheckoutTicket submit(Long userId, String idempotencyKey) {
+        CheckoutTicket ticket = new CheckoutTicket(userId);
+        // the context of the request is cleared when the request completes, the worker gets its own copy
+        SecurityContext securityContext = SecurityContextHolder.createEmptyContext();
+        securityContext.setAuthentication(SecurityContextHolder.getContext().getAuthentication());
+        CheckoutCommand command = new CheckoutCommand(ticket, idempotencyKey, securityContext);
+        _tickets.put(ticket.getId(), ticket);
+        if (!_running || !_partitions.get(Math.floorMod(userId.hashCode(), _partitions.size())).offer(command)) {
+            _tickets.invalidate(ticket.getId());
+            throw new ServiceUnavailableException("Too many orders are being placed, please retry later", _retryAfterSeconds);
+        }
+        return ticket;
+    }
+
+
+    /**
+     * Get the ticket of a checkout
+     *
+     * @param checkoutId id of the checkout
+     * @return the ticket, or null if it is unknown or expired
+     */
+    public CheckoutTicket getTicket(String checkoutId) {
+        return _tickets.getIfPresent(checkoutId);
+    }
+
+
+    /**
+     * Stop the workers, the checkouts still queued are failed so their clients retry them
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        _running = false;
+        _workers.forEach(Thread::interrupt);
+        for (Thread worker : _workers) {
+            worker.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        List<CheckoutCommand> pending = new ArrayList<>();
+        _partitions.forEach(queue -> queue.drainTo(pending));
+        pending.forEach(command -> command.ticket().failed("The order was not placed, please retry"));
+        if (!pending.isEmpty()) {
+            log.warn("Failed {} queued checkouts on shutdown", pending.size());
+        }
+    }
+
+
+    //! PRIVATE METHODS >>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>//
+
+    /**
+     * Worker loop of a partition, places the checkouts in the order they were queued
+     */
+    private void work(BlockingQueue<CheckoutCommand> queue) {
+        while (_running) {
+            try {
+                place(queue.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+
+    /**
+     * Place the order of a checkout as the user that submitted it
+     */
+    private void place(CheckoutCommand command) {
+        CheckoutTicket ticket = command.ticket();
+        ticket.processing();
+        SecurityContextHolder.setContext(command.securityContext());
+        try {
+            // without a key the order is mapped in its transaction, the idempotency service runs its own
+            OrderResponseDto order = (command.idempotencyKey() == null)
+                    ? _transactionTemplate.execute(status -> _orderService.placeOrder().toOrderResponse())
+                    : _orderService.placeOrder(command.idempotencyKey());
+            ticket.completed(order);
+        } catch (Exception e) {
+            if (ErrorResponseHandler.isClientError(e)) {
+                log.debug("Checkout {} failed: {}", ticket.getId(), e.getMessage());
+            } else {
+                log.warn("Checkout {} failed", ticket.getId(), e);
+            }
+            ticket.failed(ErrorResponseHandler.getUserMessage(e));
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+
+    private record CheckoutCommand(CheckoutTicket ticket, String idempotencyKey, SecurityContext securityContext) {
+    }
+}
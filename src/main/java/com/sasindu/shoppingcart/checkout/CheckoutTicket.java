@@ -0,0 +1,41 @@
+package com.sasindu.shoppingcart.checkout;
+
+import com.sasindu.shoppingcart.abstractions.dto.response.order.OrderResponseDto;
+import com.sasindu.shoppingcart.abstractions.enums.CheckoutStatus;
+import lombok.Getter;
+
+import java.util.UUID;
+
+
+/**
+ * Handle of a queued checkout, updated by the checkout worker and polled by the client
+ */
+@Getter
+public class CheckoutTicket {
+    private final String id = UUID.randomUUID().toString();
+    private final Long userId;
+    private volatile CheckoutStatus status = CheckoutStatus.QUEUED;
+    private volatile OrderResponseDto order;
+    private volatile String error;
+
+    CheckoutTicket(Long userId) {
+        this.userId = userId;
+    }
+
+
+    void processing() {
+        this.status = CheckoutStatus.PROCESSING;
+    }
+
+
+    void completed(OrderResponseDto order) {
+        this.order = order;
+        this.status = CheckoutStatus.COMPLETED;
+    }
+
+
+    void failed(String error) {
+        this.error = error;
+        this.status = CheckoutStatus.FAILED;
+    }
+}
@@ -11,6 +11,10 @@ import java.util.List;
 public final class ApplicationConstants {
     public static final String IMAGE_DOWNLOAD_URL_PREFIX = "/api/v1/images/image/download/";
     public static final int MAXIMUM_ORDER_CANCEL_DAYS = 3;
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAXIMUM_PAGE_SIZE = 100;
+    public static final List<Integer> IMAGE_VARIANT_WIDTHS = List.of(1200, 400, 150);
+    public static final long MAXIMUM_IMAGE_VARIANT_SOURCE_PIXELS = 50_000_000L;
     
     //! Configure Public URLs
     private static final String[] PUBLIC_APPLICATION_URLS = new String[]{
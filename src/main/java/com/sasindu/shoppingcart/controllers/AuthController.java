@@ -58,12 +58,13 @@ public class AuthController {
     /**
      * Logout
      *
+     * @param request  - HttpServletRequest object
      * @param response - HttpServletResponse object
      */
     @GetMapping("/logout")
-    public ResponseEntity<ApiResponse> logout(HttpServletResponse response) {
+    public ResponseEntity<ApiResponse> logout(HttpServletRequest request, HttpServletResponse response) {
         try {
-            _authService.logout(response);
+            _authService.logout(request, response);
             return SuccessResponseHandler.handleSuccess("Logout successful", null, HttpStatus.OK.value(), null);
         } catch (Exception e) {
             return ErrorResponseHandler.handleException(e);
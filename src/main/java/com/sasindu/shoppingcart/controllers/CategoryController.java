@@ -4,14 +4,16 @@ package com.sasindu.shoppingcart.controllers;
 import com.sasindu.shoppingcart.abstractions.dto.request.category.AddCategoryRequestDto;
 import com.sasindu.shoppingcart.abstractions.dto.request.category.UpdateCategoryRequestDto;
 import com.sasindu.shoppingcart.abstractions.dto.response.category.CategoryResponseDto;
+import com.sasindu.shoppingcart.abstractions.dto.response.page.CursorPageResponseDto;
 import com.sasindu.shoppingcart.abstractions.dto.response.product.ProductResponseDto;
 import com.sasindu.shoppingcart.abstractions.interfaces.ICategoryService;
+import com.sasindu.shoppingcart.abstractions.interfaces.IProductService;
 import com.sasindu.shoppingcart.helpers.ApiResponse;
 import com.sasindu.shoppingcart.helpers.ErrorResponseHandler;
+import com.sasindu.shoppingcart.helpers.PaginationHelper;
 import com.sasindu.shoppingcart.helpers.SuccessResponseHandler;
 import com.sasindu.shoppingcart.helpers.ValidationHelper;
 import com.sasindu.shoppingcart.models.Category;
-import com.sasindu.shoppingcart.models.Product;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -29,6 +31,7 @@ import java.util.List;
 @RequiredArgsConstructor
 public class CategoryController {
     private final ICategoryService _categoryService;
+    private final IProductService _productService;
 
     /**
      * saveCategory method is responsible for saving a category
@@ -150,17 +153,25 @@ public class CategoryController {
 
 
     /**
-     * getAllProductsForCategory method is responsible for fetching all the products for a category
+     * getAllProductsForCategory method is responsible for fetching a page of the products for a category
      * this method calls the getAllProductsForCategory method of the CategoryService class internally
      *
      * @param category String value of the category name
+     * @param after    Long value of the last product id of the previous page (nextCursor), omit for the first page
+     * @param limit    Integer value of the page size
      * @return ApiResponse object containing the response details
      */
     @GetMapping("/get-products/{category}")
-    public ResponseEntity<ApiResponse> getAllProductsForCategory(@PathVariable String category) {
+    public ResponseEntity<ApiResponse> getAllProductsForCategory(
+            @PathVariable String category,
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) Integer limit
+    ) {
         try {
-            List<ProductResponseDto> products = _categoryService.getAllProductsForCategory(category).stream().map(Product::toProductResponse).toList();
-            return SuccessResponseHandler.handleSuccess("All products for category", products, HttpStatus.OK.value(), null);
+            int pageSize = PaginationHelper.resolveLimit(limit);
+            List<ProductResponseDto> products = _categoryService.getAllProductsForCategory(category, PaginationHelper.resolveCursor(after), pageSize).stream().map(_productService::toProductResponse).toList();
+            CursorPageResponseDto<ProductResponseDto> page = PaginationHelper.toCursorPage(products, pageSize, ProductResponseDto::getId);
+            return SuccessResponseHandler.handleSuccess("All products for category", page, HttpStatus.OK.value(), null);
         } catch (Exception e) {
             return ErrorResponseHandler.handleException(e);
         }
@@ -176,5 +187,5 @@ public class CategoryController {
  * 4. get all categories - GET - http://localhost:9091/api/v1/category/get-all
  * 5. update category - PUT - http://localhost:9091/api/v1/category/update/{id}
  * 6. delete category - DELETE - http://localhost:9091/api/v1/category/delete/{id}
- * 7. get products for category - GET - http://localhost:9091/api/v1/category/get-products/{category}
+ * 7. get products for category - GET - http://localhost:9091/api/v1/category/get-products/{category}?after={lastId}&limit={limit}
  */
\ No newline at end of file
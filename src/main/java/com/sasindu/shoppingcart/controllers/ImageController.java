@@ -1,22 +1,28 @@
 package com.sasindu.shoppingcart.controllers;
 
-import com.sasindu.shoppingcart.abstractions.dto.response.image.ImageResponseDto;
 import com.sasindu.shoppingcart.abstractions.dto.response.image.ImageResponseWithoutBlobDto;
 import com.sasindu.shoppingcart.abstractions.interfaces.IImageService;
 import com.sasindu.shoppingcart.helpers.ApiResponse;
 import com.sasindu.shoppingcart.helpers.ErrorResponseHandler;
+import com.sasindu.shoppingcart.helpers.FileResponseHelper;
 import com.sasindu.shoppingcart.helpers.SuccessResponseHandler;
 import com.sasindu.shoppingcart.models.Image;
+import com.sasindu.shoppingcart.repository.projections.ImageFileProjection;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
-import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.time.Duration;
 import java.util.List;
 
 
@@ -27,6 +33,7 @@ import java.util.List;
 @RequestMapping("${api.prefix}" + "/images")
 @RequiredArgsConstructor
 public class ImageController {
+    private static final Duration IMMUTABLE_MAX_AGE = Duration.ofDays(365);
     private final IImageService _imageService;
 
     /**
@@ -52,22 +59,54 @@ public class ImageController {
 
     /**
      * downloadImage method is responsible for downloading an image by its id
-     * this method calls the getImageById method of the ImageService class internally
-     * Only users with the role ROLE_ADMIN can access this endpoint
+     * the content is served from the image storage with sendfile when the connector supports it, range requests get a 206
+     * the ETag is the content hash, so a matching If-None-Match is answered with a 304 without reading the file
+     * versioned urls (?v={contentHash}, see Image.toImageResponseWithoutBlob) never change and are cached as immutable,
+     * unversioned urls must be revalidated because the image can be replaced
+     * this method calls the getImageFileById and getImageContent methods of the ImageService class internally
+     *
+     * with a variant width, the smallest variant at least that wide is served, or the original when there is none
+     * (a fallback to the original is not cached as immutable, the variant may not be generated yet)
      *
      * @param imageId Long value of the image id
-     * @return Resource object containing the image details
+     * @param version String value of the content hash the url was built with (optional)
+     * @param variant Integer value of the requested width in pixels (optional)
+     * @param request HttpServletRequest object of the current request
+     * @return Resource object containing the image content
      */
     @GetMapping("/image/download/{imageId}")
-    public ResponseEntity<?> downloadImage(@PathVariable Long imageId) {
+    public ResponseEntity<?> downloadImage(
+            @PathVariable Long imageId,
+            @RequestParam(name = "v", required = false) String version,
+            @RequestParam(required = false) Integer variant,
+            HttpServletRequest request
+    ) {
         try {
-            ImageResponseDto image = _imageService.getImageById(imageId).toImageResponse();
-            ByteArrayResource resource = new ByteArrayResource(
-                    image.getImage().getBytes(1, (int) image.getImage().length())
-            );
+            ImageFileProjection original = _imageService.getImageFileById(imageId);
+            ImageFileProjection file = variant != null ? _imageService.getImageVariantFileById(imageId, variant) : original;
+            boolean immutable = original.getContentHash() != null && original.getContentHash().equals(version) && file != null;
+            if (file == null) {
+                file = original;
+            }
+
+            Resource resource = _imageService.getImageContent(file);
             HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.parseMediaType(image.getFileType()));
-            headers.setContentDispositionFormData("attachment", image.getFileName());
+            headers.setETag("\"" + file.getContentHash() + "\"");
+            headers.setCacheControl(immutable
+                    ? CacheControl.maxAge(IMMUTABLE_MAX_AGE).cachePublic().immutable()
+                    : CacheControl.noCache().cachePublic());
+
+            if (new ServletWebRequest(request).checkNotModified(headers.getETag())) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).headers(headers).build();
+            }
+
+            headers.setContentType(MediaType.parseMediaType(file.getFileType()));
+            headers.setContentDisposition(ContentDisposition.inline().filename(file.getFileName()).build());
+            long contentLength = resource.contentLength();
+            if (FileResponseHelper.trySendfile(request, resource, contentLength)) {
+                headers.setContentLength(contentLength);
+                return ResponseEntity.ok().headers(headers).build();
+            }
             return ResponseEntity.ok()
                     .headers(headers)
                     .body(resource);
@@ -123,7 +162,7 @@ public class ImageController {
 /*
  * ENDPOINTS
  * 1. upload image - POST - http://localhost:9091/api/v1/images/upload/{productId}
- * 2. download image - GET - http://localhost:9091/api/v1/images/image/download/{imageId}
+ * 2. download image - GET - http://localhost:9091/api/v1/images/image/download/{imageId}?v={contentHash}&variant={width}
  * 3. update image - PUT - http://localhost:9091/api/v1/images/image/update/{imageId}
  * 4. delete image - DELETE - http://localhost:9091/api/v1/images/image/delete/{imageId}
  */
\ No newline at end of file
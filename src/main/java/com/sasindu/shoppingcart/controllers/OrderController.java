@@ -1,7 +1,9 @@
 package com.sasindu.shoppingcart.controllers;
 
 
+import com.sasindu.shoppingcart.abstractions.dto.response.order.CheckoutResponseDto;
 import com.sasindu.shoppingcart.abstractions.dto.response.order.OrderResponseDto;
+import com.sasindu.shoppingcart.abstractions.interfaces.ICheckoutService;
 import com.sasindu.shoppingcart.abstractions.interfaces.IOrderService;
 import com.sasindu.shoppingcart.helpers.ApiResponse;
 import com.sasindu.shoppingcart.helpers.ErrorResponseHandler;
@@ -23,18 +25,23 @@ import java.util.List;
 @RequiredArgsConstructor
 public class OrderController {
     private final IOrderService _orderService;
+    private final ICheckoutService _checkoutService;
 
 
     /**
      * Place order method is responsible for placing an order
      * this method calls the placeOrder method of the OrderService class internally
+     * with an Idempotency-Key header, retries of the request return the order placed by the first one
      *
+     * @param idempotencyKey String value of the Idempotency-Key header (optional)
      * @return ApiResponse object containing the response details
      */
     @PostMapping("/place-order")
-    public ResponseEntity<ApiResponse> placeOrder() {
+    public ResponseEntity<ApiResponse> placeOrder(@RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
         try {
-            OrderResponseDto response = _orderService.placeOrder().toOrderResponse();
+            OrderResponseDto response = (idempotencyKey == null)
+                    ? _orderService.placeOrder().toOrderResponse()
+                    : _orderService.placeOrder(idempotencyKey);
             return SuccessResponseHandler.handleSuccess("Order placed successfully", response, HttpStatus.CREATED.value(), null);
         } catch (Exception e) {
             return ErrorResponseHandler.handleException(e);
@@ -42,6 +49,42 @@ public class OrderController {
     }
 
 
+    /**
+     * Place order async method is responsible for queueing an order, the order is placed by a checkout worker
+     * this method calls the submitCheckout method of the CheckoutService class internally
+     *
+     * @param idempotencyKey String value of the Idempotency-Key header (optional)
+     * @return ApiResponse object containing the checkout handle, polled with the checkout status endpoint
+     */
+    @PostMapping("/place-order-async")
+    public ResponseEntity<ApiResponse> placeOrderAsync(@RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        try {
+            CheckoutResponseDto response = _checkoutService.submitCheckout(idempotencyKey);
+            return SuccessResponseHandler.handleSuccess("Order accepted", response, HttpStatus.ACCEPTED.value(), null);
+        } catch (Exception e) {
+            return ErrorResponseHandler.handleException(e);
+        }
+    }
+
+
+    /**
+     * Get checkout status method is responsible for getting the status of a queued order
+     * this method calls the getCheckoutStatus method of the CheckoutService class internally
+     *
+     * @param checkoutId String value of the checkout id
+     * @return ApiResponse object containing the checkout, with the order once it is completed
+     */
+    @GetMapping("/checkout-status/{checkoutId}")
+    public ResponseEntity<ApiResponse> getCheckoutStatus(@PathVariable String checkoutId) {
+        try {
+            CheckoutResponseDto response = _checkoutService.getCheckoutStatus(checkoutId);
+            return SuccessResponseHandler.handleSuccess("Checkout status retrieved successfully", response, HttpStatus.OK.value(), null);
+        } catch (Exception e) {
+            return ErrorResponseHandler.handleException(e);
+        }
+    }
+
+
     /**
      * Get order by id method is responsible for getting an order by id
      * this method calls the getOrderById method of the OrderService class internally
@@ -95,7 +138,9 @@ public class OrderController {
 /*
  * ENDPOINTS
  * 1. place order - POST - http://localhost:9091/api/v1/orders/place-order
- * 2. get order by id - GET - http://localhost:9091/api/v1/orders/find-by-id/{orderId}
- * 3. get orders by user id - GET - http://localhost:9091/api/v1/orders/get-by-user-id/{userId}
- * 4. cancel order - DELETE - http://localhost:9091/api/v1/orders/cancel-order/{orderId}
+ * 2. place order async - POST - http://localhost:9091/api/v1/orders/place-order-async
+ * 3. get checkout status - GET - http://localhost:9091/api/v1/orders/checkout-status/{checkoutId}
+ * 4. get order by id - GET - http://localhost:9091/api/v1/orders/find-by-id/{orderId}
+ * 5. get orders by user id - GET - http://localhost:9091/api/v1/orders/get-by-user-id/{userId}
+ * 6. cancel order - DELETE - http://localhost:9091/api/v1/orders/cancel-order/{orderId}
  */
\ No newline at end of file
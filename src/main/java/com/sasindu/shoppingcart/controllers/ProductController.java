@@ -3,13 +3,14 @@ package com.sasindu.shoppingcart.controllers;
 
 import com.sasindu.shoppingcart.abstractions.dto.request.product.AddProductRequestDto;
 import com.sasindu.shoppingcart.abstractions.dto.request.product.UpdateProductRequestDto;
+import com.sasindu.shoppingcart.abstractions.dto.response.page.CursorPageResponseDto;
 import com.sasindu.shoppingcart.abstractions.dto.response.product.ProductResponseDto;
 import com.sasindu.shoppingcart.abstractions.interfaces.IProductService;
 import com.sasindu.shoppingcart.helpers.ApiResponse;
 import com.sasindu.shoppingcart.helpers.ErrorResponseHandler;
+import com.sasindu.shoppingcart.helpers.PaginationHelper;
 import com.sasindu.shoppingcart.helpers.SuccessResponseHandler;
 import com.sasindu.shoppingcart.helpers.ValidationHelper;
-import com.sasindu.shoppingcart.models.Product;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -53,16 +54,20 @@ public class ProductController {
 
 
     /**
-     * getAllProducts method is responsible for fetching all the products
+     * getAllProducts method is responsible for fetching a page of the products
      * this method calls the getAllProducts method of the ProductService class internally
      *
+     * @param after Long value of the last product id of the previous page (nextCursor), omit for the first page
+     * @param limit Integer value of the page size
      * @return ApiResponse object containing the response details
      */
     @GetMapping("/get-all")
-    public ResponseEntity<ApiResponse> getAllProducts() {
+    public ResponseEntity<ApiResponse> getAllProducts(@RequestParam(required = false) Long after, @RequestParam(required = false) Integer limit) {
         try {
-            List<ProductResponseDto> products = _productService.getAllProducts().stream().map(Product::toProductResponse).toList();
-            return SuccessResponseHandler.handleSuccess("Products fetched successfully", products, HttpStatus.OK.value(), null);
+            int pageSize = PaginationHelper.resolveLimit(limit);
+            List<ProductResponseDto> products = _productService.getAllProducts(PaginationHelper.resolveCursor(after), pageSize).stream().map(_productService::toProductResponse).toList();
+            CursorPageResponseDto<ProductResponseDto> page = PaginationHelper.toCursorPage(products, pageSize, ProductResponseDto::getId);
+            return SuccessResponseHandler.handleSuccess("Products fetched successfully", page, HttpStatus.OK.value(), null);
         } catch (Exception e) {
             return ErrorResponseHandler.handleException(e);
         }
@@ -79,7 +84,7 @@ public class ProductController {
     @GetMapping("/find-by-id/{id}")
     public ResponseEntity<ApiResponse> getProductById(@PathVariable Long id) {
         try {
-            ProductResponseDto product = _productService.getProductById(id).toProductResponse();
+            ProductResponseDto product = _productService.toProductResponse(_productService.getProductById(id));
             return SuccessResponseHandler.handleSuccess("Product fetched successfully", product, HttpStatus.OK.value(), null);
         } catch (Exception e) {
             return ErrorResponseHandler.handleException(e);
@@ -135,13 +140,21 @@ public class ProductController {
      * General filter endpoint that accepts various filters like category, brand, name, etc.
      *
      * @param filters A map containing all the filter parameters (category, brand, name, etc.)
+     * @param after   Long value of the last product id of the previous page (nextCursor), omit for the first page
+     * @param limit   Integer value of the page size
      * @return ApiResponse object containing the filtered products
      */
     @GetMapping("/filter")
-    public ResponseEntity<ApiResponse> getFilteredProducts(@RequestParam Map<String, String> filters) {
+    public ResponseEntity<ApiResponse> getFilteredProducts(
+            @RequestParam Map<String, String> filters,
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) Integer limit
+    ) {
         try {
-            List<ProductResponseDto> products = _productService.getFilteredProducts(filters).stream().map(Product::toProductResponse).toList();
-            return SuccessResponseHandler.handleSuccess("Products fetched successfully", products, HttpStatus.OK.value(), null);
+            int pageSize = PaginationHelper.resolveLimit(limit);
+            List<ProductResponseDto> products = _productService.getFilteredProducts(filters, PaginationHelper.resolveCursor(after), pageSize).stream().map(_productService::toProductResponse).toList();
+            CursorPageResponseDto<ProductResponseDto> page = PaginationHelper.toCursorPage(products, pageSize, ProductResponseDto::getId);
+            return SuccessResponseHandler.handleSuccess("Products fetched successfully", page, HttpStatus.OK.value(), null);
         } catch (Exception e) {
             return ErrorResponseHandler.handleException(e);
         }
@@ -168,10 +181,10 @@ public class ProductController {
 /*
  * ENDPOINTS
  * 1. create - POST - http://localhost:9091/api/v1/product/create
- * 2. get-all - GET - http://localhost:9091/api/v1/product/get-all
+ * 2. get-all - GET - http://localhost:9091/api/v1/product/get-all?after={lastId}&limit={limit}
  * 3. find-by-id - GET - http://localhost:9091/api/v1/product/find-by-id/{id}
  * 4. update - PUT - http://localhost:9091/api/v1/product/update/{id}
  * 5. delete - DELETE - http://localhost:9091/api/v1/product/delete/{id}
- * 6. filter - GET - http://localhost:9091/api/v1/product/filter/?category={category}&brand={brand}&name={name}
+ * 6. filter - GET - http://localhost:9091/api/v1/product/filter/?category={category}&brand={brand}&name={name}&after={lastId}&limit={limit}
  * 7. count - GET - http://localhost:9091/api/v1/product/count/?category={category}&brand={brand}&name={name}
  */
\ No newline at end of file
@@ -0,0 +1,110 @@
+package com.sasindu.shoppingcart.data;
+
+import com.sasindu.shoppingcart.abstractions.interfaces.IImageStorage;
+import com.sasindu.shoppingcart.storage.StoredContent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.util.List;
+
+/**
+ * Moves the image content that is still stored in the legacy images.image blob column to the image storage
+ * <p>
+ * Images are migrated one at a time in id order: the blob is streamed to the storage, then the row gets its
+ * content hash and size and the blob is cleared. The job is idempotent, an interrupted run continues where it
+ * stopped on the next startup. The column itself is left in place (ddl-auto=update never drops columns) and can be
+ * dropped manually once every row is migrated.
+ */
+@Slf4j
+@RequiredArgsConstructor
+@Component
+public class ImageBlobMigration implements ApplicationListener<ApplicationReadyEvent> {
+    private static final String LEGACY_TABLE = "images";
+    private static final String LEGACY_COLUMN = "image";
+    private static final int BATCH_SIZE = 100;
+
+    private final JdbcTemplate _jdbcTemplate;
+    private final IImageStorage _imageStorage;
+
+    /**
+     * Migrate the legacy blobs on application startup
+     */
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        if (!hasLegacyColumn()) {
+            return;
+        }
+
+        long lastId = 0;
+        int migrated = 0;
+        List<Long> ids;
+        do {
+            ids = _jdbcTemplate.queryForList(
+                    "SELECT id FROM images WHERE id > ? AND content_hash IS NULL AND image IS NOT NULL ORDER BY id LIMIT ?",
+                    Long.class, lastId, BATCH_SIZE
+            );
+            for (Long id : ids) {
+                try {
+                    migrateImage(id);
+                    migrated++;
+                } catch (RuntimeException e) {
+                    // skip the image, it is retried on the next startup
+                    log.error("Failed to migrate the content of image {}", id, e);
+                }
+                lastId = id;
+            }
+        } while (ids.size() == BATCH_SIZE);
+
+        if (migrated > 0) {
+            log.info("Moved the content of {} images to the image storage", migrated);
+        }
+    }
+
+
+    /**
+     * Stream the blob of one image to the image storage and point the row to the stored content
+     */
+    private void migrateImage(Long id) {
+        StoredContent storedContent = _jdbcTemplate.query("SELECT image FROM images WHERE id = ?", (ResultSet rs) -> {
+            if (!rs.next()) {
+                return null;
+            }
+            try (InputStream content = rs.getBinaryStream(1)) {
+                return content == null ? null : _imageStorage.store(content);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, id);
+
+        if (storedContent != null) {
+            _jdbcTemplate.update(
+                    "UPDATE images SET content_hash = ?, content_length = ?, image = NULL WHERE id = ? AND content_hash IS NULL",
+                    storedContent.contentHash(), storedContent.contentLength(), id
+            );
+        }
+    }
+
+
+    /**
+     * Check whether the legacy blob column exists (it does not on databases created after the image storage was introduced)
+     */
+    private boolean hasLegacyColumn() {
+        Boolean exists = _jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            try (ResultSet columns = metaData.getColumns(connection.getCatalog(), null, LEGACY_TABLE, LEGACY_COLUMN)) {
+                return columns.next();
+            }
+        });
+        return Boolean.TRUE.equals(exists);
+    }
+}
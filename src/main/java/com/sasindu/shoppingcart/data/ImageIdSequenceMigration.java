@@ -0,0 +1,63 @@
+package com.sasindu.shoppingcart.data;
+
+import com.sasindu.shoppingcart.models.Image;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+
+/**
+ * Moves the images_seq sequence past the ids of the images created when the ids were an identity column
+ * <p>
+ * On MySQL the sequence is a table (images_seq.next_val) that ddl-auto=update creates starting at 1, while the
+ * images table of an existing database already holds those ids. The sequence is moved past the highest image id
+ * before any image is inserted (the entity manager factory, which creates the table, is initialized first).
+ * Databases with native sequences are created with the sequence and need nothing.
+ */
+@Slf4j
+@RequiredArgsConstructor
+@Component
+public class ImageIdSequenceMigration {
+    private static final String SEQUENCE_TABLE = "images_seq";
+
+    private final JdbcTemplate _jdbcTemplate;
+    // the schema is updated by the entity manager factory, it must exist before the sequence table is read
+    private final EntityManagerFactory _entityManagerFactory;
+
+    /**
+     * Move the sequence past the existing image ids on application startup
+     */
+    @PostConstruct
+    public void migrate() {
+        if (!hasSequenceTable()) {
+            return;
+        }
+        // a pooled sequence hands out the ids up to next_val - allocation size + 1 first
+        Long next = _jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) + 1 FROM images", Long.class);
+        long nextValue = (next == null ? 1 : next) + Image.ID_ALLOCATION_SIZE;
+        int updated = _jdbcTemplate.update("UPDATE images_seq SET next_val = ? WHERE next_val < ?", nextValue, nextValue);
+        if (updated > 0) {
+            log.info("Moved the image id sequence to {}", nextValue);
+        }
+    }
+
+
+    /**
+     * Check whether the sequence is emulated with a table (databases without sequences, e.g. MySQL)
+     */
+    private boolean hasSequenceTable() {
+        Boolean exists = _jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            try (ResultSet tables = metaData.getTables(connection.getCatalog(), null, SEQUENCE_TABLE, new String[]{"TABLE"})) {
+                return tables.next();
+            }
+        });
+        return Boolean.TRUE.equals(exists);
+    }
+}
@@ -0,0 +1,29 @@
+package com.sasindu.shoppingcart.exceptions;
+
+public class ServiceUnavailableException extends RuntimeException {
+    private static final String DEFAULT_MESSAGE = "Service temporarily unavailable, please retry later.";
+    private static final long DEFAULT_RETRY_AFTER_SECONDS = 1;
+
+    // Seconds the client should wait before retrying (Retry-After header)
+    private final long retryAfterSeconds;
+
+    // Constructor with a custom message and retry delay
+    public ServiceUnavailableException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    // Constructor with a custom message
+    public ServiceUnavailableException(String message) {
+        this(message, DEFAULT_RETRY_AFTER_SECONDS);
+    }
+
+    // Constructor with the default message
+    public ServiceUnavailableException() {
+        this(DEFAULT_MESSAGE, DEFAULT_RETRY_AFTER_SECONDS);
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
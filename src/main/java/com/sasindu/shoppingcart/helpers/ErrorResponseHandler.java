@@ -1,9 +1,16 @@
 package com.sasindu.shoppingcart.helpers;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.sasindu.shoppingcart.exceptions.*;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 
+import java.io.IOException;
+
 public class ErrorResponseHandler {
 
     //! Handle all exceptions
@@ -12,6 +19,42 @@ public class ErrorResponseHandler {
                 .body(new ApiResponse(ex.getMessage(), null, null));
     }
 
+    //! Serialize a constant error body once, for the filters that write their response directly
+    public static byte[] serializeError(ObjectMapper objectMapper, String error) {
+        try {
+            return objectMapper.writeValueAsBytes(new ApiResponse(error, null, null));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    //! Write a serialized error body (see serializeError) directly to the response
+    public static void writeError(HttpServletResponse response, int status, byte[] body) throws IOException {
+        response.setStatus(status);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    //! Check whether an exception is an expected error of the request (4xx), its message is meant for the client
+    public static boolean isClientError(Exception e) {
+        return e instanceof BadRequestException
+                || e instanceof UnAuthorizedException
+                || e instanceof PaymentRequiredException
+                || e instanceof ForbiddenException
+                || e instanceof NotFoundException
+                || e instanceof MethodNotAllowedException
+                || e instanceof ConflictException;
+    }
+
+    //! Message of an exception that can be shown to the client, an unexpected error gets a generic message
+    public static String getUserMessage(Exception e) {
+        if (isClientError(e) || e instanceof ServiceUnavailableException) {
+            return e.getMessage();
+        }
+        return "Internal server error";
+    }
+
     //! Static method to handle exceptions manually with a custom message
     public static ResponseEntity<ApiResponse> handleException(Exception e) {
         //? Bad Request Exception - Return 400
@@ -49,6 +92,13 @@ public class ErrorResponseHandler {
             return handleAllExceptions(HttpStatus.CONFLICT, e);
         }
 
+        //? Service Unavailable Exception - Return 503 with Retry-After
+        if (e instanceof ServiceUnavailableException serviceUnavailableException) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE.value())
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(serviceUnavailableException.getRetryAfterSeconds()))
+                    .body(new ApiResponse(e.getMessage(), null, null));
+        }
+
         //? Generic Exception - Return 500
         return handleAllExceptions(HttpStatus.INTERNAL_SERVER_ERROR, e);
     }
@@ -0,0 +1,44 @@
+package com.sasindu.shoppingcart.helpers;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+
+import java.io.IOException;
+
+public class FileResponseHelper {
+    // request attributes of the Tomcat sendfile support (see org.apache.coyote.Constants)
+    private static final String SENDFILE_SUPPORTED_ATTRIBUTE = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTRIBUTE = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTRIBUTE = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTRIBUTE = "org.apache.tomcat.sendfile.end";
+
+
+    /**
+     * Hand the file over to the connector so it is written with sendfile (zero-copy, the bytes never reach the heap)
+     * Only full GET responses of files are handed over, range requests are served by Spring (206 with ResourceRegion)
+     * The caller must then return a response without body and with the Content-Length of the file
+     *
+     * @param request       the current request
+     * @param resource      the file to send
+     * @param contentLength size of the file in bytes
+     * @return true if the connector will write the file, false if the resource must be returned as the body
+     */
+    public static boolean trySendfile(HttpServletRequest request, Resource resource, long contentLength) {
+        if (!HttpMethod.GET.matches(request.getMethod())
+                || request.getHeader(HttpHeaders.RANGE) != null
+                || !Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED_ATTRIBUTE))
+                || !resource.isFile()) {
+            return false;
+        }
+        try {
+            request.setAttribute(SENDFILE_FILENAME_ATTRIBUTE, resource.getFile().getAbsolutePath());
+        } catch (IOException e) {
+            return false;
+        }
+        request.setAttribute(SENDFILE_START_ATTRIBUTE, 0L);
+        request.setAttribute(SENDFILE_END_ATTRIBUTE, contentLength);
+        return true;
+    }
+}
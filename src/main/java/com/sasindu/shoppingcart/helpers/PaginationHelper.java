@@ -0,0 +1,61 @@
+package com.sasindu.shoppingcart.helpers;
+
+import com.sasindu.shoppingcart.abstractions.dto.response.page.CursorPageResponseDto;
+import com.sasindu.shoppingcart.constants.ApplicationConstants;
+import com.sasindu.shoppingcart.exceptions.BadRequestException;
+
+import java.util.List;
+import java.util.function.Function;
+
+public class PaginationHelper {
+
+    /**
+     * Resolve the cursor sent by the client, the first page starts after id 0
+     *
+     * @param after last id of the previous page, null for the first page
+     * @return cursor to use in the keyset query
+     * @throws BadRequestException if the cursor is negative
+     */
+    public static long resolveCursor(Long after) throws BadRequestException {
+        if (after == null) {
+            return 0L;
+        }
+        if (after < 0) {
+            throw new BadRequestException("Cursor should not be negative");
+        }
+        return after;
+    }
+
+
+    /**
+     * Resolve the page size sent by the client, capped at MAXIMUM_PAGE_SIZE
+     *
+     * @param limit requested page size, null for the default page size
+     * @return page size to use in the keyset query
+     * @throws BadRequestException if the limit is not positive
+     */
+    public static int resolveLimit(Integer limit) throws BadRequestException {
+        if (limit == null) {
+            return ApplicationConstants.DEFAULT_PAGE_SIZE;
+        }
+        if (limit <= 0) {
+            throw new BadRequestException("Limit should be greater than 0");
+        }
+        return Math.min(limit, ApplicationConstants.MAXIMUM_PAGE_SIZE);
+    }
+
+
+    /**
+     * Build a cursor page from the items of a keyset query
+     * A full page means there may be more items, so the id of the last item becomes the next cursor
+     *
+     * @param items  items of the page, ordered by id
+     * @param limit  page size used in the query
+     * @param idFunc function to get the id of an item
+     * @return cursor page
+     */
+    public static <T> CursorPageResponseDto<T> toCursorPage(List<T> items, int limit, Function<T, Long> idFunc) {
+        Long nextCursor = items.size() < limit ? null : idFunc.apply(items.getLast());
+        return new CursorPageResponseDto<>(items, limit, nextCursor);
+    }
+}
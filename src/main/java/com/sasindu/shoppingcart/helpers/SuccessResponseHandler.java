@@ -11,6 +11,8 @@ public class SuccessResponseHandler {
             return handleAllSuccess(message, "Success", data, status, headers);
         } else if (status == HttpStatus.CREATED.value()) {
             return handleAllSuccess(message, "Created", data, status, headers);
+        } else if (status == HttpStatus.ACCEPTED.value()) {
+            return handleAllSuccess(message, "Accepted", data, status, headers);
         }
         return handleAllSuccess(message, "Success", data, HttpStatus.OK.value(), headers);
     }
@@ -0,0 +1,34 @@
+package com.sasindu.shoppingcart.helpers;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public class TransactionHelper {
+
+    //! Run an action once the current transaction is committed, or now if there is no transaction
+    public static void afterCommit(Runnable action) {
+        afterCompletion(TransactionSynchronization.STATUS_COMMITTED, action);
+    }
+
+    //! Run an action if the current transaction is rolled back, never if there is no transaction
+    public static void afterRollback(Runnable action) {
+        afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK, action);
+    }
+
+    private static void afterCompletion(int expectedStatus, Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            if (expectedStatus == TransactionSynchronization.STATUS_COMMITTED) {
+                action.run();
+            }
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == expectedStatus) {
+                    action.run();
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,406 @@
+package com.sasindu.shoppingcart.inventory;
+
+import com.sasindu.shoppingcart.models.InventoryFlush;
+import com.sasindu.shoppingcart.models.Product;
+import com.sasindu.shoppingcart.repository.InventoryFlushRepository;
+import com.sasindu.shoppingcart.repository.ProductRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+
+/**
+ * Optional in-memory inventory of the hot products (flash sales), enabled with inventory.hot-products.enabled
+ * <p>
+ * The stock of every hot product is loaded from the database on startup and split across stripes of lock-free
+ * counters, so concurrent orders of the same product take stock from different counters instead of waiting on one
+ * row lock. The taken quantities are journaled (see InventoryJournal) and written to the database as one net delta
+ * per product every inventory.hot-products.flush-interval-ms, with the sequence number of the journal segment they
+ * come from, so a segment replayed after a crash is never applied twice. The products table lags behind by at most
+ * one interval, the in-memory stock is the reference for the hot products.
+ * <p>
+ * Only one instance of the application may serve the hot products, the in-memory stock is not shared.
+ */
+@Slf4j
+@Component
+public class HotProductInventory {
+    // each counter is padded to its own cache line
+    private static final int PADDING = 8;
+    // id of the flush marker of the hot products
+    private static final String FLUSH_MARKER = "hot-products";
+
+    private final boolean _enabled;
+    private final Set<Long> _hotProductIds;
+    private final int _stripeCount;
+    private final ProductRepository _productRepository;
+    private final InventoryFlushRepository _inventoryFlushRepository;
+    private final TransactionTemplate _transactionTemplate;
+    private final InventoryJournal _journal;
+    private final Map<Long, HotProductStock> _stocks = new ConcurrentHashMap<>();
+    // changes (journal append + pending delta) hold the read lock, the journal rollover holds the write lock
+    private final ReadWriteLock _flushLock = new ReentrantReadWriteLock();
+    // sealed segments not written to the database yet, in order, guarded by this
+    private final Deque<FlushBatch> _unflushed = new ArrayDeque<>();
+
+    public HotProductInventory(
+            @Value("${inventory.hot-products.enabled:false}") boolean enabled,
+            @Value("${inventory.hot-products.ids:}") List<Long> hotProductIds,
+            @Value("${inventory.hot-products.stripes:0}") int stripes,
+            @Value("${inventory.hot-products.journal-dir:./data/inventory}") String journalDirectory,
+            ProductRepository productRepository,
+            InventoryFlushRepository inventoryFlushRepository,
+            PlatformTransactionManager transactionManager
+    ) throws IOException {
+        this._enabled = enabled;
+        this._hotProductIds = hotProductIds == null ? Set.of() : hotProductIds.stream().filter(Objects::nonNull).collect(Collectors.toUnmodifiableSet());
+        this._stripeCount = stripes > 0 ? stripes : Runtime.getRuntime().availableProcessors();
+        this._productRepository = productRepository;
+        this._inventoryFlushRepository = inventoryFlushRepository;
+        this._transactionTemplate = new TransactionTemplate(transactionManager);
+        this._journal = enabled ? new InventoryJournal(Path.of(journalDirectory).toAbsolutePath().normalize()) : null;
+    }
+
+
+    /**
+     * Replay the segments journaled by the previous run that did not reach the database, then load the stock of
+     * the hot products, before any order is taken
+     */
+    @PostConstruct
+    public synchronized void recover() throws IOException {
+        if (!_enabled) {
+            return;
+        }
+        SortedMap<Long, Map<Long, Long>> segments = _journal.readSegments();
+        int replayed = 0;
+        for (Map.Entry<Long, Map<Long, Long>> segment : segments.entrySet()) {
+            if (writeBatch(new FlushBatch(segment.getKey(), segment.getValue()))) {
+                replayed++;
+            }
+        }
+        if (replayed > 0) {
+            log.info("Recovered {} journal segments of the hot product inventory", replayed);
+        }
+        long lastSequence = Math.max(lastFlushedSequence(), segments.isEmpty() ? 0 : segments.lastKey());
+        _journal.start(lastSequence + 1);
+        // loaded here, an order never waits on the database for the stock
+        _hotProductIds.forEach(productId -> _stocks.put(productId, load(productId)));
+    }
+
+
+    /**
+     * Check whether the stock of a product is kept in memory
+     *
+     * @param productId id of the product
+     * @return true if the hot product inventory is enabled and the product is hot
+     */
+    public boolean isHot(Long productId) {
+        return _enabled && _hotProductIds.contains(productId);
+    }
+
+
+    /**
+     * Get the in-memory stock of a hot product, the reference for it while the products table lags behind
+     *
+     * @param productId id of the product
+     * @return stock left in all the stripes
+     */
+    public long getStock(Long productId) {
+        return stock(productId).available();
+    }
+
+
+    /**
+     * Take stock of a hot product
+     *
+     * @param productId id of the product
+     * @param quantity  quantity to take
+     * @return true if the stock was taken, false if there is not enough stock
+     */
+    public boolean tryTake(Long productId, int quantity) {
+        _flushLock.readLock().lock();
+        try {
+            HotProductStock stock = stock(productId);
+            if (!stock.tryTake(quantity)) {
+                return false;
+            }
+            _journal.append(productId, quantity);
+            stock._pending.add(quantity);
+            return true;
+        } finally {
+            _flushLock.readLock().unlock();
+        }
+    }
+
+
+    /**
+     * Give stock of a hot product back (rolled back or cancelled order)
+     *
+     * @param productId id of the product
+     * @param quantity  quantity to give back
+     */
+    public void giveBack(Long productId, int quantity) {
+        _flushLock.readLock().lock();
+        try {
+            HotProductStock stock = stock(productId);
+            _journal.append(productId, -quantity);
+            stock._pending.add(-quantity);
+            stock.give(quantity);
+        } finally {
+            _flushLock.readLock().unlock();
+        }
+    }
+
+
+    /**
+     * Write the pending deltas to the database and reload the stock of a product from it. Called after the inventory
+     * of a product is set directly (product update or delete)
+     *
+     * @param productId id of the product
+     */
+    public synchronized void invalidate(Long productId) {
+        if (!isHot(productId)) {
+            return;
+        }
+        _flushLock.writeLock().lock();
+        try {
+            // the orders taken since the last flush are written first, the journal segment holding them is sealed
+            // so they are not replayed later; no order runs until the stock is reloaded
+            rollOver();
+            writeUnflushed();
+            _stocks.put(productId, load(productId));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            _flushLock.writeLock().unlock();
+        }
+    }
+
+
+    /**
+     * Write the net delta of every hot product to the database, runs every inventory.hot-products.flush-interval-ms
+     */
+    @Scheduled(fixedDelayString = "${inventory.hot-products.flush-interval-ms:500}")
+    public synchronized void flush() {
+        if (!_enabled) {
+            return;
+        }
+
+        // 1. Seal the journal segment and collect its deltas, no change runs in between
+        _flushLock.writeLock().lock();
+        try {
+            rollOver();
+        } catch (IOException e) {
+            log.warn("Failed to roll the inventory journal over: {}", e.getMessage());
+            return;
+        } finally {
+            _flushLock.writeLock().unlock();
+        }
+
+        // 2. Write the sealed segments in order, a failed one is retried by the next flush
+        try {
+            writeUnflushed();
+        } catch (RuntimeException | IOException e) {
+            log.warn("Failed to flush the hot product inventory: {}", e.getMessage());
+        }
+    }
+
+
+    /**
+     * Flush the pending deltas on shutdown
+     */
+    @PreDestroy
+    public void shutdown() throws IOException {
+        if (!_enabled) {
+            return;
+        }
+        flush();
+        _journal.close();
+    }
+
+
+    //! PRIVATE METHODS >>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>//
+
+    private HotProductStock stock(Long productId) {
+        HotProductStock stock = _stocks.get(productId);
+        if (stock == null) {
+            throw new IllegalStateException("The stock of hot product " + productId + " is not loaded");
+        }
+        return stock;
+    }
+
+
+    private HotProductStock load(Long productId) {
+        int inventory = _productRepository.findById(productId)
+                .map(Product::getInventory)
+                .orElse(0);
+        return new HotProductStock(inventory, _stripeCount);
+    }
+
+
+    /**
+     * Seal the journal segment and queue its deltas, must hold the write lock
+     */
+    private void rollOver() throws IOException {
+        if (_stocks.values().stream().allMatch(stock -> stock._pending.sum() == 0)) {
+            return;
+        }
+        long sequence = _journal.rollOver();
+        Map<Long, Long> deltas = new HashMap<>();
+        _stocks.forEach((productId, stock) -> {
+            long delta = stock._pending.sumThenReset();
+            if (delta != 0) {
+                deltas.put(productId, delta);
+            }
+        });
+        _unflushed.add(new FlushBatch(sequence, deltas));
+    }
+
+
+    /**
+     * Write the queued segments in order, each one is deleted from the journal once it is committed
+     */
+    private void writeUnflushed() throws IOException {
+        while (!_unflushed.isEmpty()) {
+            FlushBatch batch = _unflushed.peek();
+            writeBatch(batch);
+            _unflushed.poll();
+            _journal.flushed(batch.sequence());
+        }
+    }
+
+
+    /**
+     * Write the deltas of a segment and its sequence number in one transaction
+     *
+     * @return false if the segment was already written
+     */
+    private boolean writeBatch(FlushBatch batch) {
+        return Boolean.TRUE.equals(_transactionTemplate.execute(status -> {
+            InventoryFlush marker = _inventoryFlushRepository.findById(FLUSH_MARKER)
+                    .orElseGet(() -> new InventoryFlush(FLUSH_MARKER));
+            if (marker.getLastSequence() >= batch.sequence()) {
+                return false;
+            }
+            batch.deltas().forEach((productId, delta) -> {
+                int quantity = Math.toIntExact(Math.abs(delta));
+                if (delta < 0) {
+                    _productRepository.incrementInventory(productId, quantity);
+                } else if (_productRepository.decrementInventory(productId, quantity) == 0) {
+                    // the stock was checked in memory, the product was deleted or its inventory set lower meanwhile
+                    log.warn("Inventory of hot product {} is lower than the {} taken, left unchanged", productId, quantity);
+                }
+            });
+            marker.setLastSequence(batch.sequence());
+            _inventoryFlushRepository.save(marker);
+            return true;
+        }));
+    }
+
+
+    private long lastFlushedSequence() {
+        return _inventoryFlushRepository.findById(FLUSH_MARKER)
+                .map(InventoryFlush::getLastSequence)
+                .orElse(0L);
+    }
+
+
+    private record FlushBatch(long sequence, Map<Long, Long> deltas) {
+    }
+
+
+    /**
+     * Stock of one product split across padded counters, a thread starts at a random stripe and moves on to the
+     * next ones when its stripe is empty
+     */
+    static final class HotProductStock {
+        private final AtomicLongArray _stripes;
+        private final int _stripeCount;
+        // quantity taken since the last flush
+        private final LongAdder _pending = new LongAdder();
+
+        HotProductStock(long inventory, int stripeCount) {
+            this._stripeCount = stripeCount;
+            this._stripes = new AtomicLongArray(stripeCount * PADDING);
+            for (int i = 0; i < stripeCount; i++) {
+                _stripes.set(i * PADDING, inventory / stripeCount + (i < inventory % stripeCount ? 1 : 0));
+            }
+        }
+
+        boolean tryTake(int quantity) {
+            int start = ThreadLocalRandom.current().nextInt(_stripeCount);
+
+            // 1. Take the whole quantity from one stripe
+            for (int i = 0; i < _stripeCount; i++) {
+                int index = ((start + i) % _stripeCount) * PADDING;
+                long available;
+                while ((available = _stripes.get(index)) >= quantity) {
+                    if (_stripes.compareAndSet(index, available, available - quantity)) {
+                        return true;
+                    }
+                }
+            }
+
+            // 2. Gather it from several stripes, given back if the total is not enough
+            long[] taken = new long[_stripeCount];
+            long remaining = quantity;
+            for (int i = 0; i < _stripeCount && remaining > 0; i++) {
+                int stripe = (start + i) % _stripeCount;
+                int index = stripe * PADDING;
+                long available;
+                while ((available = _stripes.get(index)) > 0) {
+                    long take = Math.min(available, remaining);
+                    if (_stripes.compareAndSet(index, available, available - take)) {
+                        taken[stripe] = take;
+                        remaining -= take;
+                        break;
+                    }
+                }
+            }
+            if (remaining == 0) {
+                return true;
+            }
+            for (int stripe = 0; stripe < _stripeCount; stripe++) {
+                if (taken[stripe] > 0) {
+                    _stripes.addAndGet(stripe * PADDING, taken[stripe]);
+                }
+            }
+            return false;
+        }
+
+        long available() {
+            long available = 0;
+            for (int i = 0; i < _stripeCount; i++) {
+                available += _stripes.get(i * PADDING);
+            }
+            return available;
+        }
+
+        void give(int quantity) {
+            _stripes.addAndGet(ThreadLocalRandom.current().nextInt(_stripeCount) * PADDING, quantity);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.sasindu.shoppingcart.inventory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+
+/**
+ * Write-ahead journal of the in-memory inventory changes that are not flushed to the database yet
+ * <p>
+ * Every change is appended as a "productId,quantity" line to the current segment (journal-{sequence}.log) before it
+ * is acknowledged. A flush seals the current segment and starts the next one, writes the deltas of the sealed
+ * segment to the database together with its sequence number (see InventoryFlush), then deletes the segment.
+ * After a crash the segments left are replayed in order, the ones whose sequence number is already in the database
+ * are skipped, so a delta is applied exactly once.
+ * <p>
+ * The lines are written without fsync (they survive a crash of the process, not of the machine), a segment is
+ * forced to disk when it is sealed.
+ */
+class InventoryJournal {
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final Path _directory;
+    // replaced only while no append runs (see HotProductInventory)
+    private volatile FileChannel _channel;
+    private long _sequence;
+
+    InventoryJournal(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        this._directory = directory;
+    }
+
+
+    /**
+     * Read the segments left by the previous run
+     *
+     * @return net quantity taken per product id, per sequence number of segment
+     */
+    SortedMap<Long, Map<Long, Long>> readSegments() throws IOException {
+        SortedMap<Long, Map<Long, Long>> segments = new TreeMap<>();
+        for (Map.Entry<Long, Path> segment : listSegments().entrySet()) {
+            Map<Long, Long> deltas = new HashMap<>();
+            for (String line : Files.readAllLines(segment.getValue(), StandardCharsets.US_ASCII)) {
+                int separator = line.indexOf(',');
+                // a torn last line of a crash is skipped
+                if (separator <= 0 || separator == line.length() - 1) {
+                    continue;
+                }
+                try {
+                    deltas.merge(Long.parseLong(line.substring(0, separator)), Long.parseLong(line.substring(separator + 1)), Long::sum);
+                } catch (NumberFormatException e) {
+                    // torn line
+                }
+            }
+            deltas.values().removeIf(delta -> delta == 0);
+            segments.put(segment.getKey(), deltas);
+        }
+        return segments;
+    }
+
+
+    /**
+     * Delete the segments left by the previous run and start a new segment
+     * called on startup, after the segments of the previous run are replayed
+     *
+     * @param sequence sequence number of the new segment, greater than any flushed one
+     */
+    synchronized void start(long sequence) throws IOException {
+        close();
+        flushed(Long.MAX_VALUE);
+        _sequence = sequence;
+        open();
+    }
+
+
+    /**
+     * Append a change
+     *
+     * @param productId id of the product
+     * @param quantity  quantity taken (positive) or given back (negative)
+     */
+    void append(long productId, long quantity) {
+        ByteBuffer line = ByteBuffer.wrap((productId + "," + quantity + "\n").getBytes(StandardCharsets.US_ASCII));
+        try {
+            // appends of a channel opened with APPEND are atomic, the lines of concurrent writers do not interleave
+            _channel.write(line);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+
+    /**
+     * Seal the current segment and start the next one
+     * the caller must make sure no append runs concurrently
+     *
+     * @return sequence number of the sealed segment
+     */
+    synchronized long rollOver() throws IOException {
+        close();
+        long sealed = _sequence++;
+        open();
+        return sealed;
+    }
+
+
+    /**
+     * Delete the sealed segments up to a sequence number, their deltas are in the database
+     *
+     * @param sequence sequence number of the last flushed segment
+     */
+    synchronized void flushed(long sequence) throws IOException {
+        for (Map.Entry<Long, Path> segment : listSegments().entrySet()) {
+            if (segment.getKey() <= sequence && (_channel == null || segment.getKey() != _sequence)) {
+                Files.deleteIfExists(segment.getValue());
+            }
+        }
+    }
+
+
+    synchronized void close() throws IOException {
+        if (_channel != null) {
+            _channel.force(false);
+            _channel.close();
+            _channel = null;
+        }
+    }
+
+
+    private void open() throws IOException {
+        _channel = FileChannel.open(_directory.resolve(SEGMENT_PREFIX + _sequence + SEGMENT_SUFFIX),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+
+    private SortedMap<Long, Path> listSegments() throws IOException {
+        SortedMap<Long, Path> segments = new TreeMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(_directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    segments.put(Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())), file);
+                } catch (NumberFormatException e) {
+                    // not a segment
+                }
+            }
+        }
+        return segments;
+    }
+}
@@ -0,0 +1,211 @@
+package com.sasindu.shoppingcart.inventory;
+
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * In-memory index of the active stock holds (see IStockReservationService)
+ * <p>
+ * The held quantity of every product is kept as a running total, so the available-to-sell quantity of a product is
+ * its inventory minus one counter, without scanning the holds. The holds wait for their expiration in a DelayQueue,
+ * the sweeper only polls the expired ones. Extending or changing a hold queues a new entry, the replaced entry is
+ * skipped when it expires.
+ */
+@Component
+public class StockReservationIndex {
+    private final Map<HoldKey, Hold> _holds = new ConcurrentHashMap<>();
+    private final Map<Long, AtomicLong> _heldByProduct = new ConcurrentHashMap<>();
+    private final DelayQueue<Hold> _expirations = new DelayQueue<>();
+
+
+    /**
+     * Set the hold of a user on a product to the given quantity, checking the stock for the added quantity
+     *
+     * @param userId    id of the user
+     * @param productId id of the product
+     * @param quantity  quantity to hold, 0 releases the hold
+     * @param inventory inventory of the product
+     * @param expiresAt expiration of the hold
+     * @return the replaced hold (HeldStock.NONE if there was none), or null if the inventory minus the holds of the
+     * other users is not enough
+     */
+    public HeldStock hold(Long userId, Long productId, int quantity, long inventory, Instant expiresAt) {
+        HoldKey key = new HoldKey(userId, productId);
+        HeldStock[] replaced = {null};
+        // compute runs one change of the same hold at a time
+        _holds.compute(key, (k, current) -> {
+            int currentQuantity = current == null ? 0 : current.quantity();
+            AtomicLong productHeld = held(productId);
+            int delta = quantity - currentQuantity;
+            if (delta > 0 && !tryAdd(productHeld, delta, inventory)) {
+                return current;
+            }
+            if (delta < 0) {
+                productHeld.addAndGet(delta);
+            }
+            replaced[0] = current == null ? HeldStock.NONE : new HeldStock(current.quantity(), current.expiresAt());
+            if (quantity == 0) {
+                return null;
+            }
+            Hold hold = new Hold(key, quantity, expiresAt);
+            _expirations.add(hold);
+            return hold;
+        });
+        return replaced[0];
+    }
+
+
+    /**
+     * Put back the hold replaced by a change that was rolled back, the stock is not checked
+     * nothing is done if the hold was changed again since
+     *
+     * @param userId    id of the user
+     * @param productId id of the product
+     * @param quantity  quantity of the rolled back change
+     * @param expiresAt expiration of the rolled back change
+     * @param replaced  hold replaced by the change
+     */
+    public void undo(Long userId, Long productId, int quantity, Instant expiresAt, HeldStock replaced) {
+        HoldKey key = new HoldKey(userId, productId);
+        _holds.compute(key, (k, current) -> {
+            int currentQuantity = current == null ? 0 : current.quantity();
+            if (currentQuantity != quantity || (current != null && !current.expiresAt().equals(expiresAt))) {
+                return current;
+            }
+            held(productId).addAndGet(replaced.quantity() - currentQuantity);
+            if (replaced.quantity() == 0) {
+                return null;
+            }
+            Hold hold = new Hold(key, replaced.quantity(), replaced.expiresAt());
+            _expirations.add(hold);
+            return hold;
+        });
+    }
+
+
+    /**
+     * Release the hold of a user on a product
+     *
+     * @param userId    id of the user
+     * @param productId id of the product
+     */
+    public void release(Long userId, Long productId) {
+        Hold hold = _holds.remove(new HoldKey(userId, productId));
+        if (hold != null) {
+            held(productId).addAndGet(-hold.quantity());
+        }
+    }
+
+
+    /**
+     * Restore a hold loaded from the database, the stock is not checked
+     */
+    public void restore(Long userId, Long productId, int quantity, Instant expiresAt) {
+        HoldKey key = new HoldKey(userId, productId);
+        Hold hold = new Hold(key, quantity, expiresAt);
+        if (_holds.putIfAbsent(key, hold) == null) {
+            held(productId).addAndGet(quantity);
+            _expirations.add(hold);
+        }
+    }
+
+
+    /**
+     * Get the quantity of a product held by all the users
+     *
+     * @param productId id of the product
+     * @return held quantity
+     */
+    public long getHeldQuantity(Long productId) {
+        AtomicLong held = _heldByProduct.get(productId);
+        return held == null ? 0 : held.get();
+    }
+
+
+    /**
+     * Get the quantity of a product held by a user
+     *
+     * @param userId    id of the user
+     * @param productId id of the product
+     * @return held quantity
+     */
+    public int getHeldQuantity(Long userId, Long productId) {
+        Hold hold = _holds.get(new HoldKey(userId, productId));
+        return hold == null ? 0 : hold.quantity();
+    }
+
+
+    /**
+     * Release the expired holds
+     *
+     * @param maxCount maximum number of holds to release
+     * @return number of released holds
+     */
+    public int releaseExpired(int maxCount) {
+        List<Hold> expired = new ArrayList<>();
+        _expirations.drainTo(expired, maxCount);
+        int released = 0;
+        for (Hold hold : expired) {
+            // a replaced hold is not the current one anymore
+            if (_holds.remove(hold.key(), hold)) {
+                held(hold.key().productId()).addAndGet(-hold.quantity());
+                released++;
+            }
+        }
+        return released;
+    }
+
+
+    private AtomicLong held(Long productId) {
+        return _heldByProduct.computeIfAbsent(productId, id -> new AtomicLong());
+    }
+
+
+    private static boolean tryAdd(AtomicLong productHeld, int delta, long inventory) {
+        while (true) {
+            long current = productHeld.get();
+            if (inventory - current < delta) {
+                return false;
+            }
+            if (productHeld.compareAndSet(current, current + delta)) {
+                return true;
+            }
+        }
+    }
+
+
+    /**
+     * Quantity and expiration of a hold
+     */
+    public record HeldStock(int quantity, Instant expiresAt) {
+        public static final HeldStock NONE = new HeldStock(0, null);
+    }
+
+
+    private record HoldKey(Long userId, Long productId) {
+    }
+
+
+    private record Hold(HoldKey key, int quantity, Instant expiresAt) implements Delayed {
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(Duration.between(Instant.now(), expiresAt));
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return expiresAt.compareTo(((Hold) other).expiresAt);
+        }
+    }
+}
@@ -1,57 +1,80 @@
 package com.sasindu.shoppingcart.models;
 
-import com.sasindu.shoppingcart.abstractions.dto.response.image.ImageResponseDto;
 import com.sasindu.shoppingcart.abstractions.dto.response.image.ImageResponseWithoutBlobDto;
+import com.sasindu.shoppingcart.constants.ApplicationConstants;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
-import java.sql.Blob;
+import java.util.ArrayList;
+import java.util.List;
 
 @Getter
 @Setter
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
-@Table(name = "images")
+@Table(name = "images", indexes = {
+        @Index(name = "idx_images_content_hash", columnList = "content_hash")
+})
 public class Image {
+    // ids reserved per round trip to the images_seq sequence (a table on MySQL)
+    public static final int ID_ALLOCATION_SIZE = 50;
 
+    // the ids come from a pooled sequence instead of an identity column, so the images of an upload are inserted
+    // in one JDBC batch (see hibernate.jdbc.batch_size)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "images_seq")
+    @SequenceGenerator(name = "images_seq", sequenceName = "images_seq", allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
 
     private String fileName;
 
     private String fileType;
 
-    private String downloadUrl;
+    // SHA-256 hash of the content, the content itself is kept by the image storage (see IImageStorage)
+    @Column(length = 64)
+    private String contentHash;
 
-    @Lob
-    private Blob image;
+    private Long contentLength;
 
     @ManyToOne
     @JoinColumn(name = "product_id", nullable = false)
     private Product product;
 
+    // resized copies of the image, generated in the background after the upload (see ImageVariantService)
+    // when the image is deleted or replaced, its variants should be deleted
+    @OneToMany(mappedBy = "image", cascade = CascadeType.ALL, orphanRemoval = true)
+    private List<ImageVariant> variants = new ArrayList<>();
+
 
     /**
-     * Convert the image to an image response
+     * Get the download url of the image, derived from the id so it does not have to be stored
+     * the content hash versions the url, so clients can cache it as immutable
      *
-     * @return ImageResponse
+     * @return String value of the download url
      */
-    public ImageResponseDto toImageResponse() {
-        ImageResponseDto response = new ImageResponseDto();
-        response.setId(this.id);
-        response.setFileName(this.fileName);
-        response.setFileType(this.fileType);
-        response.setDownloadUrl(this.downloadUrl);
-        response.setImage(this.image);
-        response.setProduct(this.product.toProductResponse());
-        return response;
+    public String getDownloadUrl() {
+        String downloadUrl = ApplicationConstants.IMAGE_DOWNLOAD_URL_PREFIX + this.id;
+        return this.contentHash != null ? downloadUrl + "?v=" + this.contentHash : downloadUrl;
     }
 
+
+    /**
+     * Get the hashes of the stored contents of the image and of its variants
+     *
+     * @return List of content hashes
+     */
+    public List<String> getContentHashes() {
+        List<String> contentHashes = new ArrayList<>(variants.size() + 1);
+        contentHashes.add(this.contentHash);
+        variants.forEach(variant -> contentHashes.add(variant.getContentHash()));
+        return contentHashes;
+    }
+
+
     /**
      * Convert the image to an image response without blob
      *
@@ -62,7 +85,7 @@ public class Image {
         response.setId(this.id);
         response.setFileName(this.fileName);
         response.setFileType(this.fileType);
-        response.setDownloadUrl(this.downloadUrl);
+        response.setDownloadUrl(getDownloadUrl());
         response.setProduct(this.product.toProductResponse());
         return response;
     }
@@ -0,0 +1,39 @@
+package com.sasindu.shoppingcart.models;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "image_variants", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_image_variants_image_id_width", columnNames = {"image_id", "width"})
+}, indexes = {
+        @Index(name = "idx_image_variants_content_hash", columnList = "content_hash")
+})
+public class ImageVariant {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // width of the variant in pixels, the height keeps the aspect ratio of the original
+    private int width;
+
+    private String fileType;
+
+    // SHA-256 hash of the content, the content itself is kept by the image storage (see IImageStorage)
+    @Column(length = 64)
+    private String contentHash;
+
+    private Long contentLength;
+
+    @ManyToOne
+    @JoinColumn(name = "image_id", nullable = false)
+    private Image image;
+}
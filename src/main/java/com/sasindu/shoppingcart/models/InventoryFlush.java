@@ -0,0 +1,27 @@
+package com.sasindu.shoppingcart.models;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(name = "inventory_flushes")
+public class InventoryFlush {
+
+    // name of the in-memory inventory that is flushed
+    @Id
+    @Column(length = 64)
+    private String id;
+
+    // sequence number of the last journal segment written to the products, updated in the same transaction
+    @Column(name = "last_sequence", nullable = false)
+    private long lastSequence;
+
+    public InventoryFlush(String id) {
+        this.id = id;
+    }
+}
@@ -1,10 +1,12 @@
 package com.sasindu.shoppingcart.models;
 
 import com.sasindu.shoppingcart.abstractions.dto.response.product.ProductResponseDto;
+import com.sasindu.shoppingcart.constants.ApplicationConstants;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.BatchSize;
 
 import java.math.BigDecimal;
 import java.util.Collections;
@@ -16,7 +18,10 @@ import java.util.stream.Collectors;
 @Setter
 @NoArgsConstructor
 @Entity
-@Table(name = "products")
+@Table(name = "products", indexes = {
+        @Index(name = "idx_products_brand_id", columnList = "brand, id"),
+        @Index(name = "idx_products_category_id_id", columnList = "category_id, id")
+})
 public class Product {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -34,7 +39,9 @@ public class Product {
 
     // One product can have multiple images
     // when product is deleted, all images related to that product should be deleted
+    // images of a page of products are loaded together instead of one select per product
     @OneToMany(mappedBy = "product", cascade = CascadeType.ALL, orphanRemoval = true)
+    @BatchSize(size = ApplicationConstants.MAXIMUM_PAGE_SIZE)
     private List<Image> images = Collections.emptyList();
 
     @ManyToOne
@@ -0,0 +1,48 @@
+package com.sasindu.shoppingcart.models;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(name = "refresh_tokens", indexes = {
+        @Index(name = "idx_refresh_tokens_family_id", columnList = "family_id"),
+        @Index(name = "idx_refresh_tokens_expires_at", columnList = "expires_at")
+})
+public class RefreshToken {
+
+    // id of the token (jti claim)
+    @Id
+    @Column(length = 36)
+    private String id;
+
+    // every token rotated from the same login shares the family id of the first token
+    @Column(name = "family_id", length = 36, nullable = false)
+    private String familyId;
+
+    @Column(nullable = false)
+    private Long userId;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+
+    // a token is revoked when it is rotated, on logout, or when its family is revoked after a reuse
+    private boolean revoked;
+
+    // id of the token this token was rotated to
+    @Column(length = 36)
+    private String replacedBy;
+
+    public RefreshToken(String id, String familyId, Long userId, Instant expiresAt) {
+        this.id = id;
+        this.familyId = familyId;
+        this.userId = userId;
+        this.expiresAt = expiresAt;
+    }
+}
@@ -0,0 +1,41 @@
+package com.sasindu.shoppingcart.models;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(name = "stock_reservations", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_stock_reservations_user_id_product_id", columnNames = {"user_id", "product_id"})
+}, indexes = {
+        @Index(name = "idx_stock_reservations_expires_at", columnList = "expires_at")
+})
+public class StockReservation {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    // quantity held for the cart of the user
+    private int quantity;
+
+    // the hold is released by the sweeper after this instant
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+
+    public StockReservation(Long userId, Long productId) {
+        this.userId = userId;
+        this.productId = productId;
+    }
+}
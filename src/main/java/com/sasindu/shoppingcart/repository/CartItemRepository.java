@@ -1,6 +1,7 @@
 package com.sasindu.shoppingcart.repository;
 
 import com.sasindu.shoppingcart.models.CartItem;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 import java.util.List;
@@ -30,6 +31,7 @@ public interface CartItemRepository extends JpaRepository<CartItem, Long> {
      * @param userId the id of the user
      * @return list of cart items
      */
+    @EntityGraph(attributePaths = {"cart", "product", "product.category"})
     List<CartItem> findAllByCartUserId(Long userId);
 
 
@@ -39,5 +41,6 @@ public interface CartItemRepository extends JpaRepository<CartItem, Long> {
      * @param cartId the id of the cart
      * @return list of cart items
      */
+    @EntityGraph(attributePaths = {"cart", "product", "product.category"})
     List<CartItem> findAllByCartId(Long cartId);
 }
@@ -0,0 +1,48 @@
+package com.sasindu.shoppingcart.repository;
+
+import com.sasindu.shoppingcart.models.IdempotencyKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * IdempotencyKey Repository is responsible for handling the database operations related to the idempotency keys
+ */
+public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKey, Long> {
+
+    /**
+     * Find the idempotency key of a user
+     *
+     * @param userId         Long value of the user id
+     * @param idempotencyKey String value of the key sent by the client
+     * @return Optional of the idempotency key
+     */
+    Optional<IdempotencyKey> findByUserIdAndIdempotencyKey(Long userId, String idempotencyKey);
+
+
+    /**
+     * Delete the keys created before the given instant
+     *
+     * @param createdBefore Instant value of the oldest key to keep
+     * @return number of deleted keys
+     */
+    @Modifying
+    @Query("DELETE FROM IdempotencyKey k WHERE k.createdAt < :createdBefore")
+    int deleteCreatedBefore(Instant createdBefore);
+
+
+    /**
+     * Delete the key of a user if it was created before the given instant
+     *
+     * @param userId         Long value of the user id
+     * @param idempotencyKey String value of the key sent by the client
+     * @param createdBefore  Instant value of the oldest key to keep
+     * @return number of deleted keys
+     */
+    @Modifying
+    @Query("DELETE FROM IdempotencyKey k WHERE k.userId = :userId AND k.idempotencyKey = :idempotencyKey AND k.createdAt < :createdBefore")
+    int deleteExpiredKey(Long userId, String idempotencyKey, Instant createdBefore);
+}
@@ -1,10 +1,32 @@
 package com.sasindu.shoppingcart.repository;
 
 import com.sasindu.shoppingcart.models.Image;
+import com.sasindu.shoppingcart.repository.projections.ImageFileProjection;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.Optional;
 
 /**
  * Image Repository is responsible for handling the database operations related to the image
  */
 public interface ImageRepository extends JpaRepository<Image, Long> {
+
+    /**
+     * Load only the file metadata of an image, the product is not loaded
+     *
+     * @param id Long value of the image id
+     * @return Optional of the image file metadata
+     */
+    @Query("SELECT i.fileName AS fileName, i.fileType AS fileType, i.contentHash AS contentHash, i.contentLength AS contentLength FROM Image i WHERE i.id = :id")
+    Optional<ImageFileProjection> findFileById(Long id);
+
+
+    /**
+     * Check whether any image still references the given content
+     *
+     * @param contentHash String value of the SHA-256 hash of the content
+     * @return true if at least one image references the content
+     */
+    boolean existsByContentHash(String contentHash);
 }
@@ -0,0 +1,36 @@
+package com.sasindu.shoppingcart.repository;
+
+import com.sasindu.shoppingcart.models.ImageVariant;
+import com.sasindu.shoppingcart.repository.projections.ImageFileProjection;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
+
+/**
+ * ImageVariant Repository is responsible for handling the database operations related to the image variants
+ */
+public interface ImageVariantRepository extends JpaRepository<ImageVariant, Long> {
+
+    /**
+     * Load the file metadata of the variants of an image that are at least the given width, smallest first
+     *
+     * @param imageId  Long value of the image id
+     * @param width    int value of the minimum width in pixels
+     * @param pageable Pageable to limit the number of variants (one is enough to serve a download)
+     * @return List of the file metadata of the matching variants
+     */
+    @Query("SELECT v.image.fileName AS fileName, v.fileType AS fileType, v.contentHash AS contentHash, v.contentLength AS contentLength " +
+            "FROM ImageVariant v WHERE v.image.id = :imageId AND v.width >= :width ORDER BY v.width ASC")
+    List<ImageFileProjection> findFilesByImageIdAndMinimumWidth(Long imageId, int width, Pageable pageable);
+
+
+    /**
+     * Check whether any variant still references the given content
+     *
+     * @param contentHash String value of the SHA-256 hash of the content
+     * @return true if at least one variant references the content
+     */
+    boolean existsByContentHash(String contentHash);
+}
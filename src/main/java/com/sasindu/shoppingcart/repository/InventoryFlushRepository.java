@@ -0,0 +1,11 @@
+package com.sasindu.shoppingcart.repository;
+
+import com.sasindu.shoppingcart.models.InventoryFlush;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+/**
+ * InventoryFlush Repository is responsible for handling the database operations related to the flush markers of the
+ * in-memory inventories
+ */
+public interface InventoryFlushRepository extends JpaRepository<InventoryFlush, String> {
+}
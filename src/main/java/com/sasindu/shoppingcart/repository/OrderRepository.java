@@ -1,9 +1,11 @@
 package com.sasindu.shoppingcart.repository;
 
 import com.sasindu.shoppingcart.models.Order;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 import java.util.List;
+import java.util.Optional;
 
 
 /**
@@ -17,5 +19,16 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
      * @param userId the user id
      * @return the list of orders
      */
+    @EntityGraph(attributePaths = {"user", "user.cart", "orderItems", "orderItems.product", "orderItems.product.category"})
     List<Order> findAllByUserId(Long userId);
+
+
+    /**
+     * Find an order by id, with its user and items loaded in the same query.
+     *
+     * @param orderId the order id
+     * @return the order
+     */
+    @EntityGraph(attributePaths = {"user", "user.cart", "orderItems", "orderItems.product", "orderItems.product.category"})
+    Optional<Order> findWithItemsById(Long orderId);
 }
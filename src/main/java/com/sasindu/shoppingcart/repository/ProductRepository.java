@@ -1,15 +1,22 @@
 package com.sasindu.shoppingcart.repository;
 
 import com.sasindu.shoppingcart.models.Product;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Repository interface for Product.
  * Provides methods to manage products in the shopping cart.
+ * Dynamic filters are expressed with {@link ProductSpecifications}.
  */
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpecificationExecutor<Product> {
 
     /**
      * Find a product by its brand and name.
@@ -77,4 +84,61 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
      * @return List of Product objects containing the product details.
      */
     List<Product> findByCategoryNameAndBrandAndName(String category, String brand, String name);
+
+
+    /**
+     * Keyset page of all products: the products after the given id, in id order.
+     *
+     * @param after Id of the last product of the previous page (0 for the first page).
+     * @param limit Maximum number of products to return.
+     * @return List of Product objects containing the product details.
+     */
+    @EntityGraph(attributePaths = {"category"})
+    List<Product> findByIdGreaterThanOrderByIdAsc(Long after, Limit limit);
+
+
+    /**
+     * Keyset page of the products of a category, uses the (category_id, id) index.
+     *
+     * @param category Category of the products.
+     * @param after    Id of the last product of the previous page (0 for the first page).
+     * @param limit    Maximum number of products to return.
+     * @return List of Product objects containing the product details.
+     */
+    @EntityGraph(attributePaths = {"category"})
+    List<Product> findByCategoryNameAndIdGreaterThanOrderByIdAsc(String category, Long after, Limit limit);
+
+
+    /**
+     * Find a product by its id, with its category and images loaded in the same query.
+     *
+     * @param id Id of the product.
+     * @return Optional of Product containing the product details.
+     */
+    @EntityGraph(attributePaths = {"category", "images"})
+    Optional<Product> findWithDetailsById(Long id);
+
+
+    /**
+     * Decrement the inventory of a product if it has enough stock, the check and the update are one atomic statement.
+     *
+     * @param id       Id of the product.
+     * @param quantity Quantity to take from the inventory.
+     * @return 1 if the inventory was decremented, 0 if the product does not exist or has not enough stock.
+     */
+    @Modifying
+    @Query("UPDATE Product p SET p.inventory = p.inventory - :quantity WHERE p.id = :id AND p.inventory >= :quantity")
+    int decrementInventory(Long id, int quantity);
+
+
+    /**
+     * Increment the inventory of a product.
+     *
+     * @param id       Id of the product.
+     * @param quantity Quantity to give back to the inventory.
+     * @return 1 if the inventory was incremented, 0 if the product does not exist.
+     */
+    @Modifying
+    @Query("UPDATE Product p SET p.inventory = p.inventory + :quantity WHERE p.id = :id")
+    int incrementInventory(Long id, int quantity);
 }
@@ -0,0 +1,108 @@
+package com.sasindu.shoppingcart.repository;
+
+import com.sasindu.shoppingcart.models.Product;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+
+/**
+ * Specifications for Product.
+ * Builds the WHERE clause of product queries from the filter parameters,
+ * so filtering is done by the database instead of in memory.
+ */
+public final class ProductSpecifications {
+    public static final String CATEGORY_FILTER = "category";
+    public static final String BRAND_FILTER = "brand";
+    public static final String NAME_FILTER = "name";
+
+    private static final List<String> SUPPORTED_FILTERS = List.of(CATEGORY_FILTER, BRAND_FILTER, NAME_FILTER);
+    private static final char LIKE_ESCAPE_CHARACTER = '\\';
+
+    private ProductSpecifications() {
+    }
+
+
+    /**
+     * Build a specification from the filter parameters.
+     * Only the filters present in the map are added to the query, unknown keys are ignored.
+     *
+     * @param filters Map of filters (category, brand and name).
+     * @return Specification matching the products for the given filters.
+     */
+    public static Specification<Product> fromFilters(Map<String, String> filters) {
+        String category = filters.get(CATEGORY_FILTER);
+        String brand = filters.get(BRAND_FILTER);
+        String name = filters.get(NAME_FILTER);
+
+        return (root, query, builder) -> {
+            List<Predicate> predicates = new ArrayList<>(3);
+            if (StringUtils.hasText(category)) {
+                predicates.add(builder.equal(root.get("category").get("name"), category));
+            }
+            if (StringUtils.hasText(brand)) {
+                predicates.add(builder.equal(root.get("brand"), brand));
+            }
+            if (StringUtils.hasText(name)) {
+                predicates.add(builder.like(root.get("name"), "%" + escapeLikePattern(name) + "%", LIKE_ESCAPE_CHARACTER));
+            }
+            return builder.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+
+    /**
+     * Keyset condition: only the products after the given id.
+     * Combined with an order by id, this reads one page from the (brand, id) / (category_id, id) indexes
+     * without skipping over the previous pages like OFFSET would.
+     *
+     * @param after Id of the last product of the previous page (0 for the first page).
+     * @return Specification matching the products after the given id.
+     */
+    public static Specification<Product> idGreaterThan(long after) {
+        return (root, query, builder) -> builder.greaterThan(root.get("id"), after);
+    }
+
+
+    /**
+     * Normalize the filter parameters: keep only the supported filters that have a value, in a stable order.
+     * Two requests that produce the same query produce equal normalized maps.
+     *
+     * @param filters Map of filters (category, brand and name).
+     * @return unmodifiable, sorted map of the effective filters
+     */
+    public static Map<String, String> normalizeFilters(Map<String, String> filters) {
+        Map<String, String> normalized = new TreeMap<>();
+        for (String key : SUPPORTED_FILTERS) {
+            String value = filters.get(key);
+            if (StringUtils.hasText(value)) {
+                normalized.put(key, value);
+            }
+        }
+        return Collections.unmodifiableMap(normalized);
+    }
+
+
+    /**
+     * Escape the LIKE wildcards so the name filter keeps its "contains" semantics.
+     *
+     * @param value raw filter value
+     * @return escaped value
+     */
+    private static String escapeLikePattern(String value) {
+        StringBuilder escaped = new StringBuilder(value.length());
+        for (char c : value.toCharArray()) {
+            if (c == '%' || c == '_' || c == LIKE_ESCAPE_CHARACTER) {
+                escaped.append(LIKE_ESCAPE_CHARACTER);
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+}
@@ -0,0 +1,67 @@
+package com.sasindu.shoppingcart.repository;
+
+import com.sasindu.shoppingcart.models.RefreshToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * RefreshToken Repository is responsible for handling the database operations related to the refresh tokens
+ */
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, String> {
+
+    /**
+     * Check whether a token was revoked
+     *
+     * @param id String value of the token id
+     * @return true if the token exists and is revoked
+     */
+    boolean existsByIdAndRevokedTrue(String id);
+
+
+    /**
+     * Revoke a token that is not revoked yet, the check and the update are one atomic statement
+     *
+     * @param id         String value of the token id
+     * @param replacedBy String value of the id of the token it is rotated to, null if it is not rotated
+     * @return 1 if the token was revoked, 0 if it does not exist or was already revoked
+     */
+    @Modifying
+    @Query("UPDATE RefreshToken t SET t.revoked = true, t.replacedBy = :replacedBy WHERE t.id = :id AND t.revoked = false")
+    int revokeIfActive(String id, String replacedBy);
+
+
+    /**
+     * Revoke every token of a family
+     *
+     * @param familyId String value of the family id
+     * @return number of revoked tokens
+     */
+    @Modifying
+    @Query("UPDATE RefreshToken t SET t.revoked = true WHERE t.familyId = :familyId AND t.revoked = false")
+    int revokeFamily(String familyId);
+
+
+    /**
+     * Load the ids of the revoked tokens that are not expired yet
+     *
+     * @param now Instant value of the current time
+     * @return List of token ids
+     */
+    @Query("SELECT t.id FROM RefreshToken t WHERE t.revoked = true AND t.expiresAt > :now")
+    List<String> findRevokedIdsExpiringAfter(Instant now);
+
+
+    /**
+     * Delete the expired tokens, an expired token is rejected by its signature check already
+     *
+     * @param now Instant value of the current time
+     * @return number of deleted tokens
+     */
+    @Modifying
+    @Query("DELETE FROM RefreshToken t WHERE t.expiresAt <= :now")
+    int deleteExpired(Instant now);
+}
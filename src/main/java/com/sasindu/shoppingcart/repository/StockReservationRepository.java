@@ -0,0 +1,61 @@
+package com.sasindu.shoppingcart.repository;
+
+import com.sasindu.shoppingcart.models.StockReservation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * StockReservation Repository is responsible for handling the database operations related to the stock reservations
+ */
+public interface StockReservationRepository extends JpaRepository<StockReservation, Long> {
+
+    /**
+     * Insert the reservation of a user for a product, or update its quantity and expiration if it exists
+     *
+     * @param userId    Long value of the user id
+     * @param productId Long value of the product id
+     * @param quantity  int value of the held quantity
+     * @param expiresAt Instant value of the expiration of the hold
+     */
+    @Modifying
+    @Query(value = "INSERT INTO stock_reservations (user_id, product_id, quantity, expires_at) " +
+            "VALUES (:userId, :productId, :quantity, :expiresAt) " +
+            "ON DUPLICATE KEY UPDATE quantity = VALUES(quantity), expires_at = VALUES(expires_at)", nativeQuery = true)
+    void upsert(Long userId, Long productId, int quantity, Instant expiresAt);
+
+
+    /**
+     * Find the reservations that are not expired yet
+     *
+     * @param now Instant value of the current time
+     * @return List of the active reservations
+     */
+    List<StockReservation> findAllByExpiresAtAfter(Instant now);
+
+
+    /**
+     * Delete the reservations of a user for the given products
+     *
+     * @param userId     Long value of the user id
+     * @param productIds Collection of the product ids
+     */
+    @Modifying
+    @Query("DELETE FROM StockReservation r WHERE r.userId = :userId AND r.productId IN :productIds")
+    void deleteByUserIdAndProductIds(Long userId, Collection<Long> productIds);
+
+
+    /**
+     * Delete the expired reservations, in one statement
+     *
+     * @param now Instant value of the current time
+     * @return number of deleted reservations
+     */
+    @Modifying
+    @Query("DELETE FROM StockReservation r WHERE r.expiresAt <= :now")
+    int deleteExpired(Instant now);
+}
@@ -0,0 +1,16 @@
+package com.sasindu.shoppingcart.repository.projections;
+
+
+/**
+ * ImageFileProjection is a read-only view of the file metadata of an image
+ * it is used by the download endpoint, so the product is not loaded to build the response
+ */
+public interface ImageFileProjection {
+    String getFileName();
+
+    String getFileType();
+
+    String getContentHash();
+
+    Long getContentLength();
+}
@@ -3,8 +3,12 @@ package com.sasindu.shoppingcart.security.config;
 import com.sasindu.shoppingcart.constants.ApplicationConstants;
 import com.sasindu.shoppingcart.security.jwt.JWTAuthEntryPoint;
 import com.sasindu.shoppingcart.security.jwt.JWTAuthFilter;
+import com.sasindu.shoppingcart.security.ratelimit.LoginRateLimitFilter;
 import com.sasindu.shoppingcart.security.services.AppUserDetailsService;
+import com.sasindu.shoppingcart.security.services.BoundedPasswordEncoder;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.servlet.server.CookieSameSiteSupplier;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -32,6 +36,20 @@ import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 public class SecurityConfig {
     private final AppUserDetailsService _appUserDetailsService;
     private final JWTAuthEntryPoint _jwtAuthEntryPoint;
+    private final MeterRegistry _meterRegistry;
+    private final LoginRateLimitFilter _loginRateLimitFilter;
+
+    @Value("${security.bcrypt.strength:10}")
+    private int bcryptStrength;
+
+    @Value("${security.bcrypt.max-concurrent:2}")
+    private int bcryptMaxConcurrent;
+
+    @Value("${security.bcrypt.acquire-timeout-ms:1000}")
+    private long bcryptAcquireTimeoutMillis;
+
+    @Value("${security.bcrypt.retry-after-seconds:1}")
+    private long bcryptRetryAfterSeconds;
 
 
     /**
@@ -64,14 +82,21 @@ public class SecurityConfig {
 
 
     /**
-     * Password encoder bean - use BCryptPasswordEncoder
+     * Password encoder bean - use BCryptPasswordEncoder with the configured strength,
+     * with a cap on the number of concurrent hashes (see BoundedPasswordEncoder)
      *
      * @return PasswordEncoder object
      */
     @Bean
     public PasswordEncoder passwordEncoder() {
         try {
-            return new BCryptPasswordEncoder();
+            return new BoundedPasswordEncoder(
+                    new BCryptPasswordEncoder(bcryptStrength),
+                    bcryptMaxConcurrent,
+                    bcryptAcquireTimeoutMillis,
+                    bcryptRetryAfterSeconds,
+                    _meterRegistry
+            );
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
@@ -138,11 +163,13 @@ public class SecurityConfig {
                     .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                     .authorizeHttpRequests(req ->
                             req.requestMatchers(ApplicationConstants.PUBLIC_URLS).permitAll()
+                                    .requestMatchers("/actuator/**").hasRole("ADMIN")
                                     .anyRequest().authenticated()
                     )
                     .exceptionHandling(ex -> ex.authenticationEntryPoint(_jwtAuthEntryPoint))
                     .authenticationProvider(daoAuthenticationProvider())
-                    .addFilterBefore(jwtAuthFilter(), UsernamePasswordAuthenticationFilter.class);
+                    .addFilterBefore(jwtAuthFilter(), UsernamePasswordAuthenticationFilter.class)
+                    .addFilterBefore(_loginRateLimitFilter, JWTAuthFilter.class);
             return httpSecurity.build();
         } catch (Exception e) {
             throw new RuntimeException(e);
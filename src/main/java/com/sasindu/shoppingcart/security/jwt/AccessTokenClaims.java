@@ -0,0 +1,18 @@
+package com.sasindu.shoppingcart.security.jwt;
+
+import lombok.Value;
+
+import java.time.Instant;
+import java.util.List;
+
+
+/**
+ * Verified claims of an access token (see JWTUtils.verifyAndExtract)
+ */
+@Value
+public class AccessTokenClaims {
+    Long userId;
+    String email;
+    List<String> roles;
+    Instant expiresAt;
+}
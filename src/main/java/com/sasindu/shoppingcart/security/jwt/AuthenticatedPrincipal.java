@@ -0,0 +1,78 @@
+package com.sasindu.shoppingcart.security.jwt;
+
+import com.sasindu.shoppingcart.models.AppUser;
+import lombok.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.security.Principal;
+import java.util.List;
+
+
+/**
+ * Principal of an authenticated request, built from the verified access token claims without loading the user
+ * Only the id, email and roles are available, load the AppUser (IAuthService.getAuthenticatedUser) when the
+ * entity itself is needed
+ * The roles are the ones the token was issued with, a change of the roles applies from the next refresh of the
+ * tokens (at the latest when the access token expires)
+ */
+@Value
+public class AuthenticatedPrincipal implements Principal {
+    Long userId;
+    String email;
+    List<String> roles;
+
+
+    /**
+     * Build the principal from the claims of an access token
+     *
+     * @param claims verified access token claims
+     * @return principal
+     */
+    public static AuthenticatedPrincipal fromClaims(AccessTokenClaims claims) {
+        return new AuthenticatedPrincipal(claims.getUserId(), claims.getEmail(), claims.getRoles());
+    }
+
+
+    /**
+     * Build the principal from a loaded user (after a login with credentials)
+     *
+     * @param appUser user
+     * @return principal
+     */
+    public static AuthenticatedPrincipal fromUser(AppUser appUser) {
+        return new AuthenticatedPrincipal(appUser.getId(), appUser.getEmail(), List.of(appUser.getRole().toString()));
+    }
+
+
+    /**
+     * Get the authorities of the principal
+     *
+     * @return List of authorities
+     */
+    public List<GrantedAuthority> getAuthorities() {
+        return roles.stream().<GrantedAuthority>map(SimpleGrantedAuthority::new).toList();
+    }
+
+
+    /**
+     * Check if the principal has the given role
+     *
+     * @param role role name (e.g. ROLE_ADMIN)
+     * @return true if the principal has the role
+     */
+    public boolean hasRole(String role) {
+        return roles.contains(role);
+    }
+
+
+    /**
+     * Get the email of the principal
+     *
+     * @return the email
+     */
+    @Override
+    public String getName() {
+        return email;
+    }
+}
@@ -1,23 +1,27 @@
 package com.sasindu.shoppingcart.security.jwt;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sasindu.shoppingcart.helpers.ErrorResponseHandler;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import org.springframework.http.MediaType;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.web.AuthenticationEntryPoint;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * JWT Authentication Entry Point
  */
 @Component
 public class JWTAuthEntryPoint implements AuthenticationEntryPoint {
+    // the error body is constant, it is serialized once
+    private final byte[] _unauthorizedBody;
+
+    public JWTAuthEntryPoint(ObjectMapper objectMapper) {
+        this._unauthorizedBody = ErrorResponseHandler.serializeError(objectMapper, "Unauthorized");
+    }
 
     /**
      * Commence the request
@@ -35,16 +39,7 @@ public class JWTAuthEntryPoint implements AuthenticationEntryPoint {
             AuthenticationException authException
     ) throws IOException, ServletException {
         try {
-            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
-            response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
-
-            final Map<String, Object> body = new HashMap<>();
-            body.put("error", "Unauthorized");
-            body.put("message", null);
-            body.put("data", null);
-
-            final ObjectMapper mapper = new ObjectMapper();
-            mapper.writeValue(response.getOutputStream(), body);
+            ErrorResponseHandler.writeError(response, HttpServletResponse.SC_UNAUTHORIZED, _unauthorizedBody);
         } catch (Exception e) {
             throw new RuntimeException(e.getMessage());
         }
@@ -1,38 +1,61 @@
 package com.sasindu.shoppingcart.security.jwt;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sasindu.shoppingcart.constants.ApplicationConstants;
+import com.sasindu.shoppingcart.helpers.ErrorResponseHandler;
 import com.sasindu.shoppingcart.helpers.HelperUtilStaticMethods;
-import com.sasindu.shoppingcart.security.services.AppUserDetailsService;
 import io.jsonwebtoken.JwtException;
 import jakarta.annotation.Nullable;
+import jakarta.annotation.PostConstruct;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.MediaType;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.PathContainer;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
 
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
+import java.util.List;
 
 
 @Component
 
 public class JWTAuthFilter extends OncePerRequestFilter {
+    // public url patterns, parsed once
+    private static final List<PathPattern> PUBLIC_URL_PATTERNS = Arrays.stream(ApplicationConstants.PUBLIC_URLS)
+            .map(PathPatternParser.defaultInstance::parse)
+            .toList();
+
     @Autowired
     private JWTUtils _jwtUtils;
 
     @Autowired
-    private AppUserDetailsService _appUserDetailsService;
+    private ObjectMapper _objectMapper;
+
+    // the error bodies are constant, they are serialized once
+    private byte[] _unauthorizedBody;
+    private byte[] _internalServerErrorBody;
+
+
+    /**
+     * Serialize the error bodies
+     */
+    @PostConstruct
+    public void init() {
+        _unauthorizedBody = ErrorResponseHandler.serializeError(_objectMapper, "Unauthorized access");
+        _internalServerErrorBody = ErrorResponseHandler.serializeError(_objectMapper, "Internal server error");
+    }
+
 
     /**
      * Do filter internal
@@ -54,57 +77,39 @@ public class JWTAuthFilter extends OncePerRequestFilter {
                 throw new RuntimeException("Request, response or filter chain is null");
             }
 
-            // Get the requested URL
-//            String requestURI = request.getRequestURI();
-
-            // Check if the URL is public and bypass token validation
-//            if (Arrays.stream(ApplicationConstants.PUBLIC_URLS).anyMatch(requestURI::startsWith)) {
-//                filterChain.doFilter(request, response);
-//                return;
-//            }
-
-            // Get the access token from the request, if it is not valid, then continue
+            // Get the access token from the request, if there is none, then continue
             String accessToken = HelperUtilStaticMethods.getCookieFromRequest(request, "access");
-            if (!StringUtils.hasText(accessToken) || !_jwtUtils.isAccessTokenValid(accessToken)) {
+            if (!StringUtils.hasText(accessToken)) {
                 filterChain.doFilter(request, response);
                 return;
             }
 
-            String email = _jwtUtils.getEmailFromAccessToken(accessToken);
-            UserDetails userDetails = _appUserDetailsService.loadUserByUsername(email);
-            Authentication authentication = new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
-            SecurityContextHolder.getContext().setAuthentication(authentication);
-        } catch (JwtException | UsernameNotFoundException e) {
-            assert response != null;
-
-            // Construct JSON response
-            Map<String, Object> errorResponse = new HashMap<>();
-            errorResponse.put("message", null);
-            errorResponse.put("data", null);
-
-            if (e instanceof JwtException) {
-                response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
-                errorResponse.put("error", "Unauthorized access");
-            } else {
-                response.setStatus(HttpServletResponse.SC_NOT_FOUND);
-                errorResponse.put("error", "User not found");
+            // Public reads do not need the principal: the token is not verified, the principal is only set when the
+            // token was already verified (verified token cache), and a stale or invalid token is ignored
+            if (isPublicRead(request)) {
+                AccessTokenClaims claims = _jwtUtils.getVerifiedClaimsIfCached(accessToken);
+                if (claims != null) {
+                    AuthenticatedPrincipal principal = AuthenticatedPrincipal.fromClaims(claims);
+                    SecurityContextHolder.getContext().setAuthentication(
+                            new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities())
+                    );
+                }
+                filterChain.doFilter(request, response);
+                return;
             }
-            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
 
-            // Convert to JSON and write response
-            ObjectMapper objectMapper = new ObjectMapper();
-            response.getWriter().write(objectMapper.writeValueAsString(errorResponse));
+            // Verify the token and read its claims in one parse
+            // the principal is built from the claims, the user is not loaded from the database
+            AuthenticatedPrincipal principal = AuthenticatedPrincipal.fromClaims(_jwtUtils.verifyAndExtract(accessToken));
+            Authentication authentication = new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities());
+            SecurityContextHolder.getContext().setAuthentication(authentication);
+        } catch (JwtException e) {
+            assert response != null;
+            ErrorResponseHandler.writeError(response, HttpServletResponse.SC_UNAUTHORIZED, _unauthorizedBody);
             return;
         } catch (Exception e) {
             if (response != null) {
-                Map<String, Object> errorResponse = new HashMap<>();
-                errorResponse.put("message", null);
-                errorResponse.put("data", null);
-                errorResponse.put("error", "Internal server error");
-                response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
-                response.setContentType(MediaType.APPLICATION_JSON_VALUE);
-                ObjectMapper objectMapper = new ObjectMapper();
-                response.getWriter().write(objectMapper.writeValueAsString(errorResponse));
+                ErrorResponseHandler.writeError(response, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, _internalServerErrorBody);
                 return;
             } else {
                 throw new RuntimeException(e);
@@ -112,4 +117,25 @@ public class JWTAuthFilter extends OncePerRequestFilter {
         }
         filterChain.doFilter(request, response);
     }
+
+
+    /**
+     * Check whether the request is a read (GET or HEAD) of a public url
+     *
+     * @param request request
+     * @return true if the request is a public read
+     */
+    private static boolean isPublicRead(HttpServletRequest request) {
+        String method = request.getMethod();
+        if (!HttpMethod.GET.matches(method) && !HttpMethod.HEAD.matches(method)) {
+            return false;
+        }
+        PathContainer path = PathContainer.parsePath(request.getRequestURI().substring(request.getContextPath().length()));
+        for (PathPattern pattern : PUBLIC_URL_PATTERNS) {
+            if (pattern.matches(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
@@ -0,0 +1,95 @@
+package com.sasindu.shoppingcart.security.jwt;
+
+import com.sasindu.shoppingcart.helpers.HelperUtilStaticMethods;
+import io.jsonwebtoken.Header;
+import io.jsonwebtoken.ProtectedHeader;
+import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SecurityException;
+
+import javax.crypto.SecretKey;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Immutable set of the HMAC keys of one token type
+ * New tokens are signed with the current key and carry its id (kid header), the previous keys are still accepted
+ * for verification, so a secret can be rotated without invalidating the tokens signed with the old one.
+ * The key id is derived from the secret (first 8 bytes of its SHA-256), it does not reveal the secret.
+ */
+final class JWTKeyRing {
+    private final String _currentKeyId;
+    private final SecretKey _currentKey;
+    private final Map<String, SecretKey> _keys;
+
+    private JWTKeyRing(String currentKeyId, SecretKey currentKey, Map<String, SecretKey> keys) {
+        this._currentKeyId = currentKeyId;
+        this._currentKey = currentKey;
+        this._keys = Map.copyOf(keys);
+    }
+
+
+    /**
+     * Build the key ring from hex encoded secrets
+     *
+     * @param currentSecret   secret used to sign new tokens
+     * @param previousSecrets secrets of rotated keys, only used to verify tokens
+     * @return key ring
+     */
+    static JWTKeyRing of(String currentSecret, List<String> previousSecrets) {
+        Map<String, SecretKey> keys = new HashMap<>();
+        for (String secret : previousSecrets) {
+            byte[] bytes = HelperUtilStaticMethods.hexStringToByteArray(secret);
+            keys.put(keyId(bytes), Keys.hmacShaKeyFor(bytes));
+        }
+        byte[] currentBytes = HelperUtilStaticMethods.hexStringToByteArray(currentSecret);
+        String currentKeyId = keyId(currentBytes);
+        SecretKey currentKey = Keys.hmacShaKeyFor(currentBytes);
+        keys.put(currentKeyId, currentKey);
+        return new JWTKeyRing(currentKeyId, currentKey, keys);
+    }
+
+
+    String currentKeyId() {
+        return _currentKeyId;
+    }
+
+
+    SecretKey currentKey() {
+        return _currentKey;
+    }
+
+
+    /**
+     * Find the verification key of a token from its header
+     * tokens issued before key ids were added have no kid and are verified with the current key
+     *
+     * @param header header of the token
+     * @return verification key
+     */
+    SecretKey locate(Header header) {
+        String keyId = header instanceof ProtectedHeader protectedHeader ? protectedHeader.getKeyId() : null;
+        if (keyId == null) {
+            return _currentKey;
+        }
+        SecretKey key = _keys.get(keyId);
+        if (key == null) {
+            throw new SecurityException("Unknown signing key");
+        }
+        return key;
+    }
+
+
+    private static String keyId(byte[] secret) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(secret);
+            return HexFormat.of().formatHex(digest, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -1,33 +1,62 @@
 package com.sasindu.shoppingcart.security.jwt;
 
-import com.sasindu.shoppingcart.helpers.HelperUtilStaticMethods;
+import com.sasindu.shoppingcart.cache.VerifiedTokenCache;
 import com.sasindu.shoppingcart.models.AppUser;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.InvalidKeyException;
-import io.jsonwebtoken.security.Keys;
-import io.jsonwebtoken.security.SecurityException;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
 
-import javax.crypto.SecretKey;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
 
 @Component
+@RequiredArgsConstructor
 public class JWTUtils {
+    private final VerifiedTokenCache _verifiedTokenCache;
+
     @Value("${jwt.access.secret}")
     private String accessTokenSecret;
 
+    @Value("${jwt.access.previous-secrets:}")
+    private List<String> accessTokenPreviousSecrets;
+
     @Value("${jwt.access.expiration.minutes}")
     private String accessTokenExpirationMinutes;
 
     @Value("${jwt.refresh.secret}")
     private String refreshTokenSecret;
 
+    @Value("${jwt.refresh.previous-secrets:}")
+    private List<String> refreshTokenPreviousSecrets;
+
     @Value("${jwt.refresh.expiration.days}")
     private String refreshTokenExpirationDays;
 
+    // keys are decoded once, the parsers are immutable and thread safe, and look the key up on every parse.
+    // Keys are rotated with a restart: the replaced secret moves to jwt.*.previous-secrets, so the tokens signed
+    // with it stay valid until they expire
+    private JWTKeyRing _accessKeys;
+    private JWTKeyRing _refreshKeys;
+    private final JwtParser _accessTokenParser = Jwts.parser().keyLocator(header -> _accessKeys.locate(header)).build();
+    private final JwtParser _refreshTokenParser = Jwts.parser().keyLocator(header -> _refreshKeys.locate(header)).build();
+
+
+    /**
+     * Build the key rings from the configured secrets
+     */
+    @PostConstruct
+    public void init() {
+        _accessKeys = JWTKeyRing.of(accessTokenSecret, nonBlank(accessTokenPreviousSecrets));
+        _refreshKeys = JWTKeyRing.of(refreshTokenSecret, nonBlank(refreshTokenPreviousSecrets));
+    }
+
 
     /**
      * Get the Access Token for the given user
@@ -44,7 +73,7 @@ public class JWTUtils {
             );
             long expire = Long.parseLong(accessTokenExpirationMinutes) * 60 * 1000; // minutes to milliseconds
             String subject = appUser.getUsername();
-            return generateToken(subject, claims, expire, accessKey());
+            return generateToken(subject, null, claims, Instant.now().plusMillis(expire), _accessKeys);
         } catch (Exception e) {
             throw new RuntimeException(e.getMessage());
         }
@@ -53,18 +82,22 @@ public class JWTUtils {
 
     /**
      * Get the Refresh Token for the given user
+     * every refresh token has its own id (jti) and the id of its family (the chain of tokens rotated from one login)
      *
-     * @param appUser user
+     * @param appUser   user
+     * @param tokenId   id of the token (jti), see RefreshToken
+     * @param familyId  id of the token family
+     * @param expiresAt expiration of the token
      * @return refresh token
      */
-    public String generateRefreshToken(AppUser appUser) {
+    public String generateRefreshToken(AppUser appUser, String tokenId, String familyId, Instant expiresAt) {
         try {
             Map<String, Object> claims = Map.of(
-                    "userId", appUser.getId()
+                    "userId", appUser.getId(),
+                    "family", familyId
             );
-            long expire = Long.parseLong(refreshTokenExpirationDays) * 24 * 60 * 60 * 1000; // days to milliseconds
             String subject = appUser.getId().toString();
-            return generateToken(subject, claims, expire, refreshKey());
+            return generateToken(subject, tokenId, claims, expiresAt, _refreshKeys);
         } catch (Exception e) {
             throw new RuntimeException(e.getMessage());
         }
@@ -72,85 +105,112 @@ public class JWTUtils {
 
 
     /**
-     * Validate the given access token
+     * Get the expiration of a refresh token issued now
      *
-     * @param token access token
-     * @return if valid -> true, else -> false
+     * @return expiration of the refresh token
      */
-    public boolean isAccessTokenValid(String token) {
-        try {
-            return isTokenValid(token, accessKey());
-        } catch (Exception e) {
-            throw new RuntimeException(e.getMessage());
-        }
+    public Instant getRefreshTokenExpiration() {
+        return Instant.now().plus(Duration.ofDays(Long.parseLong(refreshTokenExpirationDays)));
     }
 
 
     /**
-     * Validate the given refresh token
+     * Verify the given access token and extract its claims, the token is parsed and its signature checked once
+     * tokens that were already verified are served from the verified token cache until they expire
      *
-     * @param token refresh token
-     * @return if valid -> true, else -> false
+     * @param token access token
+     * @return claims of the token
+     * @throws JwtException if the token is invalid or expired
      */
-    public boolean isRefreshTokenValid(String token) {
-        try {
-            return isTokenValid(token, refreshKey());
-        } catch (Exception e) {
-            throw new RuntimeException(e.getMessage());
-        }
+    public AccessTokenClaims verifyAndExtract(String token) {
+        return _verifiedTokenCache.get(token, this::parseAccessToken);
     }
 
 
     /**
-     * Validate the given access token and get the email
+     * Get the claims of an access token only if it was already verified (verified token cache), the token is not parsed
      *
      * @param token access token
-     * @return email
+     * @return claims of the token, or null if it was not verified yet or is expired
      */
-    public String getEmailFromAccessToken(String token) {
+    public AccessTokenClaims getVerifiedClaimsIfCached(String token) {
+        return _verifiedTokenCache.getIfPresent(token);
+    }
+
+
+    /**
+     * Verify the given refresh token and extract its claims
+     * the token is only checked for its signature and expiration, whether it was revoked is checked by IRefreshTokenService
+     *
+     * @param token refresh token
+     * @return claims of the token
+     * @throws JwtException if the token is invalid or expired
+     */
+    public RefreshTokenClaims verifyRefreshToken(String token) {
         try {
-            Claims claims = getClaimsFromToken(token, accessKey());
-            return claims.getSubject();
+            Claims claims = getClaimsFromToken(token, _refreshTokenParser);
+            return new RefreshTokenClaims(
+                    Long.parseLong(claims.getSubject()),
+                    claims.getId(),
+                    claims.get("family", String.class),
+                    claims.getExpiration().toInstant()
+            );
+        } catch (JwtException e) {
+            throw e;
         } catch (Exception e) {
             throw new RuntimeException(e.getMessage());
         }
     }
 
+    //! PRIVATE METHODS >>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>//
 
     /**
-     * Validate the given refresh token and get the user id
+     * Verify the given access token and extract its claims
      *
-     * @param token refresh token
-     * @return user id in String
+     * @param token access token
+     * @return claims of the token
+     * @throws JwtException if the token is invalid or expired
      */
-    public Long getUserIdFromRefreshToken(String token) {
+    private AccessTokenClaims parseAccessToken(String token) {
         try {
-            Claims claims = getClaimsFromToken(token, refreshKey());
-            return Long.parseLong(claims.getSubject());
+            Claims claims = _accessTokenParser.parseSignedClaims(token).getPayload();
+            List<?> roles = claims.get("roles", List.class);
+            return new AccessTokenClaims(
+                    claims.get("userId", Long.class),
+                    claims.getSubject(),
+                    roles == null ? List.of() : roles.stream().map(String::valueOf).toList(),
+                    claims.getExpiration().toInstant()
+            );
+        } catch (JwtException e) {
+            throw e;
+        } catch (IllegalArgumentException e) {
+            throw new JwtException(e.getMessage());
         } catch (Exception e) {
             throw new RuntimeException(e.getMessage());
         }
     }
 
-    //! PRIVATE METHODS >>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>//
 
     /**
-     * Generate the token with the given subject, claims, expire, and secret
+     * Generate the token with the given subject, claims, expire, and keys
      *
-     * @param subject subject of the token
-     * @param claims  claims of the token
-     * @param expire  expire time of the token
-     * @param secret  secret key of the token
+     * @param subject   subject of the token
+     * @param tokenId   id of the token (jti), null for none
+     * @param claims    claims of the token
+     * @param expiresAt expiration of the token
+     * @param keys      key ring of the token type, the token is signed with its current key
      * @return token
      */
-    private String generateToken(String subject, Map<String, Object> claims, long expire, SecretKey secret) {
+    private String generateToken(String subject, String tokenId, Map<String, Object> claims, Instant expiresAt, JWTKeyRing keys) {
         try {
             return Jwts.builder()
+                    .header().keyId(keys.currentKeyId()).and()
                     .subject(subject)
+                    .id(tokenId)
                     .claims(claims)
                     .issuedAt(new Date(System.currentTimeMillis()))
-                    .expiration(new Date(System.currentTimeMillis() + expire))
-                    .signWith(secret)
+                    .expiration(Date.from(expiresAt))
+                    .signWith(keys.currentKey())
                     .compact();
         } catch (InvalidKeyException e) {
             throw new RuntimeException(e.getMessage());
@@ -159,63 +219,32 @@ public class JWTUtils {
 
 
     /**
-     * Generate the secret key for the access token
-     *
-     * @return SecretKey
-     */
-    private SecretKey accessKey() {
-        return Keys.hmacShaKeyFor(HelperUtilStaticMethods.hexStringToByteArray(accessTokenSecret));
-    }
-
-
-    /**
-     * Generate the secret key for the refresh token
-     *
-     * @return SecretKey
-     */
-    private SecretKey refreshKey() {
-        return Keys.hmacShaKeyFor(HelperUtilStaticMethods.hexStringToByteArray(refreshTokenSecret));
-    }
-
-
-    /**
-     * Validate the given token with the secret key
+     * Get the claims from the given token
      *
      * @param token  token
-     * @param secret secret key
-     * @return if valid -> true, else -> false
+     * @param parser parser of the token type
+     * @return claims
      */
-    private boolean isTokenValid(String token, SecretKey secret) {
+    private Claims getClaimsFromToken(String token, JwtParser parser) {
         try {
-            Jwts.parser().verifyWith(secret).build().parse(token);
-            return true;
-        } catch (ExpiredJwtException | MalformedJwtException | SecurityException | IllegalArgumentException e) {
+            return parser
+                    .parseSignedClaims(token)
+                    .getPayload();
+        } catch (JwtException e) {
             throw new JwtException(e.getMessage());
         } catch (Exception e) {
             throw new RuntimeException(e.getMessage());
         }
-
     }
 
 
     /**
-     * Get the claims from the given token
+     * Drop the blank entries of a configured secret list (an empty property is bound as a list with one blank entry)
      *
-     * @param token  token
-     * @param secret secret key
-     * @return claims
+     * @param secrets configured secrets
+     * @return non blank secrets
      */
-    private Claims getClaimsFromToken(String token, SecretKey secret) {
-        try {
-            return Jwts.parser()
-                    .verifyWith(secret)
-                    .build()
-                    .parseSignedClaims(token)
-                    .getPayload();
-        } catch (JwtException e) {
-            throw new JwtException(e.getMessage());
-        } catch (Exception e) {
-            throw new RuntimeException(e.getMessage());
-        }
+    private static List<String> nonBlank(List<String> secrets) {
+        return secrets == null ? List.of() : secrets.stream().filter(StringUtils::hasText).map(String::trim).toList();
     }
 }
@@ -0,0 +1,18 @@
+package com.sasindu.shoppingcart.security.jwt;
+
+import lombok.Value;
+
+import java.time.Instant;
+
+
+/**
+ * Verified claims of a refresh token (see JWTUtils.verifyRefreshToken)
+ * the token and family ids are null for tokens issued before refresh tokens were tracked
+ */
+@Value
+public class RefreshTokenClaims {
+    Long userId;
+    String tokenId;
+    String familyId;
+    Instant expiresAt;
+}
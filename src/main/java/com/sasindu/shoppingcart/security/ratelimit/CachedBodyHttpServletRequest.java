@@ -0,0 +1,119 @@
+package com.sasindu.shoppingcart.security.ratelimit;
+
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+
+/**
+ * Request wrapper that reads the beginning of the body ahead (at most `limit` bytes) so a filter can inspect it,
+ * and replays it followed by the rest of the original body to the controller
+ */
+class CachedBodyHttpServletRequest extends HttpServletRequestWrapper {
+    private final byte[] _head;
+    private final boolean _complete;
+    private ServletInputStream _inputStream;
+
+    CachedBodyHttpServletRequest(HttpServletRequest request, int limit) throws IOException {
+        super(request);
+        byte[] head = request.getInputStream().readNBytes(limit + 1);
+        this._complete = head.length <= limit;
+        this._head = head;
+    }
+
+
+    /**
+     * @return the whole body, or null if it is longer than the limit
+     */
+    byte[] getBody() {
+        return _complete ? _head : null;
+    }
+
+
+    @Override
+    public ServletInputStream getInputStream() throws IOException {
+        if (_inputStream == null) {
+            _inputStream = new ReplayingInputStream(_complete ? null : super.getInputStream());
+        }
+        return _inputStream;
+    }
+
+
+    @Override
+    public BufferedReader getReader() throws IOException {
+        Charset charset = getCharacterEncoding() == null ? StandardCharsets.UTF_8 : Charset.forName(getCharacterEncoding());
+        return new BufferedReader(new InputStreamReader(getInputStream(), charset));
+    }
+
+
+    /**
+     * Stream of the read-ahead head followed by the rest of the original body (none when the body is complete)
+     * a complete body is in memory, so it is always ready and a read listener is notified immediately
+     */
+    private final class ReplayingInputStream extends ServletInputStream {
+        private final ByteArrayInputStream _headStream = new ByteArrayInputStream(_head);
+        private final ServletInputStream _rest;
+        private boolean _finished;
+
+        ReplayingInputStream(ServletInputStream rest) {
+            this._rest = rest;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int value = _headStream.read();
+            if (value == -1 && _rest != null) {
+                value = _rest.read();
+            }
+            _finished = value == -1;
+            return value;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int count = _headStream.read(buffer, offset, length);
+            if (count == -1 && _rest != null) {
+                count = _rest.read(buffer, offset, length);
+            }
+            _finished = count == -1;
+            return count;
+        }
+
+        @Override
+        public boolean isFinished() {
+            return _finished || (_rest == null && _headStream.available() == 0);
+        }
+
+        @Override
+        public boolean isReady() {
+            return _headStream.available() > 0 || _rest == null || _rest.isReady();
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            if (_rest != null) {
+                // the container notifies the listener as the rest of the body arrives, its reads start with the head
+                _rest.setReadListener(readListener);
+                return;
+            }
+            try {
+                if (!isFinished()) {
+                    readListener.onDataAvailable();
+                }
+                if (isFinished()) {
+                    readListener.onAllDataRead();
+                }
+            } catch (IOException e) {
+                readListener.onError(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.sasindu.shoppingcart.security.ratelimit;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sasindu.shoppingcart.helpers.ErrorResponseHandler;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.Nullable;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+
+
+/**
+ * Rate limit the login and refresh endpoints before the request reaches the controller
+ * (and so before any password hash or database lookup).
+ * Login requests are limited by client IP and by the email of the body, refresh requests by client IP.
+ * Rejected requests get a 429 with Retry-After, they are counted in the auth.rate-limit.rejections metric.
+ * <p>
+ * The client IP is the remote address of the request, behind a proxy set server.forward-headers-strategy
+ * so that it is the address of the client instead of the proxy.
+ */
+@Component
+public class LoginRateLimitFilter extends OncePerRequestFilter {
+    private static final int MAXIMUM_LOGIN_BODY_BYTES = 4096;
+
+    private final LoginRateLimiter _loginRateLimiter;
+    private final ObjectMapper _objectMapper;
+    private final String _loginPath;
+    private final String _refreshPath;
+    private final Counter _loginIpRejections;
+    private final Counter _loginEmailRejections;
+    private final Counter _refreshIpRejections;
+    // the error body is constant, it is serialized once
+    private final byte[] _tooManyRequestsBody;
+
+    public LoginRateLimitFilter(
+            LoginRateLimiter loginRateLimiter,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${api.prefix}") String apiPrefix
+    ) {
+        this._loginRateLimiter = loginRateLimiter;
+        this._objectMapper = objectMapper;
+        this._loginPath = apiPrefix + "/auth/login";
+        this._refreshPath = apiPrefix + "/auth/refresh-tokens";
+        this._loginIpRejections = rejectionCounter(meterRegistry, "login", "ip");
+        this._loginEmailRejections = rejectionCounter(meterRegistry, "login", "email");
+        this._refreshIpRejections = rejectionCounter(meterRegistry, "refresh", "ip");
+        this._tooManyRequestsBody = ErrorResponseHandler.serializeError(objectMapper, "Too many requests, please retry later");
+    }
+
+
+    /**
+     * Only the login and refresh endpoints are rate limited
+     *
+     * @param request request
+     * @return true if the request is not rate limited
+     */
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        return !path.equals(_loginPath) && !path.equals(_refreshPath);
+    }
+
+
+    /**
+     * Do filter internal
+     *
+     * @param request     request
+     * @param response    response
+     * @param filterChain filter chain
+     * @throws ServletException if there is an error
+     * @throws IOException      if there is an error
+     */
+    @Override
+    protected void doFilterInternal(
+            @Nullable HttpServletRequest request,
+            @Nullable HttpServletResponse response,
+            @Nullable FilterChain filterChain
+    ) throws ServletException, IOException {
+        if (request == null || response == null || filterChain == null) {
+            throw new RuntimeException("Request, response or filter chain is null");
+        }
+
+        boolean isLogin = request.getRequestURI().equals(_loginPath);
+
+        // 1. Limit by client IP
+        Duration retryAfter = _loginRateLimiter.tryAcquireForIp(request.getRemoteAddr());
+        if (!retryAfter.isZero()) {
+            (isLogin ? _loginIpRejections : _refreshIpRejections).increment();
+            reject(response, retryAfter);
+            return;
+        }
+
+        // 2. Limit the login by email, the body is read ahead and replayed to the controller
+        if (isLogin && "POST".equals(request.getMethod())) {
+            CachedBodyHttpServletRequest cachedRequest = new CachedBodyHttpServletRequest(request, MAXIMUM_LOGIN_BODY_BYTES);
+            String email = readEmail(cachedRequest.getBody());
+            if (email != null) {
+                retryAfter = _loginRateLimiter.tryAcquireForEmail(email);
+                if (!retryAfter.isZero()) {
+                    _loginEmailRejections.increment();
+                    reject(response, retryAfter);
+                    return;
+                }
+            }
+            filterChain.doFilter(cachedRequest, response);
+            return;
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+
+    /**
+     * Read the email of a login body, the controller reports invalid bodies
+     *
+     * @param body body of the login request, null if it was too long to be read ahead
+     * @return the email or null if there is none
+     */
+    private String readEmail(byte[] body) {
+        if (body == null || body.length == 0) {
+            return null;
+        }
+        try {
+            JsonNode email = _objectMapper.readTree(body).get("email");
+            return email != null && email.isTextual() && StringUtils.hasText(email.asText()) ? email.asText() : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+
+    private void reject(HttpServletResponse response, Duration retryAfter) throws IOException {
+        // round up, a Retry-After of 0 would invite an immediate retry
+        long retryAfterSeconds = Math.max(1, (retryAfter.toMillis() + 999) / 1000);
+
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        ErrorResponseHandler.writeError(response, HttpStatus.TOO_MANY_REQUESTS.value(), _tooManyRequestsBody);
+    }
+
+
+    private static Counter rejectionCounter(MeterRegistry meterRegistry, String endpoint, String key) {
+        return Counter.builder("auth.rate-limit.rejections")
+                .description("Requests rejected by the login rate limiter")
+                .tag("endpoint", endpoint)
+                .tag("key", key)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,106 @@
+package com.sasindu.shoppingcart.security.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * In-memory rate limiter of the login and refresh endpoints, keyed by client IP and by email.
+ * Every key has a token bucket of `burst` requests refilled at `requests-per-minute`. A bucket is a single AtomicLong
+ * (GCRA, the theoretical arrival time of the next request) updated with compare-and-set, so requests never lock.
+ * The buckets are kept in bounded caches (security.rate-limit.max-keys), an idle bucket is dropped once it would be
+ * full again, which makes dropping it equivalent to keeping it.
+ */
+@Component
+public class LoginRateLimiter {
+    private final Cache<String, TokenBucket> _ipBuckets;
+    private final Cache<String, TokenBucket> _emailBuckets;
+    private final long _ipIntervalNanos;
+    private final long _ipToleranceNanos;
+    private final long _emailIntervalNanos;
+    private final long _emailToleranceNanos;
+
+    public LoginRateLimiter(
+            @Value("${security.rate-limit.ip.requests-per-minute:30}") long ipRequestsPerMinute,
+            @Value("${security.rate-limit.ip.burst:10}") long ipBurst,
+            @Value("${security.rate-limit.email.requests-per-minute:5}") long emailRequestsPerMinute,
+            @Value("${security.rate-limit.email.burst:5}") long emailBurst,
+            @Value("${security.rate-limit.max-keys:100000}") long maxKeys,
+            MeterRegistry meterRegistry
+    ) {
+        this._ipIntervalNanos = TimeUnit.MINUTES.toNanos(1) / ipRequestsPerMinute;
+        this._ipToleranceNanos = _ipIntervalNanos * ipBurst;
+        this._emailIntervalNanos = TimeUnit.MINUTES.toNanos(1) / emailRequestsPerMinute;
+        this._emailToleranceNanos = _emailIntervalNanos * emailBurst;
+        this._ipBuckets = build(_ipToleranceNanos, maxKeys);
+        this._emailBuckets = build(_emailToleranceNanos, maxKeys);
+
+        CaffeineCacheMetrics.monitor(meterRegistry, _ipBuckets, "auth.rate-limit.ip-buckets");
+        CaffeineCacheMetrics.monitor(meterRegistry, _emailBuckets, "auth.rate-limit.email-buckets");
+    }
+
+
+    /**
+     * Take a request from the bucket of a client IP
+     *
+     * @param ip address of the client
+     * @return Duration to wait before the next request is allowed, zero if this request is allowed
+     */
+    public Duration tryAcquireForIp(String ip) {
+        return _ipBuckets.get(ip, key -> new TokenBucket())
+                .tryAcquire(System.nanoTime(), _ipIntervalNanos, _ipToleranceNanos);
+    }
+
+
+    /**
+     * Take a request from the bucket of an email (case-insensitive)
+     *
+     * @param email email of the login request
+     * @return Duration to wait before the next request is allowed, zero if this request is allowed
+     */
+    public Duration tryAcquireForEmail(String email) {
+        return _emailBuckets.get(email.trim().toLowerCase(Locale.ROOT), key -> new TokenBucket())
+                .tryAcquire(System.nanoTime(), _emailIntervalNanos, _emailToleranceNanos);
+    }
+
+
+    private static Cache<String, TokenBucket> build(long refillNanos, long maxKeys) {
+        return Caffeine.newBuilder()
+                .expireAfterAccess(Duration.ofNanos(refillNanos))
+                .maximumSize(maxKeys)
+                .recordStats()
+                .build();
+    }
+
+
+    /**
+     * Token bucket stored as the theoretical arrival time (TAT) of the next request (GCRA).
+     * A request is allowed when it does not push the TAT more than the tolerance (burst * interval) past now.
+     */
+    static final class TokenBucket {
+        // created buckets start full
+        private final AtomicLong _theoreticalArrivalTime = new AtomicLong(Long.MIN_VALUE);
+
+        Duration tryAcquire(long now, long intervalNanos, long toleranceNanos) {
+            while (true) {
+                long theoreticalArrivalTime = _theoreticalArrivalTime.get();
+                long next = (theoreticalArrivalTime == Long.MIN_VALUE ? now : Math.max(theoreticalArrivalTime, now)) + intervalNanos;
+                if (next - now > toleranceNanos) {
+                    return Duration.ofNanos(next - now - toleranceNanos);
+                }
+                if (_theoreticalArrivalTime.compareAndSet(theoreticalArrivalTime, next)) {
+                    return Duration.ZERO;
+                }
+            }
+        }
+    }
+}
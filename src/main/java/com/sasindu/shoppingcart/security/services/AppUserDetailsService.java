@@ -1,6 +1,7 @@
 package com.sasindu.shoppingcart.security.services;
 
 
+import com.sasindu.shoppingcart.cache.UserCache;
 import com.sasindu.shoppingcart.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -14,10 +15,11 @@ import java.util.Optional;
 @RequiredArgsConstructor
 public class AppUserDetailsService implements UserDetailsService {
     private final UserRepository _userRepository;
+    private final UserCache _userCache;
 
 
     /**
-     * Load the user by email
+     * Load the user by email, through the user cache
      *
      * @param email email
      * @return user
@@ -26,7 +28,7 @@ public class AppUserDetailsService implements UserDetailsService {
     @Override
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
         try {
-            return Optional.ofNullable(_userRepository.findByEmail(email))
+            return Optional.ofNullable(_userCache.getByEmail(email, _userRepository::findByEmail))
                     .orElseThrow(() -> new UsernameNotFoundException("User not found"));
         } catch (RuntimeException e) {
             throw e;
@@ -0,0 +1,81 @@
+package com.sasindu.shoppingcart.security.services;
+
+import com.sasindu.shoppingcart.exceptions.ServiceUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+
+/**
+ * PasswordEncoder that caps the number of hashes and verifications of the delegate (BCrypt) running at the same time
+ * <p>
+ * The hash still runs on the request thread, the encoder only limits how many request threads hash at once, so a
+ * burst of logins or registrations cannot take every CPU away from the other requests. A request waits at most
+ * `acquireTimeoutMillis` for a permit, then fails fast with a ServiceUnavailableException (503 with Retry-After).
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder {
+    private final PasswordEncoder _delegate;
+    private final int _maxConcurrent;
+    private final Semaphore _permits;
+    private final long _acquireTimeoutMillis;
+    private final long _retryAfterSeconds;
+    private final Counter _rejections;
+
+    public BoundedPasswordEncoder(PasswordEncoder delegate, int maxConcurrent, long acquireTimeoutMillis, long retryAfterSeconds, MeterRegistry meterRegistry) {
+        this._delegate = delegate;
+        this._maxConcurrent = maxConcurrent;
+        this._permits = new Semaphore(maxConcurrent);
+        this._acquireTimeoutMillis = acquireTimeoutMillis;
+        this._retryAfterSeconds = retryAfterSeconds;
+        this._rejections = Counter.builder("password.encoder.rejections").register(meterRegistry);
+        Gauge.builder("password.encoder.active", _permits, permits -> _maxConcurrent - permits.availablePermits())
+                .register(meterRegistry);
+    }
+
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return run(() -> _delegate.encode(rawPassword));
+    }
+
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return run(() -> _delegate.matches(rawPassword, encodedPassword));
+    }
+
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return _delegate.upgradeEncoding(encodedPassword);
+    }
+
+
+    /**
+     * Run the task on the calling thread once a permit is available
+     *
+     * @throws ServiceUnavailableException if no permit is available within the timeout
+     */
+    private <T> T run(Supplier<T> task) {
+        try {
+            if (!_permits.tryAcquire(_acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                _rejections.increment();
+                throw new ServiceUnavailableException("Too many authentication requests, please retry later", _retryAfterSeconds);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("Authentication was interrupted, please retry later", _retryAfterSeconds);
+        }
+
+        try {
+            return task.get();
+        } finally {
+            _permits.release();
+        }
+    }
+}
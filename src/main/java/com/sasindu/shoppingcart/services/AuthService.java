@@ -4,6 +4,8 @@ import com.sasindu.shoppingcart.abstractions.dto.request.auth.LoginRequestDto;
 import com.sasindu.shoppingcart.abstractions.dto.request.user.RegisterRequestDto;
 import com.sasindu.shoppingcart.abstractions.enums.AppUserRole;
 import com.sasindu.shoppingcart.abstractions.interfaces.IAuthService;
+import com.sasindu.shoppingcart.abstractions.interfaces.IRefreshTokenService;
+import com.sasindu.shoppingcart.cache.UserCache;
 import com.sasindu.shoppingcart.exceptions.BadRequestException;
 import com.sasindu.shoppingcart.exceptions.ForbiddenException;
 import com.sasindu.shoppingcart.exceptions.UnAuthorizedException;
@@ -12,7 +14,10 @@ import com.sasindu.shoppingcart.models.AppUser;
 import com.sasindu.shoppingcart.models.Cart;
 import com.sasindu.shoppingcart.repository.CartRepository;
 import com.sasindu.shoppingcart.repository.UserRepository;
+import com.sasindu.shoppingcart.security.jwt.AuthenticatedPrincipal;
 import com.sasindu.shoppingcart.security.jwt.JWTUtils;
+import com.sasindu.shoppingcart.security.jwt.RefreshTokenClaims;
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
@@ -26,6 +31,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
 import java.math.BigDecimal;
+import java.util.Optional;
 
 
 /**
@@ -39,6 +45,8 @@ public class AuthService implements IAuthService {
     private final JWTUtils _jwtUtils;
     private final PasswordEncoder _passwordEncoder;
     private final AuthenticationManager _authenticationManager;
+    private final UserCache _userCache;
+    private final IRefreshTokenService _refreshTokenService;
 
     @Value("${application.environment}")
     String environment;
@@ -58,10 +66,29 @@ public class AuthService implements IAuthService {
     @Override
     public void setCookies(AppUser user, HttpServletResponse response) {
         try {
+            // a new refresh token family is started for every login
             String access = (user == null) ? null : _jwtUtils.generateAccessToken(user);
-            String refresh = (user == null) ? null : _jwtUtils.generateRefreshToken(user);
-            int accessMaxAge = (user == null) ? 0 : Integer.parseInt(jwtAccessExpireStringMinutes) * 60; // 5 minutes
-            int refreshMaxAge = (user == null) ? 0 : Integer.parseInt(refreshTokenExpireStringDays) * 24 * 60 * 60; // 7 days
+            String refresh = (user == null) ? null : _refreshTokenService.issueToken(user);
+            addCookies(access, refresh, response);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+
+    /**
+     * Add the access and refresh cookies to the response, null tokens clear the cookies
+     *
+     * @param access   - access token
+     * @param refresh  - refresh token
+     * @param response - HttpServletResponse object
+     */
+    private void addCookies(String access, String refresh, HttpServletResponse response) {
+        try {
+            int accessMaxAge = (access == null) ? 0 : Integer.parseInt(jwtAccessExpireStringMinutes) * 60; // 5 minutes
+            int refreshMaxAge = (refresh == null) ? 0 : Integer.parseInt(refreshTokenExpireStringDays) * 24 * 60 * 60; // 7 days
 
             Cookie accessCookie = new Cookie("access", access);
             accessCookie.setHttpOnly(true);
@@ -171,15 +198,47 @@ public class AuthService implements IAuthService {
 
 
     /**
-     * Get the authenticated user
+     * Get the principal of the authenticated user, built from the access token (no database access)
+     *
+     * @return AuthenticatedPrincipal object
+     */
+    @Override
+    public AuthenticatedPrincipal getAuthenticatedPrincipal() {
+        try {
+            Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+            if (auth == null) {
+                throw new UnAuthorizedException("Unauthorized access");
+            }
+            if (auth.getPrincipal() instanceof AuthenticatedPrincipal principal) {
+                return principal;
+            }
+            if (auth.getPrincipal() instanceof AppUser appUser) {
+                // authenticated with credentials in this request (login)
+                return AuthenticatedPrincipal.fromUser(appUser);
+            }
+            throw new UnAuthorizedException("Unauthorized access");
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e.getMessage());
+        }
+    }
+
+
+    /**
+     * Get the authenticated user, loaded from the database
+     * use getAuthenticatedPrincipal when only the id, email or roles are needed
      *
      * @return AppUser object
      */
     @Override
     public AppUser getAuthenticatedUser() {
         try {
-            Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-            return (AppUser) auth.getPrincipal();
+            AuthenticatedPrincipal principal = getAuthenticatedPrincipal();
+            return _userRepository.findById(principal.getUserId())
+                    .orElseThrow(() -> new UnAuthorizedException("Unauthorized access"));
+        } catch (RuntimeException e) {
+            throw e;
         } catch (Exception e) {
             throw new RuntimeException(e.getMessage());
         }
@@ -201,17 +260,20 @@ public class AuthService implements IAuthService {
                 throw new UnAuthorizedException("Unauthorized access");
             }
 
-            if (!_jwtUtils.isRefreshTokenValid(refresh)) {
-                throw new UnAuthorizedException("Invalid refresh token");
-            }
+            RefreshTokenClaims claims = _jwtUtils.verifyRefreshToken(refresh);
 
-            Long userId = _jwtUtils.getUserIdFromRefreshToken(refresh);
-            AppUser user = _userRepository.findById(userId)
+            Long userId = claims.getUserId();
+            AppUser user = Optional.ofNullable(_userCache.getById(userId, id -> _userRepository.findById(id).orElse(null)))
                     .orElseThrow(() -> new ForbiddenException("Invalid refresh token"));
             if (!user.isEnabled()) {
                 throw new ForbiddenException("Please verify your email");
             }
-            setCookies(user, response);
+
+            // the presented refresh token is rotated, presenting it again revokes the whole family
+            String rotatedRefresh = _refreshTokenService.rotateToken(claims, user);
+            addCookies(_jwtUtils.generateAccessToken(user), rotatedRefresh, response);
+        } catch (JwtException e) {
+            throw new UnAuthorizedException("Invalid refresh token");
         } catch (RuntimeException e) {
             throw e;
         } catch (Exception e) {
@@ -221,13 +283,22 @@ public class AuthService implements IAuthService {
 
 
     /**
-     * Logout - set the cookies to null
+     * Logout - revoke the refresh token family of the session and set the cookies to null
      *
+     * @param request  - HttpServletRequest object
      * @param response - HttpServletResponse object
      */
     @Override
-    public void logout(HttpServletResponse response) {
+    public void logout(HttpServletRequest request, HttpServletResponse response) {
         try {
+            String refresh = HelperUtilStaticMethods.getCookieFromRequest(request, "refresh");
+            if (StringUtils.hasText(refresh)) {
+                try {
+                    _refreshTokenService.revokeFamily(_jwtUtils.verifyRefreshToken(refresh));
+                } catch (JwtException e) {
+                    // an invalid or expired token cannot be used anymore, there is nothing to revoke
+                }
+            }
             setCookies(null, response);
         } catch (Exception e) {
             throw new RuntimeException(e.getMessage());
@@ -244,8 +315,7 @@ public class AuthService implements IAuthService {
     @Override
     public boolean checkLoggedInUserWithId(Long id) {
         try {
-            AppUser user = getAuthenticatedUser();
-            return user.getId().equals(id);
+            return getAuthenticatedPrincipal().getUserId().equals(id);
         } catch (Exception e) {
             throw new RuntimeException(e.getMessage());
         }
@@ -277,10 +347,7 @@ public class AuthService implements IAuthService {
     @Override
     public boolean isAuthenticatedUserAdmin() {
         try {
-            AppUser loggedInUser = getAuthenticatedUser();
-            return loggedInUser.getAuthorities()
-                    .stream()
-                    .anyMatch(auth -> "ROLE_ADMIN".equals(auth.getAuthority()));
+            return getAuthenticatedPrincipal().hasRole(AppUserRole.ROLE_ADMIN.toString());
         } catch (RuntimeException e) {
             throw e;
         } catch (Exception e) {
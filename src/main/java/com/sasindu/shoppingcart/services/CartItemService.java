@@ -4,6 +4,7 @@ package com.sasindu.shoppingcart.services;
 import com.sasindu.shoppingcart.abstractions.dto.request.cartitem.AddCartItemRequestDto;
 import com.sasindu.shoppingcart.abstractions.dto.request.cartitem.UpdateCartItemRequestDto;
 import com.sasindu.shoppingcart.abstractions.interfaces.*;
+import com.sasindu.shoppingcart.cache.UserCache;
 import com.sasindu.shoppingcart.exceptions.BadRequestException;
 import com.sasindu.shoppingcart.exceptions.ForbiddenException;
 import com.sasindu.shoppingcart.exceptions.NotFoundException;
@@ -14,6 +15,7 @@ import com.sasindu.shoppingcart.models.CartItem;
 import com.sasindu.shoppingcart.models.Product;
 import com.sasindu.shoppingcart.repository.CartItemRepository;
 import com.sasindu.shoppingcart.repository.UserRepository;
+import com.sasindu.shoppingcart.security.jwt.AuthenticatedPrincipal;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -29,10 +31,11 @@ import java.util.List;
 public class CartItemService implements ICartItemService {
     private final CartItemRepository _cartItemRepository;
     private final ICartService _cartService;
-    private final IUserService _userService;
     private final UserRepository _userRepository;
+    private final UserCache _userCache;
     private final IProductService _productService;
     private final IAuthService _authService;
+    private final IStockReservationService _stockReservationService;
 
 
     /**
@@ -65,12 +68,12 @@ public class CartItemService implements ICartItemService {
      */
     private CartItem getCartItemByCartIdAndProductId(Long cartId, Long productId) {
         try {
-            AppUser user = _authService.getAuthenticatedUser();
+            AuthenticatedPrincipal principal = _authService.getAuthenticatedPrincipal();
             CartItem cartItem = _cartItemRepository.findByCartIdAndProductId(cartId, productId);
             if (cartItem == null) {
                 throw new NotFoundException("Cart item not found");
             }
-            if (!cartItem.getCart().getUser().getId().equals(user.getId())) {
+            if (!cartItem.getCart().getUser().getId().equals(principal.getUserId())) {
                 throw new UnAuthorizedException("Unauthorized access");
             }
             return cartItem;
@@ -91,8 +94,8 @@ public class CartItemService implements ICartItemService {
     public void addItemToCart(AddCartItemRequestDto request) {
         try {
             // 1. Retrieve the cart and product, if cart not found, create new cart
-            AppUser user = _authService.getAuthenticatedUser();
-            Long userId = user.getId();
+            AuthenticatedPrincipal principal = _authService.getAuthenticatedPrincipal();
+            Long userId = principal.getUserId();
             Long productId = request.getProductId();
             int quantity = request.getQuantity();
 
@@ -106,13 +109,13 @@ public class CartItemService implements ICartItemService {
 
             Cart cart = _cartService.getCartByUserId(userId);
             if (cart == null) {
-                AppUser foundAppUser = _userService.getUserById(userId);
-                if (foundAppUser == null) {
-                    throw new NotFoundException("User not found");
-                }
+                // the user is modified, so it is loaded from the repository instead of the user cache
+                AppUser foundAppUser = _userRepository.findById(userId)
+                        .orElseThrow(() -> new NotFoundException("User not found"));
                 cart = _cartService.initializeNewCart(foundAppUser);
                 foundAppUser.setCart(cart);
                 _userRepository.save(foundAppUser);
+                _userCache.invalidate(userId);
             }
 
             Product product = _productService.getProductById(productId);
@@ -120,12 +123,6 @@ public class CartItemService implements ICartItemService {
                 throw new NotFoundException("Product not found");
             }
 
-
-            // check if the inventory is enough for the product
-            if (product.getInventory() < quantity) {
-                throw new BadRequestException("Inventory is not enough for product: " + product.getName());
-            }
-
             // 2. Check if the product is already in the cart
             CartItem existingCartItem = cart.getCartItems()
                     .stream()
@@ -133,6 +130,10 @@ public class CartItemService implements ICartItemService {
                     .findFirst()
                     .orElse(null);
 
+            // hold the stock of the whole quantity in the cart, fails if the available-to-sell quantity is not enough
+            int cartQuantity = (existingCartItem == null ? 0 : existingCartItem.getQuantity()) + quantity;
+            _stockReservationService.holdStock(userId, product, cartQuantity);
+
             if (existingCartItem != null) {
                 // 3. If the product exists, update quantity and total price
                 existingCartItem.setQuantity(existingCartItem.getQuantity() + quantity);
@@ -168,13 +169,13 @@ public class CartItemService implements ICartItemService {
     @Override
     public void removeItemFromCart(Long cartId, Long productId) {
         try {
-            AppUser user = _authService.getAuthenticatedUser();
+            AuthenticatedPrincipal principal = _authService.getAuthenticatedPrincipal();
 
             // get the cart
             Cart cart = getCartById(cartId);
 
             // check if the cart belongs to the user
-            if (!cart.getUser().getId().equals(user.getId())) {
+            if (!cart.getUser().getId().equals(principal.getUserId())) {
                 throw new ForbiddenException("Access denied");
             }
 
@@ -184,6 +185,7 @@ public class CartItemService implements ICartItemService {
 
             cart.removeCartItem(cartItem);
             _cartItemRepository.delete(cartItem);
+            _stockReservationService.releaseStock(principal.getUserId(), List.of(productId));
             cart.updateTotalAmount();
             _cartService.saveCart(cart);
         } catch (RuntimeException e) {
@@ -206,19 +208,22 @@ public class CartItemService implements ICartItemService {
             Long productId = request.getProductId();
             int quantity = request.getQuantity();
 
-            AppUser user = _authService.getAuthenticatedUser();
+            AuthenticatedPrincipal principal = _authService.getAuthenticatedPrincipal();
 
             // get the cart
             Cart cart = getCartById(cartId);
 
             // check if the cart belongs to the user
-            if (!cart.getUser().getId().equals(user.getId())) {
+            if (!cart.getUser().getId().equals(principal.getUserId())) {
                 throw new ForbiddenException("Access denied");
             }
 
             // get the product
             CartItem cartItem = getCartItemByCartIdAndProductId(cartId, productId);
 
+            // the stock held for the cart follows the new quantity
+            _stockReservationService.holdStock(principal.getUserId(), cartItem.getProduct(), quantity);
+
             cartItem.setQuantity(quantity);
             cartItem.setTotalPrice();
             cart.updateTotalAmount();
@@ -241,10 +246,10 @@ public class CartItemService implements ICartItemService {
     @Override
     public List<CartItem> getCartItemsByUserId(Long userId) {
         try {
-            AppUser appUser = _authService.getAuthenticatedUser();
+            AuthenticatedPrincipal principal = _authService.getAuthenticatedPrincipal();
             boolean isAdmin = _authService.isAuthenticatedUserAdmin();
 
-            if (!isAdmin && !appUser.getId().equals(userId)) {
+            if (!isAdmin && !principal.getUserId().equals(userId)) {
                 throw new UnAuthorizedException("Unauthorized access");
             }
 
@@ -2,12 +2,14 @@ package com.sasindu.shoppingcart.services;
 
 import com.sasindu.shoppingcart.abstractions.interfaces.IAuthService;
 import com.sasindu.shoppingcart.abstractions.interfaces.ICartService;
+import com.sasindu.shoppingcart.abstractions.interfaces.IStockReservationService;
 import com.sasindu.shoppingcart.exceptions.ForbiddenException;
 import com.sasindu.shoppingcart.exceptions.NotFoundException;
 import com.sasindu.shoppingcart.models.AppUser;
 import com.sasindu.shoppingcart.models.Cart;
 import com.sasindu.shoppingcart.repository.CartItemRepository;
 import com.sasindu.shoppingcart.repository.CartRepository;
+import com.sasindu.shoppingcart.security.jwt.AuthenticatedPrincipal;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -24,6 +26,7 @@ public class CartService implements ICartService {
     private final CartRepository _cartRepository;
     private final CartItemRepository _cartItemRepository;
     private final IAuthService _authService;
+    private final IStockReservationService _stockReservationService;
 
     /**
      * Get the cart by id and calculate the total amount and set the total amount to the cart and return the cart
@@ -36,10 +39,10 @@ public class CartService implements ICartService {
     public Cart getCartById(Long cartId) {
         try {
             boolean isUserAdmin = _authService.isAuthenticatedUserAdmin();
-            AppUser authenticatedUser = _authService.getAuthenticatedUser();
+            AuthenticatedPrincipal principal = _authService.getAuthenticatedPrincipal();
             Cart cart = _cartRepository.findById(cartId)
                     .orElseThrow(() -> new NotFoundException("Cart not found"));
-            if (!isUserAdmin && !cart.getUser().getId().equals(authenticatedUser.getId())) {
+            if (!isUserAdmin && !cart.getUser().getId().equals(principal.getUserId())) {
                 throw new ForbiddenException("Access denied");
             }
             return cart;
@@ -119,14 +122,14 @@ public class CartService implements ICartService {
     public Cart getCartByUserId(Long userId) {
         try {
             boolean isUserAdmin = _authService.isAuthenticatedUserAdmin();
-            AppUser authenticatedUser = _authService.getAuthenticatedUser();
+            AuthenticatedPrincipal principal = _authService.getAuthenticatedPrincipal();
             Cart cart = _cartRepository.findByUserId(userId);
 
             if (cart == null) {
                 throw new NotFoundException("Cart not found");
             }
 
-            if (!isUserAdmin && !cart.getUser().getId().equals(authenticatedUser.getId())) {
+            if (!isUserAdmin && !cart.getUser().getId().equals(principal.getUserId())) {
                 throw new ForbiddenException("Access denied");
             }
 
@@ -167,10 +170,12 @@ public class CartService implements ICartService {
     @Override
     public void clearCartByCart(Cart cart) {
         try {
-            AppUser authenticatedUser = _authService.getAuthenticatedUser();
-            if (!cart.getUser().getId().equals(authenticatedUser.getId())) {
+            AuthenticatedPrincipal principal = _authService.getAuthenticatedPrincipal();
+            if (!cart.getUser().getId().equals(principal.getUserId())) {
                 throw new ForbiddenException("Access denied");
             }
+            // the stock held for the cart is released
+            _stockReservationService.releaseStock(principal.getUserId(), cart.getCartItems().stream().map(item -> item.getProduct().getId()).toList());
             _cartItemRepository.deleteAllByCartId(cart.getId());
             cart.getCartItems().clear();
             cart.updateTotalAmount();
@@ -3,13 +3,21 @@ package com.sasindu.shoppingcart.services;
 import com.sasindu.shoppingcart.abstractions.dto.request.category.AddCategoryRequestDto;
 import com.sasindu.shoppingcart.abstractions.dto.request.category.UpdateCategoryRequestDto;
 import com.sasindu.shoppingcart.abstractions.interfaces.ICategoryService;
+import com.sasindu.shoppingcart.cache.CatalogCache;
+import com.sasindu.shoppingcart.cache.ProductCountCache;
 import com.sasindu.shoppingcart.exceptions.ConflictException;
 import com.sasindu.shoppingcart.exceptions.NotFoundException;
+import com.sasindu.shoppingcart.helpers.TransactionHelper;
+import com.sasindu.shoppingcart.inventory.HotProductInventory;
 import com.sasindu.shoppingcart.models.Category;
 import com.sasindu.shoppingcart.models.Product;
 import com.sasindu.shoppingcart.repository.CategoryRepository;
+import com.sasindu.shoppingcart.repository.ProductRepository;
+import com.sasindu.shoppingcart.storage.ImageContentCleaner;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -23,6 +31,11 @@ import java.util.Optional;
 @RequiredArgsConstructor
 public class CategoryService implements ICategoryService {
     private final CategoryRepository _categoryRepository;
+    private final ProductRepository _productRepository;
+    private final CatalogCache _catalogCache;
+    private final ProductCountCache _productCountCache;
+    private final ImageContentCleaner _imageContentCleaner;
+    private final HotProductInventory _hotProductInventory;
 
 
     /**
@@ -36,10 +49,12 @@ public class CategoryService implements ICategoryService {
     public Category addCategory(AddCategoryRequestDto request) {
         try {
             // Check if the category already exists
-            return Optional.of(request)
+            Category savedCategory = Optional.of(request)
                     .filter(c -> !_categoryRepository.existsByName(c.getName()))
                     .map(c -> _categoryRepository.save(new Category(c.getName())))
                     .orElseThrow(() -> new ConflictException("Category already exists"));
+            _catalogCache.evictCategory(savedCategory.getId(), savedCategory.getName());
+            return savedCategory;
         } catch (RuntimeException e) {
             throw e;
         } catch (Exception e) {
@@ -78,7 +93,7 @@ public class CategoryService implements ICategoryService {
     @Override
     public Category getCategoryByName(String name) {
         try {
-            return _categoryRepository.findByName(name);
+            return _catalogCache.getCategoryByName(name, _categoryRepository::findByName);
         } catch (NotFoundException e) {
             throw e;
         } catch (Exception e) {
@@ -95,7 +110,7 @@ public class CategoryService implements ICategoryService {
     @Override
     public List<Category> getAllCategories() {
         try {
-            return _categoryRepository.findAll();
+            return _catalogCache.getAllCategories(_categoryRepository::findAll);
         } catch (Exception e) {
             throw new RuntimeException("Failed to fetch categories: " + e.getMessage(), e);
         }
@@ -116,8 +131,11 @@ public class CategoryService implements ICategoryService {
             // Check if the category exists, if not throw an exception else update the category
             return _categoryRepository.findById(id)
                     .map(category -> {
+                        String previousName = category.getName();
                         category.setName(request.getName());
-                        return _categoryRepository.save(category);
+                        Category savedCategory = _categoryRepository.save(category);
+                        evictCategoryCaches(savedCategory, previousName);
+                        return savedCategory;
                     })
                     .orElseThrow(() -> new NotFoundException("Category not found"));
         } catch (RuntimeException e) {
@@ -135,10 +153,25 @@ public class CategoryService implements ICategoryService {
      * @throws NotFoundException if the category is not found
      */
     @Override
+    @Transactional
     public void deleteCategoryById(Long id) {
         try {
             _categoryRepository.findById(id)
-                    .ifPresentOrElse(_categoryRepository::delete, () -> {
+                    .ifPresentOrElse(category -> {
+                        // the products and their images are deleted with the category, their content and the
+                        // in-memory stock of the hot ones are released once the delete is committed
+                        List<Long> productIds = category.getProducts().stream().map(Product::getId).toList();
+                        List<String> contentHashes = category.getProducts().stream()
+                                .flatMap(product -> product.getImages().stream())
+                                .flatMap(image -> image.getContentHashes().stream())
+                                .toList();
+                        _categoryRepository.delete(category);
+                        TransactionHelper.afterCommit(() -> {
+                            _imageContentCleaner.deleteUnreferenced(contentHashes);
+                            productIds.forEach(_hotProductInventory::invalidate);
+                        });
+                        evictCategoryCaches(category, category.getName());
+                    }, () -> {
                         throw new NotFoundException("Category not found");
                     });
         } catch (RuntimeException e) {
@@ -149,19 +182,23 @@ public class CategoryService implements ICategoryService {
     }
 
     /**
-     * getAllProductsForCategory method is responsible for fetching all the products for a given category
+     * getAllProductsForCategory method is responsible for fetching a page of the products for a given category
      *
      * @param categoryName String value of the category name
+     * @param after        Long value of the last product id of the previous page (0 for the first page)
+     * @param limit        int value of the maximum number of products to return
      * @return List of Product objects containing the product details
      * @throws NotFoundException if the category is not found
      */
-    public List<Product> getAllProductsForCategory(String categoryName) {
+    @Override
+    public List<Product> getAllProductsForCategory(String categoryName, long after, int limit) {
         try {
-            Category category = _categoryRepository.findByName(categoryName);
-            if (category == null) {
+            List<Product> products = _productRepository.findByCategoryNameAndIdGreaterThanOrderByIdAsc(categoryName, after, Limit.of(limit));
+            // an empty page can also mean the category does not exist
+            if (products.isEmpty() && !_categoryRepository.existsByName(categoryName)) {
                 throw new NotFoundException("Category not found");
             }
-            return category.getProducts().stream().toList();
+            return products;
         } catch (NotFoundException e) {
             throw e;
         } catch (Exception e) {
@@ -178,9 +215,24 @@ public class CategoryService implements ICategoryService {
     @Override
     public Category saveCategory(Category category) {
         try {
-            return _categoryRepository.save(category);
+            Category savedCategory = _categoryRepository.save(category);
+            evictCategoryCaches(savedCategory, savedCategory.getName());
+            return savedCategory;
         } catch (Exception e) {
             throw new RuntimeException("Failed to save category: " + e.getMessage(), e);
         }
     }
+
+
+    /**
+     * evictCategoryCaches method is responsible for evicting the cached catalog entries affected by a category change
+     * products embed their category and are counted by category name, so they are evicted as well
+     *
+     * @param category     Category object that was added, updated or deleted
+     * @param previousName String value of the category name before the change
+     */
+    private void evictCategoryCaches(Category category, String previousName) {
+        _catalogCache.evictCategory(category.getId(), previousName, category.getName());
+        _productCountCache.invalidateAll();
+    }
 }
@@ -0,0 +1,82 @@
+package com.sasindu.shoppingcart.services;
+
+
+import com.sasindu.shoppingcart.abstractions.dto.response.order.CheckoutResponseDto;
+import com.sasindu.shoppingcart.abstractions.interfaces.IAuthService;
+import com.sasindu.shoppingcart.abstractions.interfaces.ICheckoutService;
+import com.sasindu.shoppingcart.checkout.CheckoutPipeline;
+import com.sasindu.shoppingcart.checkout.CheckoutTicket;
+import com.sasindu.shoppingcart.exceptions.ForbiddenException;
+import com.sasindu.shoppingcart.exceptions.NotFoundException;
+import com.sasindu.shoppingcart.security.jwt.AuthenticatedPrincipal;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+
+/**
+ * CheckoutService class is responsible for the asynchronous order placement
+ * the checkouts are queued on the CheckoutPipeline and placed by its workers with IOrderService
+ */
+@Service
+@RequiredArgsConstructor
+public class CheckoutService implements ICheckoutService {
+    private final CheckoutPipeline _checkoutPipeline;
+    private final IAuthService _authService;
+
+
+    /**
+     * Queue the checkout of the cart of the authenticated user, the order is placed by a checkout worker
+     *
+     * @param idempotencyKey the Idempotency-Key header of the request, null for none
+     * @return the queued checkout
+     */
+    @Override
+    public CheckoutResponseDto submitCheckout(String idempotencyKey) {
+        try {
+            AuthenticatedPrincipal principal = _authService.getAuthenticatedPrincipal();
+            return toCheckoutResponse(_checkoutPipeline.submit(principal.getUserId(), idempotencyKey));
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+
+    /**
+     * Get the status of a checkout, only the user that submitted it or an admin can see it
+     *
+     * @param checkoutId the checkout id
+     * @return the checkout, with the order once it is completed
+     */
+    @Override
+    public CheckoutResponseDto getCheckoutStatus(String checkoutId) {
+        try {
+            AuthenticatedPrincipal principal = _authService.getAuthenticatedPrincipal();
+            CheckoutTicket ticket = _checkoutPipeline.getTicket(checkoutId);
+            if (ticket == null) {
+                throw new NotFoundException("Checkout not found");
+            }
+            if (!ticket.getUserId().equals(principal.getUserId()) && !_authService.isAuthenticatedUserAdmin()) {
+                throw new ForbiddenException("Access denied");
+            }
+            return toCheckoutResponse(ticket);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+
+    //! PRIVATE METHODS >>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>//
+
+    private CheckoutResponseDto toCheckoutResponse(CheckoutTicket ticket) {
+        CheckoutResponseDto response = new CheckoutResponseDto();
+        response.setCheckoutId(ticket.getId());
+        response.setStatus(ticket.getStatus());
+        response.setOrder(ticket.getOrder());
+        response.setError(ticket.getError());
+        return response;
+    }
+}
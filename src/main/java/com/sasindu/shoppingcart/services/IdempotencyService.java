@@ -0,0 +1,243 @@
+package com.sasindu.shoppingcart.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.sasindu.shoppingcart.abstractions.interfaces.IIdempotencyService;
+import com.sasindu.shoppingcart.exceptions.BadRequestException;
+import com.sasindu.shoppingcart.exceptions.ConflictException;
+import com.sasindu.shoppingcart.models.IdempotencyKey;
+import com.sasindu.shoppingcart.repository.IdempotencyKeyRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+
+/**
+ * IdempotencyService class is responsible for running a request once per Idempotency-Key
+ * <p>
+ * The responses of the recent keys are kept in a bounded in-memory cache in front of the idempotency_keys table.
+ * Duplicates that arrive while the first request is still running wait for its result instead of running again.
+ * Across instances the unique (user, key) index decides: the key is inserted before the action runs, in the same
+ * transaction, so a concurrent duplicate blocks on the index and then reads the stored response.
+ * A failed action stores nothing, the client can retry it with the same key. A key reused after idempotency.ttl-hours
+ * runs again, its expired row is replaced even if it is not purged yet.
+ */
+@Slf4j
+@Service
+public class IdempotencyService implements IIdempotencyService {
+    private static final int MAXIMUM_KEY_LENGTH = 255;
+
+    private final IdempotencyKeyRepository _idempotencyKeyRepository;
+    private final ObjectMapper _objectMapper;
+    private final TransactionTemplate _transactionTemplate;
+    private final Duration _ttl;
+    private final long _inFlightTimeoutSeconds;
+    private final Cache<CacheKey, Object> _responses;
+    private final Map<CacheKey, CompletableFuture<Object>> _inFlight = new ConcurrentHashMap<>();
+
+    public IdempotencyService(
+            IdempotencyKeyRepository idempotencyKeyRepository,
+            ObjectMapper objectMapper,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${idempotency.ttl-hours:24}") long ttlHours,
+            @Value("${idempotency.cache.max-size:10000}") long maxSize,
+            @Value("${idempotency.in-flight-timeout-seconds:30}") long inFlightTimeoutSeconds
+    ) {
+        this._idempotencyKeyRepository = idempotencyKeyRepository;
+        this._objectMapper = objectMapper;
+        this._transactionTemplate = new TransactionTemplate(transactionManager);
+        this._ttl = Duration.ofHours(ttlHours);
+        this._inFlightTimeoutSeconds = inFlightTimeoutSeconds;
+        this._responses = Caffeine.newBuilder()
+                .expireAfterWrite(_ttl)
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, _responses, "idempotency.responses");
+    }
+
+
+    /**
+     * Run an action once per idempotency key of a user, the retries get the response of the first run
+     * the action runs in a transaction together with the write of the key, so it is committed with its key or not at all
+     *
+     * @param userId         - id of the user that sent the key
+     * @param idempotencyKey - Idempotency-Key header sent by the client
+     * @param responseType   - type of the response, it is stored as JSON
+     * @param action         - action to run
+     * @param <T>            - type of the response
+     * @return the response of the first run
+     */
+    @Override
+    public <T> T execute(Long userId, String idempotencyKey, Class<T> responseType, Supplier<T> action) {
+        try {
+            if (!StringUtils.hasText(idempotencyKey) || idempotencyKey.length() > MAXIMUM_KEY_LENGTH) {
+                throw new BadRequestException("Idempotency-Key should be between 1 and " + MAXIMUM_KEY_LENGTH + " characters");
+            }
+            CacheKey key = new CacheKey(userId, idempotencyKey);
+
+            // 1. Recent key
+            Object cached = _responses.getIfPresent(key);
+            if (cached != null) {
+                return responseType.cast(cached);
+            }
+
+            // 2. Same key in flight, wait for its result
+            CompletableFuture<Object> future = new CompletableFuture<>();
+            CompletableFuture<Object> inFlight = _inFlight.putIfAbsent(key, future);
+            if (inFlight != null) {
+                return responseType.cast(await(inFlight));
+            }
+
+            // 3. First request of this instance, run it (or read the response stored by another run)
+            try {
+                T response = runOnce(key, responseType, action);
+                _responses.put(key, response);
+                future.complete(response);
+                return response;
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+                throw e;
+            } finally {
+                _inFlight.remove(key, future);
+            }
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+
+    /**
+     * Delete the expired idempotency keys, runs every hour
+     */
+    @Override
+    @Transactional
+    @Scheduled(fixedDelayString = "${idempotency.purge-interval-ms:3600000}")
+    public void purgeExpiredKeys() {
+        int deleted = _idempotencyKeyRepository.deleteCreatedBefore(Instant.now().minus(_ttl));
+        if (deleted > 0) {
+            log.info("Purged {} expired idempotency keys", deleted);
+        }
+    }
+
+
+    //! PRIVATE METHODS >>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>//
+
+    /**
+     * Return the stored response of the key, or run the action and store its response with the key
+     */
+    private <T> T runOnce(CacheKey key, Class<T> responseType, Supplier<T> action) {
+        T stored = findStoredResponse(key, responseType);
+        if (stored != null) {
+            return stored;
+        }
+        try {
+            return _transactionTemplate.execute(status -> {
+                // the key is written first, a concurrent duplicate waits on the unique index until this commits
+                IdempotencyKey idempotencyKey;
+                try {
+                    idempotencyKey = _idempotencyKeyRepository.saveAndFlush(new IdempotencyKey(key.userId(), key.idempotencyKey()));
+                } catch (DataIntegrityViolationException e) {
+                    throw new KeyTakenException();
+                }
+                T response = action.get();
+                idempotencyKey.setResponse(serialize(response));
+                _idempotencyKeyRepository.save(idempotencyKey);
+                return response;
+            });
+        } catch (KeyTakenException e) {
+            // an expired key that is not purged yet is deleted, the request then runs as the first one
+            Integer deleted = _transactionTemplate.execute(status -> _idempotencyKeyRepository.deleteExpiredKey(
+                    key.userId(), key.idempotencyKey(), Instant.now().minus(_ttl)
+            ));
+            if (deleted != null && deleted > 0) {
+                return runOnce(key, responseType, action);
+            }
+            // the key was committed by a concurrent request (another instance)
+            stored = findStoredResponse(key, responseType);
+            if (stored == null) {
+                throw new ConflictException("A request with this Idempotency-Key is still being processed");
+            }
+            return stored;
+        }
+    }
+
+
+    private <T> T findStoredResponse(CacheKey key, Class<T> responseType) {
+        return _idempotencyKeyRepository.findByUserIdAndIdempotencyKey(key.userId(), key.idempotencyKey())
+                .filter(idempotencyKey -> idempotencyKey.getResponse() != null)
+                .filter(idempotencyKey -> idempotencyKey.getCreatedAt().isAfter(Instant.now().minus(_ttl)))
+                .map(idempotencyKey -> deserialize(idempotencyKey.getResponse(), responseType))
+                .orElse(null);
+    }
+
+
+    private Object await(CompletableFuture<Object> inFlight) throws InterruptedException {
+        try {
+            return inFlight.get(_inFlightTimeoutSeconds, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            // the duplicate gets the same error as the first request
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new RuntimeException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new ConflictException("A request with this Idempotency-Key is still being processed");
+        }
+    }
+
+
+    private String serialize(Object response) {
+        try {
+            return _objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to serialize the response: " + e.getMessage(), e);
+        }
+    }
+
+
+    private <T> T deserialize(String response, Class<T> responseType) {
+        try {
+            return _objectMapper.readValue(response, responseType);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to deserialize the stored response: " + e.getMessage(), e);
+        }
+    }
+
+
+    private record CacheKey(Long userId, String idempotencyKey) {
+    }
+
+
+    /**
+     * Thrown when the key is already stored, rolls the transaction back before the stored response is read
+     */
+    private static class KeyTakenException extends RuntimeException {
+        KeyTakenException() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -1,20 +1,34 @@
 package com.sasindu.shoppingcart.services;
 
 import com.sasindu.shoppingcart.abstractions.interfaces.IImageService;
+import com.sasindu.shoppingcart.abstractions.interfaces.IImageStorage;
+import com.sasindu.shoppingcart.abstractions.interfaces.IImageVariantService;
 import com.sasindu.shoppingcart.abstractions.interfaces.IProductService;
-import com.sasindu.shoppingcart.constants.ApplicationConstants;
+import com.sasindu.shoppingcart.cache.CatalogCache;
+import com.sasindu.shoppingcart.exceptions.BadRequestException;
 import com.sasindu.shoppingcart.exceptions.NotFoundException;
 import com.sasindu.shoppingcart.models.Image;
 import com.sasindu.shoppingcart.models.Product;
 import com.sasindu.shoppingcart.repository.ImageRepository;
+import com.sasindu.shoppingcart.repository.ImageVariantRepository;
+import com.sasindu.shoppingcart.repository.projections.ImageFileProjection;
+import com.sasindu.shoppingcart.storage.ImageContentCleaner;
+import com.sasindu.shoppingcart.storage.StoredContent;
 import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.Resource;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
-import javax.sql.rowset.serial.SerialBlob;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 
 /**
@@ -24,8 +38,12 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class ImageService implements IImageService {
     private final ImageRepository _imageRepository;
+    private final ImageVariantRepository _imageVariantRepository;
     private final IProductService _productService;
-    private static final String IMAGE_DOWNLOAD_URL_PREFIX = ApplicationConstants.IMAGE_DOWNLOAD_URL_PREFIX;
+    private final CatalogCache _catalogCache;
+    private final IImageStorage _imageStorage;
+    private final ImageContentCleaner _imageContentCleaner;
+    private final IImageVariantService _imageVariantService;
 
     /**
      * getImageById method is responsible for fetching an image by its id
@@ -46,6 +64,74 @@ public class ImageService implements IImageService {
     }
 
 
+    /**
+     * getImageFileById method is responsible for fetching the file metadata (name, type, size and content hash) of an image
+     * the product is not loaded
+     *
+     * @param id Long value of the image id
+     * @return ImageFileProjection object containing the file metadata
+     */
+    @Override
+    public ImageFileProjection getImageFileById(Long id) {
+        try {
+            return _imageRepository.findFileById(id)
+                    .orElseThrow(() -> new NotFoundException("No image found with id: " + id));
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to fetch image: " + e.getMessage(), e);
+        }
+    }
+
+
+    /**
+     * getImageVariantFileById method is responsible for fetching the file metadata of the smallest variant of an image
+     * that is at least the given width
+     *
+     * @param id    Long value of the image id
+     * @param width int value of the requested width in pixels
+     * @return ImageFileProjection object of the variant, or null if no variant is large enough (or none is generated yet)
+     */
+    @Override
+    public ImageFileProjection getImageVariantFileById(Long id, int width) {
+        try {
+            if (width <= 0) {
+                throw new BadRequestException("Variant width should be greater than 0");
+            }
+            return _imageVariantRepository.findFilesByImageIdAndMinimumWidth(id, width, PageRequest.of(0, 1))
+                    .stream()
+                    .findFirst()
+                    .orElse(null);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to fetch image variant: " + e.getMessage(), e);
+        }
+    }
+
+
+    /**
+     * getImageContent method is responsible for fetching the stored content of an image
+     *
+     * @param file ImageFileProjection object of the image
+     * @return Resource object pointing to the stored content
+     */
+    @Override
+    public Resource getImageContent(ImageFileProjection file) {
+        try {
+            if (file.getContentHash() == null) {
+                // the content of the image was not moved to the image storage yet (see ImageBlobMigration)
+                throw new NotFoundException("Image content not found");
+            }
+            return _imageStorage.load(file.getContentHash());
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to fetch image content: " + e.getMessage(), e);
+        }
+    }
+
+
     /**
      * deleteImageById method is responsible for deleting an image by its id
      *
@@ -57,6 +143,8 @@ public class ImageService implements IImageService {
             Image image = _imageRepository.findById(id)
                     .orElseThrow(() -> new NotFoundException("No image found with id: " + id));
             _imageRepository.delete(image);
+            _imageContentCleaner.deleteUnreferenced(image.getContentHashes());
+            _catalogCache.evictProduct(image.getProduct().getId());
         } catch (RuntimeException e) {
             throw e;
         } catch (Exception e) {
@@ -80,31 +168,26 @@ public class ImageService implements IImageService {
                 throw new NotFoundException("Product not found for id: " + productId);
             }
 
-            // Iterate over each file and save it
-            return files.stream().map(file -> {
-                try {
-                    // Create a new image instance
-                    Image image = new Image();
-                    String uniqueFileName = UUID.randomUUID().toString() + "_" + file.getOriginalFilename();
+            // Store the files in parallel, reading and hashing them is the slow part of an upload
+            List<Image> images = storeContents(files);
+            images.forEach(image -> image.setProduct(product));
 
-                    image.setFileName(uniqueFileName);
-                    image.setFileType(file.getContentType());
-                    image.setImage(new SerialBlob(file.getBytes())); // Store image as Blob
-                    image.setProduct(product);
-
-                    // Save the image to the database
-                    Image savedImage = _imageRepository.save(image);
-
-                    // Set the download URL after saving the image
-                    savedImage.setDownloadUrl(IMAGE_DOWNLOAD_URL_PREFIX + savedImage.getId());
-
-                    // Save the image again to update with the correct download URL
-                    _imageRepository.save(savedImage);
-                    return savedImage;
-                } catch (Exception e) {
-                    throw new RuntimeException("Failed to save image: " + file.getOriginalFilename() + " due to " + e.getMessage(), e);
-                }
-            }).collect(Collectors.toList());
+            // Save all the images in a single transaction, their inserts are sent as one JDBC batch
+            // the download url is derived from the id, so the images are not updated after the insert
+            List<Image> savedImages;
+            try {
+                savedImages = _imageRepository.saveAll(images);
+            } catch (RuntimeException e) {
+                _imageContentCleaner.deleteUnreferenced(images.stream().map(Image::getContentHash).toList());
+                throw e;
+            }
+
+            // the resized variants are generated in the background
+            savedImages.forEach(image -> _imageVariantService.enqueueVariants(image.getId(), image.getContentHash()));
+
+            // the image urls are part of the cached product
+            _catalogCache.evictProduct(productId);
+            return savedImages;
         } catch (NotFoundException e) {
             throw new NotFoundException("Product not found for id: " + productId);
         } catch (Exception e) {
@@ -129,10 +212,16 @@ public class ImageService implements IImageService {
                     .orElseThrow(() -> new NotFoundException("No image found with id: " + imageId));
 
             // Update the image
+            // the variants of the previous content are replaced as well
+            List<String> previousContentHashes = image.getContentHashes();
+            image.getVariants().clear();
             image.setFileName(file.getOriginalFilename());
             image.setFileType(file.getContentType());
-            image.setImage(new SerialBlob(file.getBytes()));
+            storeContent(image, file);
             _imageRepository.save(image);
+            _imageContentCleaner.deleteUnreferenced(previousContentHashes);
+            _imageVariantService.enqueueVariants(image.getId(), image.getContentHash());
+            _catalogCache.evictProduct(image.getProduct().getId());
             return image;
         } catch (RuntimeException e) {
             throw e;
@@ -158,4 +247,60 @@ public class ImageService implements IImageService {
             throw new RuntimeException("Failed to save image: " + e.getMessage(), e);
         }
     }
+
+
+    /**
+     * storeContents method is responsible for writing the uploaded files to the image storage in parallel
+     * each file is read and hashed on its own virtual thread, the images are returned in the order of the files
+     *
+     * @param files List of MultipartFile objects containing the image details
+     * @return List of new (unsaved) Image objects with their file metadata and content hash
+     * @throws Exception if one of the files cannot be read or stored
+     */
+    private List<Image> storeContents(List<MultipartFile> files) throws Exception {
+        List<Future<Image>> futures = new ArrayList<>(files.size());
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (MultipartFile file : files) {
+                futures.add(executor.submit(() -> {
+                    Image image = new Image();
+                    image.setFileName(UUID.randomUUID() + "_" + file.getOriginalFilename());
+                    image.setFileType(file.getContentType());
+                    storeContent(image, file);
+                    return image;
+                }));
+            }
+        }
+
+        List<Image> images = new ArrayList<>(files.size());
+        try {
+            for (Future<Image> future : futures) {
+                images.add(future.get());
+            }
+        } catch (ExecutionException e) {
+            // release the contents that were stored for the other files
+            _imageContentCleaner.deleteUnreferenced(futures.stream()
+                    .filter(future -> future.state() == Future.State.SUCCESS)
+                    .map(future -> future.resultNow().getContentHash())
+                    .toList());
+            throw new RuntimeException("Failed to save image: " + e.getCause().getMessage(), e.getCause());
+        }
+        return images;
+    }
+
+
+    /**
+     * storeContent method is responsible for writing the uploaded file to the image storage
+     * and keeping its content hash and size on the image
+     *
+     * @param image Image object to update
+     * @param file  MultipartFile object containing the image content
+     * @throws IOException if the file cannot be read or stored
+     */
+    private void storeContent(Image image, MultipartFile file) throws IOException {
+        try (InputStream content = file.getInputStream()) {
+            StoredContent storedContent = _imageStorage.store(content);
+            image.setContentHash(storedContent.contentHash());
+            image.setContentLength(storedContent.contentLength());
+        }
+    }
 }
@@ -0,0 +1,207 @@
+package com.sasindu.shoppingcart.services;
+
+import com.sasindu.shoppingcart.abstractions.interfaces.IImageStorage;
+import com.sasindu.shoppingcart.abstractions.interfaces.IImageVariantService;
+import com.sasindu.shoppingcart.constants.ApplicationConstants;
+import com.sasindu.shoppingcart.models.Image;
+import com.sasindu.shoppingcart.models.ImageVariant;
+import com.sasindu.shoppingcart.repository.ImageRepository;
+import com.sasindu.shoppingcart.storage.ImageContentCleaner;
+import com.sasindu.shoppingcart.storage.StoredContent;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * ImageVariantService class is responsible for generating the resized variants of the uploaded images
+ * <p>
+ * Every saved image is queued on a bounded worker pool (image.variants.workers / image.variants.queue-capacity).
+ * A worker decodes the original once and scales it down to every configured width smaller than the original,
+ * largest first, each variant being scaled from the previous one. When the queue is full the image is skipped,
+ * downloads then fall back to the original.
+ */
+@Slf4j
+@Service
+public class ImageVariantService implements IImageVariantService {
+    private final ImageRepository _imageRepository;
+    private final IImageStorage _imageStorage;
+    private final ImageContentCleaner _imageContentCleaner;
+    private final TransactionTemplate _transactionTemplate;
+    private final ThreadPoolExecutor _executor;
+
+    public ImageVariantService(
+            ImageRepository imageRepository,
+            IImageStorage imageStorage,
+            ImageContentCleaner imageContentCleaner,
+            PlatformTransactionManager transactionManager,
+            @Value("${image.variants.workers:2}") int workers,
+            @Value("${image.variants.queue-capacity:100}") int queueCapacity
+    ) {
+        this._imageRepository = imageRepository;
+        this._imageStorage = imageStorage;
+        this._imageContentCleaner = imageContentCleaner;
+        this._transactionTemplate = new TransactionTemplate(transactionManager);
+        this._executor = new ThreadPoolExecutor(
+                workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new CustomizableThreadFactory("image-variant-")
+        );
+        // decode and encode in memory, without the ImageIO temp file cache
+        ImageIO.setUseCache(false);
+    }
+
+
+    /**
+     * enqueueVariants method is responsible for scheduling the generation of the resized variants of an image
+     *
+     * @param imageId     Long value of the image id
+     * @param contentHash String value of the hash of the image content the variants are generated from
+     */
+    @Override
+    public void enqueueVariants(Long imageId, String contentHash) {
+        try {
+            _executor.execute(() -> generateVariants(imageId, contentHash));
+        } catch (RejectedExecutionException e) {
+            log.warn("Variant queue is full, no variants generated for image {}", imageId);
+        }
+    }
+
+
+    @PreDestroy
+    public void shutdown() {
+        _executor.shutdown();
+    }
+
+
+    /**
+     * Generate, store and save the variants of an image, runs on a worker thread
+     */
+    private void generateVariants(Long imageId, String contentHash) {
+        List<ImageVariant> variants = new ArrayList<>();
+        try {
+            BufferedImage original = readImage(contentHash);
+            if (original == null) {
+                return;
+            }
+
+            boolean hasAlpha = original.getColorModel().hasAlpha();
+            String format = hasAlpha ? "png" : "jpeg";
+            BufferedImage source = original;
+            for (int width : ApplicationConstants.IMAGE_VARIANT_WIDTHS) {
+                if (width >= original.getWidth()) {
+                    continue;
+                }
+                BufferedImage resized = resize(source, width, hasAlpha);
+                StoredContent storedContent = storeImage(resized, format);
+                variants.add(new ImageVariant(null, width, "image/" + format, storedContent.contentHash(), storedContent.contentLength(), null));
+                source = resized;
+            }
+
+            if (!variants.isEmpty() && !saveVariants(imageId, contentHash, variants)) {
+                releaseVariants(variants);
+            }
+        } catch (Exception e) {
+            log.error("Failed to generate the variants of image {}", imageId, e);
+            releaseVariants(variants);
+        }
+    }
+
+
+    /**
+     * Attach the variants to the image, unless the image was deleted or replaced while they were generated
+     *
+     * @return true if the variants were saved
+     */
+    private boolean saveVariants(Long imageId, String contentHash, List<ImageVariant> variants) {
+        return Boolean.TRUE.equals(_transactionTemplate.execute(status -> {
+            Image image = _imageRepository.findById(imageId).orElse(null);
+            if (image == null || !contentHash.equals(image.getContentHash())) {
+                return false;
+            }
+            variants.forEach(variant -> {
+                variant.setImage(image);
+                image.getVariants().add(variant);
+            });
+            return true;
+        }));
+    }
+
+
+    private void releaseVariants(List<ImageVariant> variants) {
+        _imageContentCleaner.deleteUnreferenced(variants.stream().map(ImageVariant::getContentHash).toList());
+    }
+
+
+    /**
+     * Decode the stored image, images in a format ImageIO cannot read or with too many pixels are skipped
+     *
+     * @return the decoded image or null
+     */
+    private BufferedImage readImage(String contentHash) throws IOException {
+        try (InputStream in = _imageStorage.load(contentHash).getInputStream();
+             ImageInputStream imageInput = ImageIO.createImageInputStream(in)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(imageInput);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(imageInput, true, true);
+                // the dimensions are checked before decoding, a small file can declare a huge image
+                if ((long) reader.getWidth(0) * reader.getHeight(0) > ApplicationConstants.MAXIMUM_IMAGE_VARIANT_SOURCE_PIXELS) {
+                    return null;
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+
+    private static BufferedImage resize(BufferedImage source, int width, boolean hasAlpha) {
+        int height = Math.max(1, (int) Math.round((double) source.getHeight() * width / source.getWidth()));
+        BufferedImage resized = new BufferedImage(width, height, hasAlpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = resized.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return resized;
+    }
+
+
+    private StoredContent storeImage(BufferedImage image, String format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (!ImageIO.write(image, format, out)) {
+            throw new IOException("No ImageIO writer for " + format);
+        }
+        return _imageStorage.store(new ByteArrayInputStream(out.toByteArray()));
+    }
+}
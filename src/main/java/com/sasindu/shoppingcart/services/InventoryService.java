@@ -0,0 +1,108 @@
+package com.sasindu.shoppingcart.services;
+
+import com.sasindu.shoppingcart.abstractions.interfaces.IInventoryService;
+import com.sasindu.shoppingcart.cache.CatalogCache;
+import com.sasindu.shoppingcart.exceptions.BadRequestException;
+import com.sasindu.shoppingcart.exceptions.NotFoundException;
+import com.sasindu.shoppingcart.helpers.TransactionHelper;
+import com.sasindu.shoppingcart.inventory.HotProductInventory;
+import com.sasindu.shoppingcart.models.Product;
+import com.sasindu.shoppingcart.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+
+/**
+ * InventoryService class is responsible for changing the inventory of the products
+ * <p>
+ * Every change is a single conditional UPDATE per product: the database checks the stock and decrements it in one
+ * statement, so concurrent orders of the same product cannot oversell it and no product is read before the update.
+ * The products are updated in id order, so two orders locking the same rows always lock them in the same order.
+ * The stock of the hot products is kept in memory instead (see HotProductInventory).
+ */
+@Service
+@RequiredArgsConstructor
+public class InventoryService implements IInventoryService {
+    private final ProductRepository _productRepository;
+    private final CatalogCache _catalogCache;
+    private final HotProductInventory _hotProductInventory;
+
+
+    /**
+     * Take the given quantities from the inventory of the products, all or nothing
+     * must run in the transaction of the order, a product without enough stock rolls it back
+     *
+     * @param quantitiesByProductId - quantity to take per product id
+     */
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void decrementStock(Map<Long, Integer> quantitiesByProductId) {
+        try {
+            for (Map.Entry<Long, Integer> entry : new TreeMap<>(quantitiesByProductId).entrySet()) {
+                Long productId = entry.getKey();
+                int quantity = entry.getValue();
+                if (quantity <= 0) {
+                    throw new BadRequestException("Quantity should be greater than 0");
+                }
+                boolean taken;
+                if (_hotProductInventory.isHot(productId)) {
+                    // the stock of a hot product is taken in memory, and given back if the order is rolled back
+                    taken = _hotProductInventory.tryTake(productId, quantity);
+                    if (taken) {
+                        TransactionHelper.afterRollback(() -> _hotProductInventory.giveBack(productId, quantity));
+                    }
+                } else {
+                    taken = _productRepository.decrementInventory(productId, quantity) > 0;
+                }
+                if (!taken) {
+                    Product product = _productRepository.findById(productId)
+                            .orElseThrow(() -> new NotFoundException("Product not found"));
+                    throw new BadRequestException("Inventory is not enough for product: " + product.getName());
+                }
+                // the inventory is part of the cached product, evicted once committed so a concurrent read cannot
+                // cache the inventory from before the order
+                TransactionHelper.afterCommit(() -> _catalogCache.evictProduct(productId));
+            }
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+
+    /**
+     * Give the given quantities back to the inventory of the products (e.g. cancelled order)
+     *
+     * @param quantitiesByProductId - quantity to give back per product id
+     */
+    @Override
+    @Transactional
+    public void incrementStock(Map<Long, Integer> quantitiesByProductId) {
+        try {
+            for (Map.Entry<Long, Integer> entry : new TreeMap<>(quantitiesByProductId).entrySet()) {
+                if (entry.getValue() <= 0) {
+                    continue;
+                }
+                Long productId = entry.getKey();
+                int quantity = entry.getValue();
+                if (_hotProductInventory.isHot(productId)) {
+                    // given back in memory once the cancellation is committed
+                    TransactionHelper.afterCommit(() -> _hotProductInventory.giveBack(productId, quantity));
+                } else {
+                    _productRepository.incrementInventory(productId, quantity);
+                }
+                TransactionHelper.afterCommit(() -> _catalogCache.evictProduct(productId));
+            }
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.sasindu.shoppingcart.services;
 
 
+import com.sasindu.shoppingcart.abstractions.dto.response.order.OrderResponseDto;
 import com.sasindu.shoppingcart.abstractions.enums.OrderStatus;
 import com.sasindu.shoppingcart.abstractions.interfaces.*;
 import com.sasindu.shoppingcart.constants.ApplicationConstants;
@@ -10,6 +11,7 @@ import com.sasindu.shoppingcart.exceptions.NotFoundException;
 import com.sasindu.shoppingcart.models.*;
 import com.sasindu.shoppingcart.repository.OrderItemRepository;
 import com.sasindu.shoppingcart.repository.OrderRepository;
+import com.sasindu.shoppingcart.security.jwt.AuthenticatedPrincipal;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -30,13 +32,16 @@ import java.util.stream.Collectors;
 public class OrderService implements IOrderService {
     private final OrderRepository _orderRepository;
     private final OrderItemRepository _orderItemRepository;
-    private final IProductService _productService;
+    private final IInventoryService _inventoryService;
+    private final IStockReservationService _stockReservationService;
     private final IUserService _userService;
     private final IAuthService _authService;
     private final ICartService _cartService;
+    private final IIdempotencyService _idempotencyService;
 
     /**
      * Create the order items for order.This is used as internal helper method to create an order
+     * the inventory of the products is taken with one conditional update per product (see IInventoryService)
      *
      * @param order the order
      * @param cart  the cart
@@ -44,15 +49,12 @@ public class OrderService implements IOrderService {
      */
     private List<OrderItem> createOrderItems(Order order, Cart cart) {
         try {
+            _inventoryService.decrementStock(cart.getCartItems().stream()
+                    .collect(Collectors.toMap(cartItem -> cartItem.getProduct().getId(), CartItem::getQuantity, Integer::sum)));
+
             return cart.getCartItems().stream()
                     .map(cartItem -> {
                         Product product = cartItem.getProduct();
-                        int newInventory = product.getInventory() - cartItem.getQuantity();
-                        if (newInventory < 0) {
-                            throw new BadRequestException("Inventory is not enough for product: " + product.getName());
-                        }
-                        product.setInventory(newInventory);
-                        _productService.saveProduct(product);
                         return new OrderItem(order, product, cartItem.getQuantity(), product.getPrice());
                     }).collect(Collectors.toList());
         } catch (RuntimeException e) {
@@ -93,13 +95,18 @@ public class OrderService implements IOrderService {
     @Transactional
     public Order placeOrder() {
         try {
-            AppUser appUser = _authService.getAuthenticatedUser();
-            Cart cart = _cartService.getCartByUserId(appUser.getId());
+            AuthenticatedPrincipal principal = _authService.getAuthenticatedPrincipal();
+            Cart cart = _cartService.getCartByUserId(principal.getUserId());
 
-            if (!Objects.equals(cart.getUser().getId(), appUser.getId())) {
+            if (!Objects.equals(cart.getUser().getId(), principal.getUserId())) {
                 throw new ForbiddenException("Access denied");
             }
 
+            // renew the stock held for the cart, the holds of the other users are not taken
+            for (CartItem cartItem : cart.getCartItems()) {
+                _stockReservationService.holdStock(principal.getUserId(), cartItem.getProduct(), cartItem.getQuantity());
+            }
+
             // create the order
             Order order = createOrder(cart);
             List<OrderItem> orderItems = createOrderItems(order, cart);
@@ -123,6 +130,27 @@ public class OrderService implements IOrderService {
     }
 
 
+    /**
+     * Place order once per idempotency key of the user
+     * the order is placed in the transaction of the idempotency service, together with the write of the key
+     *
+     * @param idempotencyKey the Idempotency-Key header of the request
+     * @return the order response
+     */
+    @Override
+    public OrderResponseDto placeOrder(String idempotencyKey) {
+        try {
+            AuthenticatedPrincipal principal = _authService.getAuthenticatedPrincipal();
+            return _idempotencyService.execute(principal.getUserId(), idempotencyKey, OrderResponseDto.class,
+                    () -> placeOrder().toOrderResponse());
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+
     /**
      * Gets order.
      *
@@ -132,13 +160,13 @@ public class OrderService implements IOrderService {
     @Override
     public Order getOrderById(Long orderId) {
         try {
-            AppUser appUser = _authService.getAuthenticatedUser();
+            AuthenticatedPrincipal principal = _authService.getAuthenticatedPrincipal();
             boolean isAdmin = _authService.isAuthenticatedUserAdmin();
             Order order = _orderRepository
-                    .findById(orderId)
+                    .findWithItemsById(orderId)
                     .orElseThrow(() -> new NotFoundException("Order not found"));
 
-            if (!isAdmin && !order.getUser().getId().equals(appUser.getId())) {
+            if (!isAdmin && !order.getUser().getId().equals(principal.getUserId())) {
                 throw new ForbiddenException("Access denied");
             }
             return order;
@@ -184,10 +212,10 @@ public class OrderService implements IOrderService {
     @Transactional
     public void cancelOrder(Long orderId) {
         try {
-            AppUser authenticatedUser = _authService.getAuthenticatedUser();
+            AuthenticatedPrincipal principal = _authService.getAuthenticatedPrincipal();
             Order order = getOrderById(orderId);
 
-            if (!order.getUser().getId().equals(authenticatedUser.getId())) {
+            if (!order.getUser().getId().equals(principal.getUserId())) {
                 throw new ForbiddenException("Access denied");
             }
 
@@ -205,12 +233,9 @@ public class OrderService implements IOrderService {
                 throw new BadRequestException("Order cannot be cancelled after " + ApplicationConstants.MAXIMUM_ORDER_CANCEL_DAYS + " days. Please contact support for further assistance.");
             }
 
-            // get order quantity and set product inventory
-            for (OrderItem orderItem : order.getOrderItems()) {
-                Product product = orderItem.getProduct();
-                product.setInventory(product.getInventory() + orderItem.getQuantity());
-                _productService.saveProduct(product);
-            }
+            // give the order quantities back to the product inventory
+            _inventoryService.incrementStock(order.getOrderItems().stream()
+                    .collect(Collectors.toMap(orderItem -> orderItem.getProduct().getId(), OrderItem::getQuantity, Integer::sum)));
 
             // Update order status before deleting order items
             order.setStatus(OrderStatus.CANCELLED);
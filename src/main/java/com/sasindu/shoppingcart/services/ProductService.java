@@ -2,18 +2,28 @@ package com.sasindu.shoppingcart.services;
 
 import com.sasindu.shoppingcart.abstractions.dto.request.product.AddProductRequestDto;
 import com.sasindu.shoppingcart.abstractions.dto.request.product.UpdateProductRequestDto;
+import com.sasindu.shoppingcart.abstractions.dto.response.product.ProductResponseDto;
 import com.sasindu.shoppingcart.abstractions.interfaces.ICategoryService;
 import com.sasindu.shoppingcart.abstractions.interfaces.IProductService;
+import com.sasindu.shoppingcart.abstractions.interfaces.IStockReservationService;
+import com.sasindu.shoppingcart.cache.CatalogCache;
+import com.sasindu.shoppingcart.cache.ProductCountCache;
+import com.sasindu.shoppingcart.inventory.HotProductInventory;
 import com.sasindu.shoppingcart.exceptions.NotFoundException;
 import com.sasindu.shoppingcart.models.Category;
 import com.sasindu.shoppingcart.models.Product;
 import com.sasindu.shoppingcart.repository.ProductRepository;
+import com.sasindu.shoppingcart.repository.ProductSpecifications;
+import com.sasindu.shoppingcart.storage.ImageContentCleaner;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.Hibernate;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 
 /**
@@ -27,6 +37,11 @@ public class ProductService implements IProductService {
     // because Lombok's @RequiredArgsConstructor will do it for us
     private final ProductRepository _productRepository;
     private final ICategoryService _categoryService;
+    private final ProductCountCache _productCountCache;
+    private final HotProductInventory _hotProductInventory;
+    private final CatalogCache _catalogCache;
+    private final ImageContentCleaner _imageContentCleaner;
+    private final IStockReservationService _stockReservationService;
 
     /**
      * Add a new product.
@@ -58,7 +73,9 @@ public class ProductService implements IProductService {
                     request.getDescription(),
                     category
             );
-            return _productRepository.save(newProduct);
+            Product savedProduct = _productRepository.save(newProduct);
+            evictProductCaches(savedProduct.getId());
+            return savedProduct;
         } catch (RuntimeException e) {
             throw e;
         } catch (Exception e) {
@@ -79,7 +96,7 @@ public class ProductService implements IProductService {
     public Product updateProduct(UpdateProductRequestDto request, Long productId) {
         try {
             // Check if the product exists
-            return _productRepository.findById(productId)
+            Product updatedProduct = _productRepository.findById(productId)
                     .map(existingProduct -> {
                         existingProduct.setName(request.getName());
                         existingProduct.setBrand(request.getBrand());
@@ -95,6 +112,8 @@ public class ProductService implements IProductService {
                     })
                     .map(_productRepository::save)
                     .orElseThrow(() -> new NotFoundException("Product not found"));
+            evictProductCaches(productId);
+            return updatedProduct;
         } catch (RuntimeException e) {
             throw e;
         } catch (Exception e) {
@@ -104,14 +123,21 @@ public class ProductService implements IProductService {
 
 
     /**
-     * Get all products.
+     * Get a page of all products, ordered by id.
      *
+     * @param after Id of the last product of the previous page (0 for the first page).
+     * @param limit Maximum number of products to return.
      * @return List of Product objects containing product details.
      */
     @Override
-    public List<Product> getAllProducts() {
+    public List<Product> getAllProducts(long after, int limit) {
         try {
-            return _productRepository.findAll();
+            return _catalogCache.getProductPage(after, limit, () -> {
+                List<Product> products = _productRepository.findByIdGreaterThanOrderByIdAsc(after, Limit.of(limit));
+                // cached products are detached, so load the images of the page (one batch) before caching them
+                products.forEach(product -> Hibernate.initialize(product.getImages()));
+                return products;
+            });
         } catch (Exception e) {
             throw new RuntimeException("Failed to fetch products: " + e.getMessage(), e);
         }
@@ -128,8 +154,8 @@ public class ProductService implements IProductService {
     @Override
     public Product getProductById(Long id) {
         try {
-            return _productRepository.findById(id)
-                    .orElseThrow(() -> new NotFoundException("Product not found"));
+            return _catalogCache.getProduct(id, productId -> _productRepository.findWithDetailsById(productId)
+                    .orElseThrow(() -> new NotFoundException("Product not found")));
         } catch (RuntimeException e) {
             throw e;
         } catch (Exception e) {
@@ -148,9 +174,15 @@ public class ProductService implements IProductService {
     public void deleteProduct(Long id) {
         try {
             _productRepository.findById(id)
-                    .ifPresentOrElse(_productRepository::delete, () -> {
+                    .ifPresentOrElse(product -> {
+                        // the images are deleted with the product, their content is released afterwards
+                        List<String> contentHashes = product.getImages().stream().flatMap(image -> image.getContentHashes().stream()).toList();
+                        _productRepository.delete(product);
+                        _imageContentCleaner.deleteUnreferenced(contentHashes);
+                    }, () -> {
                         throw new NotFoundException("Product not found");
                     });
+            evictProductCaches(id);
         } catch (RuntimeException e) {
             throw e;
         } catch (Exception e) {
@@ -160,24 +192,24 @@ public class ProductService implements IProductService {
 
 
     /**
-     * Get filtered products.
+     * Get a page of filtered products, ordered by id.
      *
      * @param filters A map containing all the filter parameters (category, brand, name, etc.)
+     * @param after   Id of the last product of the previous page (0 for the first page).
+     * @param limit   Maximum number of products to return.
      * @return List of Product objects containing the filtered products.
      */
     @Override
-    public List<Product> getFilteredProducts(Map<String, String> filters) {
+    public List<Product> getFilteredProducts(Map<String, String> filters, long after, int limit) {
         try {
-            String category = filters.get("category");
-            String brand = filters.get("brand");
-            String name = filters.get("name");
-
-            // Use a stream to filter based on available parameters
-            return _productRepository.findAll().stream()
-                    .filter(product -> (category == null || product.getCategory().getName().equals(category)))
-                    .filter(product -> (brand == null || product.getBrand().equals(brand)))
-                    .filter(product -> (name == null || product.getName().contains(name)))
-                    .collect(Collectors.toList());
+            // Let the database apply the filters that are present, one keyset page at a time
+            Specification<Product> specification = ProductSpecifications.fromFilters(filters)
+                    .and(ProductSpecifications.idGreaterThan(after));
+            return _productRepository.findBy(specification, query -> query
+                    .project("category")
+                    .sortBy(Sort.by(Sort.Direction.ASC, "id"))
+                    .limit(limit)
+                    .all());
         } catch (Exception e) {
             throw new RuntimeException("Failed to filter products: " + e.getMessage(), e);
         }
@@ -192,15 +224,12 @@ public class ProductService implements IProductService {
      */
     @Override
     public Long countProducts(Map<String, String> filters) {
-        String category = filters.get("category");
-        String brand = filters.get("brand");
-        String name = filters.get("name");
         try {
-            return _productRepository.findAll().stream()
-                    .filter(product -> (category == null || product.getCategory().getName().equals(category)))
-                    .filter(product -> (brand == null || product.getBrand().equals(brand)))
-                    .filter(product -> (name == null || product.getName().contains(name)))
-                    .count();
+            // Same predicates as the filter endpoint, executed as SELECT COUNT(*)
+            return _productCountCache.get(
+                    ProductSpecifications.normalizeFilters(filters),
+                    normalized -> _productRepository.count(ProductSpecifications.fromFilters(normalized))
+            );
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
@@ -216,9 +245,39 @@ public class ProductService implements IProductService {
     @Override
     public Product saveProduct(Product product) {
         try {
-            return _productRepository.save(product);
+            Product savedProduct = _productRepository.save(product);
+            evictProductCaches(savedProduct.getId());
+            return savedProduct;
         } catch (Exception e) {
             throw new RuntimeException("Failed to save product: " + e.getMessage(), e);
         }
     }
+
+
+    /**
+     * Convert a product to its response, with the quantity available to sell.
+     *
+     * @param product Product object containing the product details.
+     * @return ProductResponseDto object containing the product details and the available-to-sell quantity.
+     */
+    @Override
+    public ProductResponseDto toProductResponse(Product product) {
+        ProductResponseDto response = product.toProductResponse();
+        response.setAvailableToSell(_stockReservationService.getAvailableToSell(product));
+        return response;
+    }
+
+
+
+    /**
+     * Evict the cached catalog entries and counts affected by a change of the given product.
+     *
+     * @param productId Long ID of the added, updated or deleted product.
+     */
+    private void evictProductCaches(Long productId) {
+        _catalogCache.evictProduct(productId);
+        _productCountCache.invalidateAll();
+        // the in-memory stock of a hot product is reloaded from the saved inventory
+        _hotProductInventory.invalidate(productId);
+    }
 }
@@ -0,0 +1,177 @@
+package com.sasindu.shoppingcart.services;
+
+import com.sasindu.shoppingcart.abstractions.interfaces.IRefreshTokenService;
+import com.sasindu.shoppingcart.cache.RevokedRefreshTokenFilter;
+import com.sasindu.shoppingcart.exceptions.UnAuthorizedException;
+import com.sasindu.shoppingcart.helpers.TransactionHelper;
+import com.sasindu.shoppingcart.models.AppUser;
+import com.sasindu.shoppingcart.models.RefreshToken;
+import com.sasindu.shoppingcart.repository.RefreshTokenRepository;
+import com.sasindu.shoppingcart.security.jwt.JWTUtils;
+import com.sasindu.shoppingcart.security.jwt.RefreshTokenClaims;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.UUID;
+
+
+/**
+ * RefreshTokenService class is responsible for the refresh token families: every login starts a family, every refresh
+ * rotates the token, and a token that is presented again after its rotation (a stolen token) revokes its family
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RefreshTokenService implements IRefreshTokenService {
+    private final RefreshTokenRepository _refreshTokenRepository;
+    private final RevokedRefreshTokenFilter _revokedRefreshTokenFilter;
+    private final JWTUtils _jwtUtils;
+
+
+    /**
+     * Issue the first refresh token of a new family (login)
+     *
+     * @param user - AppUser object
+     * @return refresh token
+     */
+    @Override
+    public String issueToken(AppUser user) {
+        try {
+            // the first token id is also the id of the family
+            String familyId = UUID.randomUUID().toString();
+            return createToken(user, familyId, familyId);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+
+    /**
+     * Rotate a refresh token: the presented token is revoked and a new token of the same family is issued
+     * presenting a token that was already rotated or revoked revokes its whole family
+     *
+     * @param claims - RefreshTokenClaims of the presented (verified) token
+     * @param user   - AppUser object of the token
+     * @return new refresh token
+     */
+    @Override
+    @Transactional(noRollbackFor = UnAuthorizedException.class)
+    public String rotateToken(RefreshTokenClaims claims, AppUser user) {
+        try {
+            String tokenId = claims.getTokenId();
+            if (tokenId == null || claims.getFamilyId() == null) {
+                // issued before the refresh tokens were tracked, the user has to login again
+                throw new UnAuthorizedException("Invalid refresh token");
+            }
+
+            // 1. Known revoked token, no need to try the rotation
+            if (_revokedRefreshTokenFilter.isRevoked(tokenId, _refreshTokenRepository::existsByIdAndRevokedTrue)) {
+                throw reuseDetected(claims);
+            }
+
+            // 2. Revoke the presented token, the check and the update are one statement so two concurrent
+            // refreshes with the same token cannot both succeed
+            String newTokenId = UUID.randomUUID().toString();
+            if (_refreshTokenRepository.revokeIfActive(tokenId, newTokenId) == 0) {
+                // revoked by another instance, or unknown
+                throw reuseDetected(claims);
+            }
+            // recorded once the revocation is committed, a rolled back rotation leaves the token usable
+            TransactionHelper.afterCommit(() -> _revokedRefreshTokenFilter.add(tokenId));
+
+            // 3. Issue the next token of the family
+            return createToken(user, claims.getFamilyId(), newTokenId);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+
+    /**
+     * Revoke the family of a refresh token (logout)
+     *
+     * @param claims - RefreshTokenClaims of the presented (verified) token
+     */
+    @Override
+    @Transactional
+    public void revokeFamily(RefreshTokenClaims claims) {
+        try {
+            if (claims.getFamilyId() == null) {
+                return;
+            }
+            _refreshTokenRepository.revokeFamily(claims.getFamilyId());
+            if (claims.getTokenId() != null) {
+                String tokenId = claims.getTokenId();
+                TransactionHelper.afterCommit(() -> _revokedRefreshTokenFilter.add(tokenId));
+            }
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+
+    /**
+     * Delete the expired refresh tokens and rebuild the revoked token lookup
+     * runs every refresh-token.purge-interval-ms
+     */
+    @Override
+    @Transactional
+    @Scheduled(fixedDelayString = "${refresh-token.purge-interval-ms:3600000}", initialDelayString = "${refresh-token.purge-interval-ms:3600000}")
+    public void purgeExpiredTokens() {
+        Instant now = Instant.now();
+        int deleted = _refreshTokenRepository.deleteExpired(now);
+        int tracked = _revokedRefreshTokenFilter.rebuild(() -> _refreshTokenRepository.findRevokedIdsExpiringAfter(now));
+        log.info("Purged {} expired refresh tokens, {} revoked tokens are tracked", deleted, tracked);
+    }
+
+
+    /**
+     * Load the revoked refresh tokens into the revoked token lookup on application startup
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadRevokedTokens() {
+        _revokedRefreshTokenFilter.rebuild(() -> _refreshTokenRepository.findRevokedIdsExpiringAfter(Instant.now()));
+    }
+
+
+    //! PRIVATE METHODS >>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>//
+
+    /**
+     * Persist and sign a new refresh token of a family
+     *
+     * @param user     AppUser object
+     * @param familyId id of the family
+     * @param tokenId  id of the new token
+     * @return refresh token
+     */
+    private String createToken(AppUser user, String familyId, String tokenId) {
+        Instant expiresAt = _jwtUtils.getRefreshTokenExpiration();
+        _refreshTokenRepository.save(new RefreshToken(tokenId, familyId, user.getId(), expiresAt));
+        return _jwtUtils.generateRefreshToken(user, tokenId, familyId, expiresAt);
+    }
+
+
+    /**
+     * Revoke the family of a reused token
+     *
+     * @param claims RefreshTokenClaims of the reused token
+     * @return the exception to throw
+     */
+    private UnAuthorizedException reuseDetected(RefreshTokenClaims claims) {
+        int revoked = _refreshTokenRepository.revokeFamily(claims.getFamilyId());
+        log.warn("Refresh token reuse detected for user {}, revoked {} tokens of its family", claims.getUserId(), revoked);
+        return new UnAuthorizedException("Invalid refresh token");
+    }
+}
@@ -0,0 +1,176 @@
+package com.sasindu.shoppingcart.services;
+
+import com.sasindu.shoppingcart.abstractions.interfaces.IStockReservationService;
+import com.sasindu.shoppingcart.exceptions.BadRequestException;
+import com.sasindu.shoppingcart.helpers.TransactionHelper;
+import com.sasindu.shoppingcart.inventory.HotProductInventory;
+import com.sasindu.shoppingcart.inventory.StockReservationIndex;
+import com.sasindu.shoppingcart.models.Product;
+import com.sasindu.shoppingcart.models.StockReservation;
+import com.sasindu.shoppingcart.repository.StockReservationRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+
+/**
+ * StockReservationService class is responsible for holding stock for the carts
+ * <p>
+ * Adding a product to the cart holds its quantity for inventory.reservations.hold-minutes, so the stock the customer
+ * sees at add time is still there at checkout. A hold is kept in the stock_reservations table and in the in-memory
+ * index (see StockReservationIndex), the table is only read on startup. The sweeper releases the expired holds in
+ * batches. The index is local to the instance, the holds are not shared between instances.
+ * The stock of a hot product is read from HotProductInventory, the products table lags behind it.
+ */
+@Slf4j
+@Service
+public class StockReservationService implements IStockReservationService {
+    private final StockReservationRepository _stockReservationRepository;
+    private final StockReservationIndex _stockReservationIndex;
+    private final HotProductInventory _hotProductInventory;
+    private final Duration _holdDuration;
+    private final int _sweepBatchSize;
+
+    public StockReservationService(
+            StockReservationRepository stockReservationRepository,
+            StockReservationIndex stockReservationIndex,
+            HotProductInventory hotProductInventory,
+            @Value("${inventory.reservations.hold-minutes:15}") long holdMinutes,
+            @Value("${inventory.reservations.sweep-batch-size:1000}") int sweepBatchSize
+    ) {
+        this._stockReservationRepository = stockReservationRepository;
+        this._stockReservationIndex = stockReservationIndex;
+        this._hotProductInventory = hotProductInventory;
+        this._holdDuration = Duration.ofMinutes(holdMinutes);
+        this._sweepBatchSize = sweepBatchSize;
+    }
+
+
+    /**
+     * Hold stock of a product for the cart of a user, for inventory.reservations.hold-minutes
+     * the hold is set to the given quantity (the quantity of the product in the cart) and its expiration is renewed
+     *
+     * @param userId   - id of the user
+     * @param product  - Product object
+     * @param quantity - quantity to hold, 0 releases the hold
+     * @throws BadRequestException if the available stock is not enough
+     */
+    @Override
+    @Transactional
+    public void holdStock(Long userId, Product product, int quantity) {
+        try {
+            if (quantity < 0) {
+                throw new BadRequestException("Quantity should be greater than 0");
+            }
+            Long productId = product.getId();
+            Instant expiresAt = Instant.now().plus(_holdDuration);
+            StockReservationIndex.HeldStock replaced = _stockReservationIndex.hold(userId, productId, quantity, inventory(product), expiresAt);
+            if (replaced == null) {
+                throw new BadRequestException("Inventory is not enough for product: " + product.getName());
+            }
+            // the index is changed before the commit, the replaced hold is put back if the transaction is rolled back
+            TransactionHelper.afterRollback(() -> _stockReservationIndex.undo(userId, productId, quantity, expiresAt, replaced));
+
+            if (quantity == 0) {
+                _stockReservationRepository.deleteByUserIdAndProductIds(userId, List.of(productId));
+            } else {
+                _stockReservationRepository.upsert(userId, productId, quantity, expiresAt);
+            }
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+
+    /**
+     * Release the holds of a user on the given products, once the current transaction is committed
+     *
+     * @param userId     - id of the user
+     * @param productIds - ids of the products
+     */
+    @Override
+    @Transactional
+    public void releaseStock(Long userId, Collection<Long> productIds) {
+        try {
+            if (productIds.isEmpty()) {
+                return;
+            }
+            List<Long> ids = List.copyOf(productIds);
+            _stockReservationRepository.deleteByUserIdAndProductIds(userId, ids);
+            TransactionHelper.afterCommit(() -> ids.forEach(productId -> _stockReservationIndex.release(userId, productId)));
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+
+    /**
+     * Get the available-to-sell quantity of a product: its inventory minus the active holds
+     *
+     * @param product - Product object
+     * @return available-to-sell quantity
+     */
+    @Override
+    public long getAvailableToSell(Product product) {
+        return Math.max(0, inventory(product) - _stockReservationIndex.getHeldQuantity(product.getId()));
+    }
+
+
+    /**
+     * Release the expired holds in batches, runs every inventory.reservations.sweep-interval-ms
+     */
+    @Override
+    @Transactional
+    @Scheduled(fixedDelayString = "${inventory.reservations.sweep-interval-ms:1000}")
+    public void releaseExpiredHolds() {
+        int released = 0;
+        int batch;
+        do {
+            batch = _stockReservationIndex.releaseExpired(_sweepBatchSize);
+            released += batch;
+        } while (batch == _sweepBatchSize);
+        if (released > 0) {
+            _stockReservationRepository.deleteExpired(Instant.now());
+            log.debug("Released {} expired stock holds", released);
+        }
+    }
+
+
+    /**
+     * Load the active holds into the in-memory index on application startup
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void loadHolds() {
+        Instant now = Instant.now();
+        _stockReservationRepository.deleteExpired(now);
+        List<StockReservation> reservations = _stockReservationRepository.findAllByExpiresAtAfter(now);
+        reservations.forEach(reservation -> _stockReservationIndex.restore(
+                reservation.getUserId(), reservation.getProductId(), reservation.getQuantity(), reservation.getExpiresAt()
+        ));
+        log.info("Loaded {} active stock holds", reservations.size());
+    }
+
+
+    //! PRIVATE METHODS >>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>//
+
+    private long inventory(Product product) {
+        if (_hotProductInventory.isHot(product.getId())) {
+            return _hotProductInventory.getStock(product.getId());
+        }
+        return product.getInventory();
+    }
+}
@@ -3,6 +3,7 @@ package com.sasindu.shoppingcart.services;
 import com.sasindu.shoppingcart.abstractions.dto.request.user.UpdateUserRequestDto;
 import com.sasindu.shoppingcart.abstractions.interfaces.IAuthService;
 import com.sasindu.shoppingcart.abstractions.interfaces.IUserService;
+import com.sasindu.shoppingcart.cache.UserCache;
 import com.sasindu.shoppingcart.exceptions.NotFoundException;
 import com.sasindu.shoppingcart.exceptions.UnAuthorizedException;
 import com.sasindu.shoppingcart.models.AppUser;
@@ -16,9 +17,10 @@ import org.springframework.stereotype.Service;
 public class UserService implements IUserService {
     private final UserRepository _userRepository;
     private final IAuthService _authService;
+    private final UserCache _userCache;
 
     /**
-     * Get user by id
+     * Get user by id, through the user cache (the returned user must not be modified)
      *
      * @param id - id of the user
      * @return User if found, null if not found
@@ -29,7 +31,11 @@ public class UserService implements IUserService {
             if (!_authService.isAuthenticatedUserAdmin() && !_authService.checkLoggedInUserWithId(id)) {
                 throw new UnAuthorizedException("Unauthorized access");
             }
-            return _userRepository.findById(id).orElseThrow(() -> new NotFoundException("User not found"));
+            AppUser user = _userCache.getById(id, userId -> _userRepository.findById(userId).orElse(null));
+            if (user == null) {
+                throw new NotFoundException("User not found");
+            }
+            return user;
         } catch (RuntimeException e) {
             throw e;
         } catch (Exception e) {
@@ -56,7 +62,9 @@ public class UserService implements IUserService {
                     .map(user -> {
                         user.setFirstName(request.getFirstName());
                         user.setLastName(request.getLastName());
-                        return _userRepository.save(user);
+                        AppUser savedUser = _userRepository.save(user);
+                        _userCache.invalidate(userId);
+                        return savedUser;
                     })
                     .orElseThrow(() -> new NotFoundException("User not found"));
         } catch (RuntimeException e) {
@@ -88,6 +96,7 @@ public class UserService implements IUserService {
                                 throw new NotFoundException("User not found");
                             }
                     );
+            _userCache.invalidate(id);
             if (isLoggedInUserOwner) {
                 _authService.setCookies(null, response);
             }
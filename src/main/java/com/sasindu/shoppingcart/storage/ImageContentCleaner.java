@@ -0,0 +1,90 @@
+package com.sasindu.shoppingcart.storage;
+
+import com.sasindu.shoppingcart.abstractions.interfaces.IImageStorage;
+import com.sasindu.shoppingcart.repository.ImageRepository;
+import com.sasindu.shoppingcart.repository.ImageVariantRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Deletes stored image content once no image or image variant references it anymore
+ * content is shared by every image with the same hash (deduplicated uploads), so it is only deleted with the last one
+ * <p>
+ * An upload stores its content before its image is saved, so content stored again in the last
+ * image.storage.delete-grace-minutes is kept even if no saved image references it yet. Kept content is checked again
+ * once the grace period is over.
+ */
+@Slf4j
+@Component
+public class ImageContentCleaner {
+    private final ImageRepository _imageRepository;
+    private final ImageVariantRepository _imageVariantRepository;
+    private final IImageStorage _imageStorage;
+    private final Duration _gracePeriod;
+    // released contents that were stored again recently, checked again by the next sweep
+    private final Set<String> _deferred = ConcurrentHashMap.newKeySet();
+
+    public ImageContentCleaner(
+            ImageRepository imageRepository,
+            ImageVariantRepository imageVariantRepository,
+            IImageStorage imageStorage,
+            @Value("${image.storage.delete-grace-minutes:10}") long gracePeriodMinutes
+    ) {
+        this._imageRepository = imageRepository;
+        this._imageVariantRepository = imageVariantRepository;
+        this._imageStorage = imageStorage;
+        this._gracePeriod = Duration.ofMinutes(gracePeriodMinutes);
+    }
+
+
+    /**
+     * Delete the given contents that are no longer referenced, called after the images were deleted or replaced
+     * a failed delete only leaves an orphaned file behind, so it is logged instead of failing the request
+     *
+     * @param contentHashes hashes of the released contents
+     */
+    public void deleteUnreferenced(Collection<String> contentHashes) {
+        Instant storedBefore = Instant.now().minus(_gracePeriod);
+        contentHashes.stream()
+                .filter(Objects::nonNull)
+                .distinct()
+                .filter(contentHash -> !_imageRepository.existsByContentHash(contentHash)
+                        && !_imageVariantRepository.existsByContentHash(contentHash))
+                .forEach(contentHash -> {
+                    try {
+                        if (!_imageStorage.delete(contentHash, storedBefore)) {
+                            _deferred.add(contentHash);
+                        }
+                    } catch (IOException e) {
+                        log.warn("Failed to delete image content {}", contentHash, e);
+                    }
+                });
+    }
+
+
+    /**
+     * Check the kept contents again, runs every image.storage.delete-grace-minutes
+     */
+    @Scheduled(fixedDelayString = "${image.storage.delete-grace-minutes:10}", timeUnit = TimeUnit.MINUTES)
+    public void deleteDeferred() {
+        if (_deferred.isEmpty()) {
+            return;
+        }
+        List<String> contentHashes = List.copyOf(_deferred);
+        _deferred.removeAll(contentHashes);
+        deleteUnreferenced(contentHashes);
+    }
+}
@@ -0,0 +1,185 @@
+package com.sasindu.shoppingcart.storage;
+
+import com.sasindu.shoppingcart.abstractions.interfaces.IImageStorage;
+import com.sasindu.shoppingcart.exceptions.NotFoundException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.PathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+
+/**
+ * Local disk implementation of IImageStorage
+ * <p>
+ * Content is written to {root}/{hash[0..2]}/{hash[2..4]}/{hash}, the two shard levels keep every directory small.
+ * Uploads are first written to {root}/tmp while the hash is computed, then moved in place with an atomic rename,
+ * so a reader never sees a partially written file. When the target already exists, the upload is a duplicate: the
+ * temporary file is dropped and the modification time of the target is renewed, it is the time the content was last
+ * stored. A delete only removes content last stored before a given instant (see ImageContentCleaner), so content
+ * shared by an upload in progress is kept, and a duplicate whose target was deleted meanwhile is stored again.
+ */
+@Component
+public class LocalDiskImageStorage implements IImageStorage {
+    private static final String HASH_ALGORITHM = "SHA-256";
+    private static final Pattern HASH_PATTERN = Pattern.compile("[0-9a-f]{64}");
+    private static final String TEMP_DIRECTORY = "tmp";
+
+    private final Path _root;
+    private final Path _tempDirectory;
+
+    public LocalDiskImageStorage(@Value("${image.storage.root:./data/images}") String root) throws IOException {
+        this._root = Path.of(root).toAbsolutePath().normalize();
+        this._tempDirectory = _root.resolve(TEMP_DIRECTORY);
+        Files.createDirectories(_tempDirectory);
+    }
+
+
+    /**
+     * Store the content, hashing it while it is copied to a temporary file
+     *
+     * @param content InputStream of the image content, it is not closed by this method
+     * @return StoredContent object containing the hash and the size of the content
+     * @throws IOException if the content cannot be read or stored
+     */
+    @Override
+    public StoredContent store(InputStream content) throws IOException {
+        MessageDigest digest = newDigest();
+        Path tempFile = Files.createTempFile(_tempDirectory, "upload-", ".tmp");
+        try {
+            long contentLength;
+            try (OutputStream out = new DigestOutputStream(Files.newOutputStream(tempFile), digest)) {
+                contentLength = content.transferTo(out);
+            }
+
+            String contentHash = HexFormat.of().formatHex(digest.digest());
+            Path target = resolve(contentHash);
+            while (!renew(target)) {
+                Files.createDirectories(target.getParent());
+                try {
+                    Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE);
+                    break;
+                } catch (FileAlreadyExistsException e) {
+                    // the same content was stored concurrently, keep that copy
+                }
+            }
+            return new StoredContent(contentHash, contentLength);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+
+    /**
+     * Load the stored content
+     *
+     * @param contentHash String value of the SHA-256 hash of the content
+     * @return Resource object pointing to the stored content
+     */
+    @Override
+    public Resource load(String contentHash) {
+        Path path = resolve(contentHash);
+        if (!Files.isReadable(path)) {
+            throw new NotFoundException("Image content not found");
+        }
+        return new PathResource(path);
+    }
+
+
+    /**
+     * Delete the stored content unless it was stored at or after the given instant, missing content is ignored
+     * recent content is kept without being moved, so it stays readable. Old content is moved aside and checked again
+     * before it is deleted: a duplicate upload either renewed it before the move (it is moved back) or finds it
+     * missing and stores it again
+     *
+     * @param contentHash  String value of the SHA-256 hash of the content
+     * @param storedBefore Instant value, content stored at or after it is not deleted
+     * @return true if the content was deleted or is missing, false if it was kept
+     * @throws IOException if the content cannot be deleted
+     */
+    @Override
+    public boolean delete(String contentHash, Instant storedBefore) throws IOException {
+        Path target = resolve(contentHash);
+        try {
+            if (!Files.getLastModifiedTime(target).toInstant().isBefore(storedBefore)) {
+                return false;
+            }
+        } catch (NoSuchFileException e) {
+            return true;
+        }
+        Path deleting = _tempDirectory.resolve("delete-" + UUID.randomUUID() + ".tmp");
+        try {
+            Files.move(target, deleting, StandardCopyOption.ATOMIC_MOVE);
+        } catch (NoSuchFileException e) {
+            return true;
+        }
+        try {
+            // renewed between the check and the move
+            if (!Files.getLastModifiedTime(deleting).toInstant().isBefore(storedBefore)) {
+                try {
+                    Files.move(deleting, target, StandardCopyOption.ATOMIC_MOVE);
+                } catch (FileAlreadyExistsException e) {
+                    // stored again while it was moved aside, that copy is kept
+                }
+                return false;
+            }
+            return true;
+        } finally {
+            Files.deleteIfExists(deleting);
+        }
+    }
+
+
+    /**
+     * Resolve the sharded path of the content, the hash is validated so it cannot escape the root directory
+     */
+    private Path resolve(String contentHash) {
+        if (contentHash == null || !HASH_PATTERN.matcher(contentHash).matches()) {
+            throw new IllegalArgumentException("Invalid image content hash: " + contentHash);
+        }
+        return _root
+                .resolve(contentHash.substring(0, 2))
+                .resolve(contentHash.substring(2, 4))
+                .resolve(contentHash);
+    }
+
+
+    /**
+     * Renew the modification time of stored content
+     *
+     * @return false if the content is not stored
+     */
+    private static boolean renew(Path target) throws IOException {
+        try {
+            Files.setLastModifiedTime(target, FileTime.from(Instant.now()));
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(HASH_ALGORITHM + " is not available", e);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.sasindu.shoppingcart.storage;
+
+
+/**
+ * Result of storing image content
+ *
+ * @param contentHash   hex encoded SHA-256 hash of the content, used as its address
+ * @param contentLength size of the content in bytes
+ */
+public record StoredContent(String contentHash, long contentLength) {
+}
@@ -0,0 +1,128 @@
+package com.sasindu.shoppingcart.cache;
+
+import com.sasindu.shoppingcart.models.Category;
+import com.sasindu.shoppingcart.models.Image;
+import com.sasindu.shoppingcart.models.Product;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CatalogCacheTest {
+    private final CatalogCache _catalogCache = new CatalogCache(300, 100, new SimpleMeterRegistry());
+    private final Category _phones = category(1L, "phones");
+    private final Category _laptops = category(2L, "laptops");
+
+    @Test
+    void productIsLoadedOnceUntilEvicted() {
+        AtomicInteger loads = new AtomicInteger();
+
+        _catalogCache.getProduct(1L, id -> countingLoad(loads, product(id, _phones)));
+        _catalogCache.getProduct(1L, id -> countingLoad(loads, product(id, _phones)));
+        assertThat(loads).hasValue(1);
+
+        _catalogCache.evictProduct(1L);
+        _catalogCache.getProduct(1L, id -> countingLoad(loads, product(id, _phones)));
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void evictingAProductEvictsOnlyThePagesThatCoverIt() {
+        AtomicInteger firstPageLoads = new AtomicInteger();
+        AtomicInteger secondPageLoads = new AtomicInteger();
+        Supplier<List<Product>> firstPage = () -> countingLoad(firstPageLoads, List.of(product(1L, _phones), product(2L, _phones)));
+        Supplier<List<Product>> secondPage = () -> countingLoad(secondPageLoads, List.of(product(3L, _phones), product(4L, _phones)));
+        _catalogCache.getProductPage(0, 2, firstPage);
+        _catalogCache.getProductPage(2, 2, secondPage);
+
+        _catalogCache.evictProduct(3L);
+        _catalogCache.getProductPage(0, 2, firstPage);
+        _catalogCache.getProductPage(2, 2, secondPage);
+
+        assertThat(firstPageLoads).hasValue(1);
+        assertThat(secondPageLoads).hasValue(2);
+    }
+
+    @Test
+    void newProductEvictsTheLastPage() {
+        AtomicInteger loads = new AtomicInteger();
+        Supplier<List<Product>> lastPage = () -> countingLoad(loads, List.of(product(1L, _phones)));
+        _catalogCache.getProductPage(0, 2, lastPage);
+
+        // a product added after the last page belongs to it
+        _catalogCache.evictProduct(10L);
+        _catalogCache.getProductPage(0, 2, lastPage);
+
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void evictingACategoryEvictsItsProductsOnly() {
+        AtomicInteger loads = new AtomicInteger();
+        _catalogCache.getProduct(1L, id -> countingLoad(loads, product(id, _phones)));
+        _catalogCache.getProduct(2L, id -> countingLoad(loads, product(id, _laptops)));
+
+        _catalogCache.evictCategory(_phones.getId(), _phones.getName());
+        _catalogCache.getProduct(1L, id -> countingLoad(loads, product(id, _phones)));
+        _catalogCache.getProduct(2L, id -> countingLoad(loads, product(id, _laptops)));
+
+        assertThat(loads).hasValue(3);
+    }
+
+    @Test
+    void everyReadGetsItsOwnCopy() {
+        Image image = new Image();
+        image.setId(5L);
+        image.setContentHash("hash");
+        Product loaded = product(1L, _phones);
+        loaded.setImages(List.of(image));
+
+        Product first = _catalogCache.getProduct(1L, id -> loaded);
+        first.setName("changed");
+        first.getCategory().setName("changed");
+        first.getImages().clear();
+        Product second = _catalogCache.getProduct(1L, id -> loaded);
+
+        assertThat(second).isNotSameAs(first);
+        assertThat(second.getName()).isEqualTo("product 1");
+        assertThat(second.getCategory().getName()).isEqualTo("phones");
+        assertThat(second.getImages()).singleElement().satisfies(copy -> {
+            assertThat(copy.getDownloadUrl()).isEqualTo(image.getDownloadUrl());
+            assertThat(copy.getProduct()).isSameAs(second);
+        });
+    }
+
+    @Test
+    void missingCategoryIsNotCached() {
+        AtomicInteger loads = new AtomicInteger();
+
+        _catalogCache.getCategoryByName("tablets", name -> countingLoad(loads, null));
+        _catalogCache.getCategoryByName("tablets", name -> countingLoad(loads, null));
+
+        assertThat(loads).hasValue(2);
+    }
+
+
+    private static <T> T countingLoad(AtomicInteger loads, T value) {
+        loads.incrementAndGet();
+        return value;
+    }
+
+
+    private static Category category(Long id, String name) {
+        Category category = new Category(name);
+        category.setId(id);
+        return category;
+    }
+
+
+    private static Product product(Long id, Category category) {
+        Product product = new Product("product " + id, "brand", null, 1, null, category);
+        product.setId(id);
+        return product;
+    }
+}
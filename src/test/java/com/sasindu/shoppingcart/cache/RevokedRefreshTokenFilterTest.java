@@ -0,0 +1,117 @@
+package com.sasindu.shoppingcart.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RevokedRefreshTokenFilterTest {
+    private static final Predicate<String> NOT_IN_DATABASE = tokenId -> false;
+
+    @Test
+    void addedTokensAreNeverMissed() {
+        // far more ids than the filter is sized for, the false positive rate grows but a revoked id is never missed
+        RevokedRefreshTokenFilter filter = filter(1000);
+        List<String> tokenIds = tokenIds(10000);
+        Set<String> database = new HashSet<>(tokenIds);
+        tokenIds.forEach(filter::add);
+
+        RevokedRefreshTokenFilter rebuilt = filter(1000);
+        rebuilt.rebuild(() -> tokenIds);
+
+        for (String tokenId : tokenIds) {
+            assertThat(filter.isRevoked(tokenId, database::contains)).isTrue();
+            assertThat(rebuilt.isRevoked(tokenId, database::contains)).isTrue();
+        }
+    }
+
+    @Test
+    void tokensOutsideTheFilterAreAcceptedWithoutTheDatabase() {
+        RevokedRefreshTokenFilter filter = filter(100000);
+        tokenIds(100).forEach(filter::add);
+        AtomicInteger lookups = new AtomicInteger();
+
+        int revoked = 0;
+        for (String tokenId : tokenIds(10000)) {
+            if (filter.isRevoked(tokenId, countingLoader(lookups, false))) {
+                revoked++;
+            }
+        }
+
+        // the database answers for the false positives of the filter
+        assertThat(revoked).isZero();
+        assertThat(lookups.get()).isLessThan(200);
+    }
+
+    @Test
+    void confirmedTokensAreNotLookedUpAgain() {
+        RevokedRefreshTokenFilter filter = filter(1000);
+        List<String> tokenIds = tokenIds(10);
+        filter.rebuild(() -> tokenIds);
+        AtomicInteger lookups = new AtomicInteger();
+
+        assertThat(filter.isRevoked(tokenIds.get(0), countingLoader(lookups, true))).isTrue();
+        assertThat(filter.isRevoked(tokenIds.get(0), countingLoader(lookups, true))).isTrue();
+
+        assertThat(lookups).hasValue(1);
+    }
+
+    @Test
+    void tokensAddedWhileTheFilterIsRebuiltAreKept() {
+        RevokedRefreshTokenFilter filter = filter(1000);
+        String inFlight = UUID.randomUUID().toString();
+        String duringRebuild = UUID.randomUUID().toString();
+        // revoked before the rebuild, but committed after the ids are read
+        filter.add(inFlight);
+
+        filter.rebuild(() -> {
+            filter.add(duringRebuild);
+            return List.of();
+        });
+
+        assertThat(filter.isRevoked(inFlight, NOT_IN_DATABASE)).isTrue();
+        assertThat(filter.isRevoked(duringRebuild, NOT_IN_DATABASE)).isTrue();
+    }
+
+    @Test
+    void rebuildDropsTheTokensThatAreNoLongerRevoked() {
+        RevokedRefreshTokenFilter filter = filter(1000);
+        String expired = UUID.randomUUID().toString();
+        filter.add(expired);
+        filter.rebuild(List::of);
+        filter.rebuild(List::of);
+
+        // dropped from the filter after two rebuilds, the database is not asked
+        AtomicInteger lookups = new AtomicInteger();
+        assertThat(filter.isRevoked(expired, countingLoader(lookups, false))).isFalse();
+        assertThat(lookups).hasValue(0);
+    }
+
+
+    private static RevokedRefreshTokenFilter filter(long expectedEntries) {
+        return new RevokedRefreshTokenFilter(expectedEntries, 0.01, 100, new SimpleMeterRegistry());
+    }
+
+    private static List<String> tokenIds(int count) {
+        List<String> tokenIds = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            tokenIds.add(UUID.randomUUID().toString());
+        }
+        return tokenIds;
+    }
+
+    private static Predicate<String> countingLoader(AtomicInteger lookups, boolean revoked) {
+        return tokenId -> {
+            lookups.incrementAndGet();
+            return revoked;
+        };
+    }
+}
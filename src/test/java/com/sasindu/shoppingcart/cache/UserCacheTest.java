@@ -0,0 +1,94 @@
+package com.sasindu.shoppingcart.cache;
+
+import com.sasindu.shoppingcart.abstractions.enums.AppUserRole;
+import com.sasindu.shoppingcart.models.AppUser;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserCacheTest {
+    private final UserCache _userCache = new UserCache(300, 100, new SimpleMeterRegistry());
+
+    @Test
+    void userIsLoadedOnceUntilInvalidated() {
+        AtomicInteger loads = new AtomicInteger();
+
+        _userCache.getById(1L, id -> load(loads, user(id, AppUserRole.ROLE_USER)));
+        _userCache.getById(1L, id -> load(loads, user(id, AppUserRole.ROLE_USER)));
+        assertThat(loads).hasValue(1);
+
+        _userCache.invalidate(1L);
+        AppUser reloaded = _userCache.getById(1L, id -> load(loads, user(id, AppUserRole.ROLE_ADMIN)));
+        assertThat(loads).hasValue(2);
+        assertThat(reloaded.getRole()).isEqualTo(AppUserRole.ROLE_ADMIN);
+    }
+
+    @Test
+    void invalidationDropsTheEntryByEmail() {
+        AtomicInteger loads = new AtomicInteger();
+        // the first load only learns the id of the email
+        _userCache.getByEmail("user@example.com", email -> load(loads, user(1L, AppUserRole.ROLE_USER)));
+        _userCache.getByEmail("user@example.com", email -> load(loads, user(1L, AppUserRole.ROLE_USER)));
+        _userCache.getByEmail("user@example.com", email -> load(loads, user(1L, AppUserRole.ROLE_USER)));
+        assertThat(loads).hasValue(2);
+
+        _userCache.invalidate(1L);
+        AppUser reloaded = _userCache.getByEmail("user@example.com", email -> load(loads, user(1L, AppUserRole.ROLE_ADMIN)));
+        assertThat(loads).hasValue(3);
+        assertThat(reloaded.getRole()).isEqualTo(AppUserRole.ROLE_ADMIN);
+    }
+
+    @Test
+    void loadThatRacedWithAChangeIsNotServedAfterIt() {
+        // the user is changed while the old state is being loaded
+        AppUser stale = _userCache.getById(1L, id -> {
+            _userCache.invalidate(id);
+            return user(id, AppUserRole.ROLE_ADMIN);
+        });
+        AppUser fresh = _userCache.getById(1L, id -> user(id, AppUserRole.ROLE_USER));
+
+        assertThat(stale.getRole()).isEqualTo(AppUserRole.ROLE_ADMIN);
+        assertThat(fresh.getRole()).isEqualTo(AppUserRole.ROLE_USER);
+    }
+
+    @Test
+    void changesOfOtherUsersDoNotPreventCaching() {
+        AtomicInteger loads = new AtomicInteger();
+
+        _userCache.getById(1L, id -> {
+            _userCache.invalidate(2L);
+            return load(loads, user(id, AppUserRole.ROLE_USER));
+        });
+        _userCache.getById(1L, id -> load(loads, user(id, AppUserRole.ROLE_USER)));
+
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void missingUserIsNotCached() {
+        AtomicInteger loads = new AtomicInteger();
+
+        _userCache.getById(1L, id -> load(loads, null));
+        _userCache.getById(1L, id -> load(loads, null));
+
+        assertThat(loads).hasValue(2);
+    }
+
+
+    private static AppUser load(AtomicInteger loads, AppUser user) {
+        loads.incrementAndGet();
+        return user;
+    }
+
+
+    private static AppUser user(Long id, AppUserRole role) {
+        AppUser user = new AppUser();
+        user.setId(id);
+        user.setEmail("user@example.com");
+        user.setRole(role);
+        return user;
+    }
+}
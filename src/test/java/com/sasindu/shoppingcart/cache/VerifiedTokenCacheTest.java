@@ -0,0 +1,90 @@
+package com.sasindu.shoppingcart.cache;
+
+import com.sasindu.shoppingcart.security.jwt.AccessTokenClaims;
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class VerifiedTokenCacheTest {
+    private final VerifiedTokenCache _cache = new VerifiedTokenCache(100, new SimpleMeterRegistry());
+
+    @Test
+    void tokenIsVerifiedOnceWhileItIsValid() {
+        AtomicInteger verifications = new AtomicInteger();
+        Function<String, AccessTokenClaims> verifier = countingVerifier(verifications, Duration.ofMinutes(5));
+
+        _cache.get("token", verifier);
+        _cache.get("token", verifier);
+
+        assertThat(verifications).hasValue(1);
+        assertThat(_cache.getIfPresent("token")).isNotNull();
+        assertThat(_cache.getIfPresent("other token")).isNull();
+    }
+
+    @Test
+    void entryExpiresWithItsToken() throws InterruptedException {
+        AtomicInteger verifications = new AtomicInteger();
+        Function<String, AccessTokenClaims> verifier = countingVerifier(verifications, Duration.ofMillis(200));
+
+        _cache.get("token", verifier);
+        Thread.sleep(300);
+
+        assertThat(_cache.getIfPresent("token")).isNull();
+        _cache.get("token", verifier);
+        assertThat(verifications).hasValue(2);
+    }
+
+    @Test
+    void invalidTokensAreNotCached() {
+        AtomicInteger verifications = new AtomicInteger();
+        Function<String, AccessTokenClaims> verifier = token -> {
+            verifications.incrementAndGet();
+            throw new JwtException("invalid");
+        };
+
+        assertThatThrownBy(() -> _cache.get("token", verifier)).isInstanceOf(JwtException.class);
+        assertThatThrownBy(() -> _cache.get("token", verifier)).isInstanceOf(JwtException.class);
+        assertThat(verifications).hasValue(2);
+    }
+
+    @Test
+    void invalidateAllDropsEveryToken() {
+        AtomicInteger verifications = new AtomicInteger();
+        Function<String, AccessTokenClaims> verifier = countingVerifier(verifications, Duration.ofMinutes(5));
+        _cache.get("token", verifier);
+
+        _cache.invalidateAll();
+
+        assertThat(_cache.getIfPresent("token")).isNull();
+    }
+
+    @Test
+    void zeroSizeDisablesTheCache() {
+        VerifiedTokenCache disabled = new VerifiedTokenCache(0, new SimpleMeterRegistry());
+        AtomicInteger verifications = new AtomicInteger();
+        Function<String, AccessTokenClaims> verifier = countingVerifier(verifications, Duration.ofMinutes(5));
+
+        disabled.get("token", verifier);
+        disabled.get("token", verifier);
+
+        assertThat(verifications).hasValue(2);
+        assertThat(disabled.getIfPresent("token")).isNull();
+    }
+
+
+    private static Function<String, AccessTokenClaims> countingVerifier(AtomicInteger verifications, Duration lifetime) {
+        return token -> {
+            verifications.incrementAndGet();
+            return new AccessTokenClaims(1L, "user@example.com", List.of("ROLE_USER"), Instant.now().plus(lifetime));
+        };
+    }
+}
@@ -0,0 +1,142 @@
+package com.sasindu.shoppingcart.checkout;
+
+import com.sasindu.shoppingcart.abstractions.dto.response.order.OrderResponseDto;
+import com.sasindu.shoppingcart.abstractions.enums.CheckoutStatus;
+import com.sasindu.shoppingcart.abstractions.interfaces.IOrderService;
+import com.sasindu.shoppingcart.exceptions.BadRequestException;
+import com.sasindu.shoppingcart.exceptions.ServiceUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CheckoutPipelineTest {
+    private final IOrderService _orderService = mock(IOrderService.class);
+    private CheckoutPipeline _pipeline;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        _pipeline.shutdown();
+    }
+
+    @Test
+    void checkoutsOfAUserArePlacedInOrder() throws InterruptedException {
+        List<String> placed = Collections.synchronizedList(new ArrayList<>());
+        when(_orderService.placeOrder(anyString())).thenAnswer(invocation -> {
+            placed.add(invocation.getArgument(0));
+            return new OrderResponseDto();
+        });
+        _pipeline = pipeline(4, 1000);
+        _pipeline.start();
+
+        List<CheckoutTicket> tickets = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            long userId = i % 8;
+            tickets.add(_pipeline.submit(userId, userId + ":" + i));
+        }
+        for (CheckoutTicket ticket : tickets) {
+            awaitStatus(ticket, CheckoutStatus.COMPLETED);
+        }
+
+        Map<String, List<Integer>> placedByUser = new HashMap<>();
+        for (String key : placed) {
+            String[] parts = key.split(":");
+            placedByUser.computeIfAbsent(parts[0], user -> new ArrayList<>()).add(Integer.parseInt(parts[1]));
+        }
+        assertThat(placedByUser).hasSize(8);
+        placedByUser.values().forEach(sequence -> assertThat(sequence).isSorted().hasSize(25));
+    }
+
+    @Test
+    void fullPartitionIsRejectedWithRetryAfter() {
+        // not started, nothing is taken from the partition
+        _pipeline = pipeline(1, 2);
+        CheckoutTicket first = _pipeline.submit(1L, "a");
+        _pipeline.submit(2L, "b");
+
+        assertThatThrownBy(() -> _pipeline.submit(1L, "c"))
+                .isInstanceOfSatisfying(ServiceUnavailableException.class,
+                        e -> assertThat(e.getRetryAfterSeconds()).isEqualTo(2));
+        assertThat(_pipeline.getTicket(first.getId())).isSameAs(first);
+        assertThat(first.getStatus()).isEqualTo(CheckoutStatus.QUEUED);
+    }
+
+    @Test
+    void ticketMovesFromQueuedToCompleted() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        OrderResponseDto order = new OrderResponseDto();
+        when(_orderService.placeOrder(anyString())).thenAnswer(invocation -> {
+            release.await();
+            return order;
+        });
+        _pipeline = pipeline(1, 10);
+        CheckoutTicket ticket = _pipeline.submit(1L, "key");
+        assertThat(ticket.getStatus()).isEqualTo(CheckoutStatus.QUEUED);
+
+        _pipeline.start();
+        awaitStatus(ticket, CheckoutStatus.PROCESSING);
+        release.countDown();
+        awaitStatus(ticket, CheckoutStatus.COMPLETED);
+
+        assertThat(ticket.getOrder()).isSameAs(order);
+        assertThat(ticket.getError()).isNull();
+    }
+
+    @Test
+    void failedTicketReportsOnlyUserMessages() throws InterruptedException {
+        when(_orderService.placeOrder(eq("bad request")))
+                .thenThrow(new BadRequestException("Inventory is not enough for product: phone"));
+        when(_orderService.placeOrder(eq("unexpected")))
+                .thenThrow(new IllegalStateException("could not execute statement [insert into orders ...]"));
+        _pipeline = pipeline(1, 10);
+        _pipeline.start();
+
+        CheckoutTicket badRequest = _pipeline.submit(1L, "bad request");
+        CheckoutTicket unexpected = _pipeline.submit(1L, "unexpected");
+        awaitStatus(badRequest, CheckoutStatus.FAILED);
+        awaitStatus(unexpected, CheckoutStatus.FAILED);
+
+        assertThat(badRequest.getError()).isEqualTo("Inventory is not enough for product: phone");
+        assertThat(unexpected.getError()).isEqualTo("Internal server error");
+    }
+
+    @Test
+    void queuedCheckoutsFailOnShutdown() throws InterruptedException {
+        _pipeline = pipeline(1, 10);
+        CheckoutTicket ticket = _pipeline.submit(1L, "key");
+
+        _pipeline.shutdown();
+
+        assertThat(ticket.getStatus()).isEqualTo(CheckoutStatus.FAILED);
+        assertThatThrownBy(() -> _pipeline.submit(1L, "other")).isInstanceOf(ServiceUnavailableException.class);
+    }
+
+
+    private CheckoutPipeline pipeline(int partitions, int queueCapacity) {
+        return new CheckoutPipeline(_orderService, mock(PlatformTransactionManager.class), new SimpleMeterRegistry(),
+                partitions, queueCapacity, 2, 30, 1000);
+    }
+
+    private static void awaitStatus(CheckoutTicket ticket, CheckoutStatus status) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (ticket.getStatus() != status && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(ticket.getStatus()).isEqualTo(status);
+    }
+}
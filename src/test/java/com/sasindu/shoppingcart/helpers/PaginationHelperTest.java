@@ -0,0 +1,53 @@
+package com.sasindu.shoppingcart.helpers;
+
+import com.sasindu.shoppingcart.abstractions.dto.response.page.CursorPageResponseDto;
+import com.sasindu.shoppingcart.constants.ApplicationConstants;
+import com.sasindu.shoppingcart.exceptions.BadRequestException;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PaginationHelperTest {
+
+    @Test
+    void firstPageStartsAfterIdZero() {
+        assertThat(PaginationHelper.resolveCursor(null)).isZero();
+        assertThat(PaginationHelper.resolveCursor(42L)).isEqualTo(42L);
+    }
+
+    @Test
+    void negativeCursorIsRejected() {
+        assertThatThrownBy(() -> PaginationHelper.resolveCursor(-1L)).isInstanceOf(BadRequestException.class);
+    }
+
+    @Test
+    void limitDefaultsAndIsCapped() {
+        assertThat(PaginationHelper.resolveLimit(null)).isEqualTo(ApplicationConstants.DEFAULT_PAGE_SIZE);
+        assertThat(PaginationHelper.resolveLimit(5)).isEqualTo(5);
+        assertThat(PaginationHelper.resolveLimit(ApplicationConstants.MAXIMUM_PAGE_SIZE + 1)).isEqualTo(ApplicationConstants.MAXIMUM_PAGE_SIZE);
+    }
+
+    @Test
+    void nonPositiveLimitIsRejected() {
+        assertThatThrownBy(() -> PaginationHelper.resolveLimit(0)).isInstanceOf(BadRequestException.class);
+    }
+
+    @Test
+    void fullPageHasTheLastIdAsNextCursor() {
+        CursorPageResponseDto<Long> page = PaginationHelper.toCursorPage(List.of(3L, 7L, 9L), 3, Function.identity());
+
+        assertThat(page.getItems()).containsExactly(3L, 7L, 9L);
+        assertThat(page.getLimit()).isEqualTo(3);
+        assertThat(page.getNextCursor()).isEqualTo(9L);
+    }
+
+    @Test
+    void partialPageIsTheLastPage() {
+        assertThat(PaginationHelper.toCursorPage(List.of(3L, 7L), 3, Function.identity()).getNextCursor()).isNull();
+        assertThat(PaginationHelper.toCursorPage(List.<Long>of(), 3, Function.identity()).getNextCursor()).isNull();
+    }
+}
@@ -0,0 +1,221 @@
+package com.sasindu.shoppingcart.inventory;
+
+import com.sasindu.shoppingcart.models.Category;
+import com.sasindu.shoppingcart.models.Product;
+import com.sasindu.shoppingcart.repository.CategoryRepository;
+import com.sasindu.shoppingcart.repository.InventoryFlushRepository;
+import com.sasindu.shoppingcart.repository.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The in-memory stock of the hot products and its journal, flushed to H2 in committed transactions
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class HotProductInventoryTest {
+
+    @TempDir
+    private Path _journalDirectory;
+
+    @Autowired
+    private ProductRepository _productRepository;
+
+    @Autowired
+    private CategoryRepository _categoryRepository;
+
+    @Autowired
+    private InventoryFlushRepository _inventoryFlushRepository;
+
+    @Autowired
+    private PlatformTransactionManager _transactionManager;
+
+    @AfterEach
+    void tearDown() {
+        _inventoryFlushRepository.deleteAll();
+        _productRepository.deleteAll();
+        _categoryRepository.deleteAll();
+    }
+
+    @Test
+    void concurrentTakesNeverOversellAStock() throws Exception {
+        HotProductInventory.HotProductStock stock = new HotProductInventory.HotProductStock(1000, 8);
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Long>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < 16; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    long taken = 0;
+                    for (int j = 0; j < 1000; j++) {
+                        int quantity = ThreadLocalRandom.current().nextInt(1, 6);
+                        if (stock.tryTake(quantity)) {
+                            taken += quantity;
+                            // some orders are rolled back
+                            if (j % 10 == 0) {
+                                stock.give(quantity);
+                                taken -= quantity;
+                            }
+                        }
+                    }
+                    return taken;
+                }));
+            }
+            start.countDown();
+            long taken = 0;
+            for (Future<Long> future : futures) {
+                taken += future.get();
+            }
+
+            assertThat(taken + drain(stock)).isEqualTo(1000);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void takesSpreadOverSeveralStripesAreAllOrNothing() {
+        HotProductInventory.HotProductStock stock = new HotProductInventory.HotProductStock(10, 4);
+
+        assertThat(stock.tryTake(8)).isTrue();
+        assertThat(stock.tryTake(3)).isFalse();
+        assertThat(drain(stock)).isEqualTo(2);
+    }
+
+    @Test
+    void flushWritesTheTakenStock() throws IOException {
+        Long productId = product(10);
+        HotProductInventory inventory = inventory(productId);
+
+        assertThat(inventory.tryTake(productId, 3)).isTrue();
+        inventory.giveBack(productId, 1);
+        assertThat(inventory.getStock(productId)).isEqualTo(8);
+        inventory.flush();
+
+        assertThat(databaseInventory(productId)).isEqualTo(8);
+    }
+
+    @Test
+    void journalOfACrashIsReplayedOnStartup() throws IOException {
+        Long productId = product(10);
+        HotProductInventory crashed = inventory(productId);
+        crashed.tryTake(productId, 3);
+
+        HotProductInventory restarted = inventory(productId);
+
+        assertThat(databaseInventory(productId)).isEqualTo(7);
+        assertThat(restarted.tryTake(productId, 7)).isTrue();
+        assertThat(restarted.tryTake(productId, 1)).isFalse();
+    }
+
+    @Test
+    void flushedSegmentIsNotReplayedTwice() throws IOException {
+        Long productId = product(10);
+        HotProductInventory crashed = inventory(productId);
+        crashed.tryTake(productId, 3);
+        // crash after the flush is committed, before its segment is deleted
+        List<Path> segments = copySegments();
+        crashed.flush();
+        restoreSegments(segments);
+
+        inventory(productId);
+
+        assertThat(databaseInventory(productId)).isEqualTo(7);
+    }
+
+    @Test
+    void invalidatedDeltasAreNotReplayed() throws IOException {
+        Long productId = product(10);
+        HotProductInventory crashed = inventory(productId);
+        crashed.tryTake(productId, 2);
+        crashed.invalidate(productId);
+        crashed.tryTake(productId, 1);
+
+        inventory(productId);
+
+        assertThat(databaseInventory(productId)).isEqualTo(7);
+    }
+
+    @Test
+    void flushNeverTakesTheDatabaseInventoryBelowZero() throws IOException {
+        Long productId = product(10);
+        HotProductInventory inventory = inventory(productId);
+        inventory.tryTake(productId, 3);
+        // set lower behind the back of the in-memory stock
+        Product product = _productRepository.findById(productId).orElseThrow();
+        product.setInventory(1);
+        _productRepository.save(product);
+
+        inventory.flush();
+
+        assertThat(databaseInventory(productId)).isEqualTo(1);
+    }
+
+
+    private Long product(int inventory) {
+        Category category = _categoryRepository.save(new Category("category"));
+        return _productRepository.save(new Product("product", "brand", BigDecimal.TEN, inventory, "description", category)).getId();
+    }
+
+    private int databaseInventory(Long productId) {
+        return _productRepository.findById(productId).orElseThrow().getInventory();
+    }
+
+    private HotProductInventory inventory(Long productId) throws IOException {
+        HotProductInventory inventory = new HotProductInventory(true, List.of(productId), 4, _journalDirectory.toString(),
+                _productRepository, _inventoryFlushRepository, _transactionManager);
+        inventory.recover();
+        return inventory;
+    }
+
+    private List<Path> copySegments() throws IOException {
+        List<Path> copies = new ArrayList<>();
+        try (var files = Files.list(_journalDirectory)) {
+            for (Path file : files.toList()) {
+                Path copy = Files.copy(file, file.resolveSibling(file.getFileName() + ".copy"));
+                copies.add(copy);
+            }
+        }
+        return copies;
+    }
+
+    private static void restoreSegments(List<Path> copies) throws IOException {
+        for (Path copy : copies) {
+            String name = copy.getFileName().toString();
+            Files.move(copy, copy.resolveSibling(name.substring(0, name.length() - ".copy".length())));
+        }
+    }
+
+    private static long drain(HotProductInventory.HotProductStock stock) {
+        long remaining = 0;
+        while (stock.tryTake(1)) {
+            remaining++;
+        }
+        return remaining;
+    }
+}
@@ -0,0 +1,95 @@
+package com.sasindu.shoppingcart.inventory;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StockReservationIndexTest {
+    private static final Long PRODUCT_ID = 1L;
+
+    private final StockReservationIndex _index = new StockReservationIndex();
+
+    @Test
+    void holdsOfOtherUsersLimitTheAvailableStock() {
+        Instant expiresAt = Instant.now().plusSeconds(60);
+
+        assertThat(_index.hold(1L, PRODUCT_ID, 6, 10, expiresAt)).isEqualTo(StockReservationIndex.HeldStock.NONE);
+        assertThat(_index.hold(2L, PRODUCT_ID, 5, 10, expiresAt)).isNull();
+        assertThat(_index.hold(2L, PRODUCT_ID, 4, 10, expiresAt)).isNotNull();
+        // the own hold of a user is not counted against it
+        assertThat(_index.hold(1L, PRODUCT_ID, 6, 10, expiresAt)).isEqualTo(new StockReservationIndex.HeldStock(6, expiresAt));
+
+        assertThat(_index.getHeldQuantity(PRODUCT_ID)).isEqualTo(10);
+        assertThat(_index.getHeldQuantity(2L, PRODUCT_ID)).isEqualTo(4);
+    }
+
+    @Test
+    void expiredHoldsAreReleased() {
+        _index.hold(1L, PRODUCT_ID, 3, 10, Instant.now().minusSeconds(1));
+        _index.hold(2L, PRODUCT_ID, 4, 10, Instant.now().plusSeconds(60));
+
+        assertThat(_index.releaseExpired(100)).isEqualTo(1);
+
+        assertThat(_index.getHeldQuantity(PRODUCT_ID)).isEqualTo(4);
+        assertThat(_index.getHeldQuantity(1L, PRODUCT_ID)).isZero();
+    }
+
+    @Test
+    void renewedHoldIsNotReleasedByItsFormerExpiration() {
+        _index.hold(1L, PRODUCT_ID, 3, 10, Instant.now().minusSeconds(1));
+        _index.hold(1L, PRODUCT_ID, 5, 10, Instant.now().plusSeconds(60));
+
+        assertThat(_index.releaseExpired(100)).isZero();
+
+        assertThat(_index.getHeldQuantity(PRODUCT_ID)).isEqualTo(5);
+    }
+
+    @Test
+    void releaseExpiredStopsAtTheBatchSize() {
+        for (long userId = 1; userId <= 5; userId++) {
+            _index.hold(userId, PRODUCT_ID, 1, 10, Instant.now().minusSeconds(1));
+        }
+
+        assertThat(_index.releaseExpired(2)).isEqualTo(2);
+        assertThat(_index.releaseExpired(100)).isEqualTo(3);
+        assertThat(_index.getHeldQuantity(PRODUCT_ID)).isZero();
+    }
+
+    @Test
+    void undoPutsTheReplacedHoldBack() {
+        Instant previousExpiresAt = Instant.now().plusSeconds(30);
+        Instant expiresAt = Instant.now().plusSeconds(60);
+        _index.hold(1L, PRODUCT_ID, 2, 10, previousExpiresAt);
+        StockReservationIndex.HeldStock replaced = _index.hold(1L, PRODUCT_ID, 7, 10, expiresAt);
+
+        _index.undo(1L, PRODUCT_ID, 7, expiresAt, replaced);
+
+        assertThat(_index.getHeldQuantity(1L, PRODUCT_ID)).isEqualTo(2);
+        assertThat(_index.getHeldQuantity(PRODUCT_ID)).isEqualTo(2);
+    }
+
+    @Test
+    void undoOfANewHoldReleasesIt() {
+        Instant expiresAt = Instant.now().plusSeconds(60);
+        StockReservationIndex.HeldStock replaced = _index.hold(1L, PRODUCT_ID, 4, 10, expiresAt);
+
+        _index.undo(1L, PRODUCT_ID, 4, expiresAt, replaced);
+
+        assertThat(_index.getHeldQuantity(PRODUCT_ID)).isZero();
+        assertThat(_index.hold(2L, PRODUCT_ID, 10, 10, expiresAt)).isNotNull();
+    }
+
+    @Test
+    void undoKeepsALaterChange() {
+        Instant expiresAt = Instant.now().plusSeconds(60);
+        StockReservationIndex.HeldStock replaced = _index.hold(1L, PRODUCT_ID, 4, 10, expiresAt);
+        _index.hold(1L, PRODUCT_ID, 6, 10, expiresAt.plusSeconds(1));
+
+        _index.undo(1L, PRODUCT_ID, 4, expiresAt, replaced);
+
+        assertThat(_index.getHeldQuantity(1L, PRODUCT_ID)).isEqualTo(6);
+        assertThat(_index.getHeldQuantity(PRODUCT_ID)).isEqualTo(6);
+    }
+}
@@ -0,0 +1,109 @@
+package com.sasindu.shoppingcart.repository;
+
+import com.sasindu.shoppingcart.models.Category;
+import com.sasindu.shoppingcart.models.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class ProductSpecificationsTest {
+
+    @Autowired
+    private ProductRepository _productRepository;
+
+    @Autowired
+    private CategoryRepository _categoryRepository;
+
+    @BeforeEach
+    void setUp() {
+        Category phones = _categoryRepository.save(new Category("phones"));
+        Category laptops = _categoryRepository.save(new Category("laptops"));
+        _productRepository.saveAll(List.of(
+                new Product("Galaxy S24", "Samsung", BigDecimal.TEN, 5, "phone", phones),
+                new Product("iPhone 15", "Apple", BigDecimal.TEN, 5, "phone", phones),
+                new Product("MacBook Air", "Apple", BigDecimal.TEN, 5, "laptop", laptops),
+                new Product("100% Cotton_Sleeve", "Generic", BigDecimal.TEN, 5, "sleeve", laptops),
+                new Product("1000 Cotton Sleeve", "Generic", BigDecimal.TEN, 5, "sleeve", laptops)
+        ));
+    }
+
+    @Test
+    void noFiltersMatchesEveryProduct() {
+        assertThat(_productRepository.findAll(ProductSpecifications.fromFilters(Map.of()))).hasSize(5);
+    }
+
+    @Test
+    void presentFiltersAreCombined() {
+        List<Product> products = _productRepository.findAll(ProductSpecifications.fromFilters(Map.of(
+                ProductSpecifications.CATEGORY_FILTER, "phones",
+                ProductSpecifications.BRAND_FILTER, "Apple"
+        )));
+
+        assertThat(products).extracting(Product::getName).containsExactly("iPhone 15");
+    }
+
+    @Test
+    void blankFiltersAreIgnored() {
+        Map<String, String> filters = new HashMap<>();
+        filters.put(ProductSpecifications.BRAND_FILTER, " ");
+        filters.put(ProductSpecifications.CATEGORY_FILTER, null);
+
+        assertThat(_productRepository.findAll(ProductSpecifications.fromFilters(filters))).hasSize(5);
+    }
+
+    @Test
+    void nameFilterMatchesSubstrings() {
+        List<Product> products = _productRepository.findAll(ProductSpecifications.fromFilters(Map.of(
+                ProductSpecifications.NAME_FILTER, "Book"
+        )));
+
+        assertThat(products).extracting(Product::getName).containsExactly("MacBook Air");
+    }
+
+    @Test
+    void nameFilterEscapesLikeWildcards() {
+        // unescaped, "0%" and "_" would also match "1000 Cotton Sleeve"
+        List<Product> products = _productRepository.findAll(ProductSpecifications.fromFilters(Map.of(
+                ProductSpecifications.NAME_FILTER, "0% Cotton_"
+        )));
+
+        assertThat(products).extracting(Product::getName).containsExactly("100% Cotton_Sleeve");
+    }
+
+    @Test
+    void keysetReadsThePagesAfterTheCursor() {
+        List<Long> ids = _productRepository.findAll(Sort.by("id")).stream().map(Product::getId).toList();
+
+        List<Product> page = _productRepository.findAll(
+                ProductSpecifications.fromFilters(Map.of(ProductSpecifications.BRAND_FILTER, "Generic"))
+                        .and(ProductSpecifications.idGreaterThan(ids.get(3))),
+                Sort.by("id"));
+
+        assertThat(page).extracting(Product::getId).containsExactly(ids.get(4));
+    }
+
+    @Test
+    void normalizedFiltersKeepOnlySupportedKeysWithValues() {
+        Map<String, String> filters = new HashMap<>();
+        filters.put(ProductSpecifications.NAME_FILTER, "phone");
+        filters.put(ProductSpecifications.BRAND_FILTER, "");
+        filters.put("color", "red");
+
+        assertThat(ProductSpecifications.normalizeFilters(filters))
+                .containsExactly(Map.entry(ProductSpecifications.NAME_FILTER, "phone"));
+    }
+}
@@ -0,0 +1,174 @@
+package com.sasindu.shoppingcart.repository;
+
+import com.sasindu.shoppingcart.abstractions.enums.AppUserRole;
+import com.sasindu.shoppingcart.abstractions.enums.OrderStatus;
+import com.sasindu.shoppingcart.models.*;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Number of JDBC statements of the read paths of the listing endpoints, they must not grow with the number of rows
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class StatementCountTest {
+    private static final int PRODUCT_COUNT = 10;
+
+    @Autowired
+    private EntityManager _entityManager;
+
+    @Autowired
+    private ProductRepository _productRepository;
+
+    @Autowired
+    private CartItemRepository _cartItemRepository;
+
+    @Autowired
+    private OrderRepository _orderRepository;
+
+    @Autowired
+    private ImageRepository _imageRepository;
+
+    private Long _userId;
+    private Long _orderId;
+
+    @BeforeEach
+    void setUp() {
+        Category category = new Category("phones");
+        _entityManager.persist(category);
+
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < PRODUCT_COUNT; i++) {
+            Product product = new Product("product " + i, "brand", BigDecimal.TEN, 10, "description", category);
+            _entityManager.persist(product);
+            for (int j = 0; j < 2; j++) {
+                Image image = new Image();
+                image.setFileName("image " + j);
+                image.setFileType("image/png");
+                image.setProduct(product);
+                _entityManager.persist(image);
+            }
+            products.add(product);
+        }
+
+        AppUser user = new AppUser();
+        user.setEmail("user@example.com");
+        user.setPassword("password");
+        user.setRole(AppUserRole.ROLE_USER);
+        _entityManager.persist(user);
+
+        Cart cart = new Cart();
+        cart.setUser(user);
+        _entityManager.persist(cart);
+
+        Order order = new Order();
+        order.setUser(user);
+        order.setStatus(OrderStatus.PENDING);
+        order.setOrderDate(LocalDate.now());
+        for (Product product : products) {
+            CartItem cartItem = new CartItem();
+            cartItem.setProduct(product);
+            cartItem.setQuantity(1);
+            cartItem.setUnitPrice(product.getPrice());
+            cartItem.setTotalPrice();
+            cart.addCartItem(cartItem);
+            order.addOrderItem(new OrderItem(order, product, 1, product.getPrice()));
+        }
+        _entityManager.persist(order);
+        _entityManager.flush();
+        _entityManager.clear();
+
+        _userId = user.getId();
+        _orderId = order.getId();
+        statistics().clear();
+    }
+
+    @Test
+    void productPageUsesOneQueryForTheProductsAndOneForTheirImages() {
+        List<Product> products = _productRepository.findByIdGreaterThanOrderByIdAsc(0L, Limit.of(PRODUCT_COUNT));
+        products.forEach(Product::toProductResponse);
+
+        assertThat(products).hasSize(PRODUCT_COUNT);
+        assertThat(statistics().getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void productDetailsUseOneQuery() {
+        Long productId = _productRepository.findByIdGreaterThanOrderByIdAsc(0L, Limit.of(1)).getFirst().getId();
+        _entityManager.clear();
+        statistics().clear();
+
+        _productRepository.findWithDetailsById(productId).orElseThrow().toProductResponse();
+
+        assertThat(statistics().getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void cartItemsUseOneQueryForTheItemsAndOneForTheImages() {
+        List<CartItem> cartItems = _cartItemRepository.findAllByCartUserId(_userId);
+        cartItems.forEach(CartItem::toCartItemResponse);
+
+        assertThat(cartItems).hasSize(PRODUCT_COUNT);
+        assertThat(statistics().getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void orderUsesOneQueryForTheOrderGraphAndOneForTheImages() {
+        Order order = _orderRepository.findWithItemsById(_orderId).orElseThrow();
+        order.toOrderResponse();
+
+        assertThat(order.getOrderItems()).hasSize(PRODUCT_COUNT);
+        assertThat(statistics().getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void ordersOfAUserUseOneQueryForTheOrderGraphsAndOneForTheImages() {
+        List<Order> orders = _orderRepository.findAllByUserId(_userId);
+        orders.forEach(Order::toOrderResponse);
+
+        assertThat(orders).hasSize(1);
+        assertThat(statistics().getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void imagesOfAnUploadAreInsertedInOneBatch() {
+        Product product = _productRepository.findByIdGreaterThanOrderByIdAsc(0L, Limit.of(1)).getFirst();
+        List<Image> images = new ArrayList<>();
+        for (int i = 0; i < PRODUCT_COUNT; i++) {
+            Image image = new Image();
+            image.setFileName("upload " + i);
+            image.setFileType("image/png");
+            image.setProduct(product);
+            images.add(image);
+        }
+        statistics().clear();
+
+        _imageRepository.saveAll(images);
+        _entityManager.flush();
+
+        // one insert statement for the batch, at most one call to the id sequence
+        assertThat(statistics().getEntityInsertCount()).isEqualTo(PRODUCT_COUNT);
+        assertThat(statistics().getPrepareStatementCount()).isLessThanOrEqualTo(2);
+    }
+
+
+    private Statistics statistics() {
+        return _entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+    }
+}
@@ -0,0 +1,115 @@
+package com.sasindu.shoppingcart.security.jwt;
+
+import com.sasindu.shoppingcart.abstractions.enums.AppUserRole;
+import com.sasindu.shoppingcart.cache.VerifiedTokenCache;
+import com.sasindu.shoppingcart.models.AppUser;
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JWTUtilsTest {
+    private static final String ACCESS_SECRET = "00112233445566778899aabbccddeeff00112233445566778899aabbccddeeff";
+    private static final String REFRESH_SECRET = "ffeeddccbbaa99887766554433221100ffeeddccbbaa99887766554433221100";
+    private static final String NEW_ACCESS_SECRET = "0123456789abcdef0123456789abcdef0123456789abcdef0123456789abcdef";
+    private static final String NEW_REFRESH_SECRET = "fedcba9876543210fedcba9876543210fedcba9876543210fedcba9876543210";
+
+    private final AppUser _user = user();
+    private JWTUtils _jwtUtils;
+
+    @BeforeEach
+    void setUp() {
+        _jwtUtils = jwtUtils(ACCESS_SECRET, REFRESH_SECRET, List.of(), 0);
+    }
+
+    @Test
+    void verifyAndExtractReturnsTheClaimsOfTheToken() {
+        AccessTokenClaims claims = _jwtUtils.verifyAndExtract(_jwtUtils.generateAccessToken(_user));
+
+        assertThat(claims.getUserId()).isEqualTo(_user.getId());
+        assertThat(claims.getEmail()).isEqualTo(_user.getEmail());
+        assertThat(claims.getRoles()).containsExactly(AppUserRole.ROLE_USER.name());
+        assertThat(claims.getExpiresAt()).isAfter(Instant.now());
+    }
+
+    @Test
+    void tamperedTokensAreRejected() {
+        String token = _jwtUtils.generateAccessToken(_user);
+        String[] parts = token.split("\\.");
+        String tampered = parts[0] + "." + parts[1] + "." + new StringBuilder(parts[2]).reverse();
+
+        assertThatThrownBy(() -> _jwtUtils.verifyAndExtract(tampered)).isInstanceOf(JwtException.class);
+        assertThatThrownBy(() -> _jwtUtils.verifyAndExtract("not a token")).isInstanceOf(JwtException.class);
+    }
+
+    @Test
+    void refreshTokensAreNotAcceptedAsAccessTokens() {
+        String refresh = _jwtUtils.generateRefreshToken(_user, "token", "family", _jwtUtils.getRefreshTokenExpiration());
+
+        assertThatThrownBy(() -> _jwtUtils.verifyAndExtract(refresh)).isInstanceOf(JwtException.class);
+        assertThat(_jwtUtils.verifyRefreshToken(refresh).getFamilyId()).isEqualTo("family");
+    }
+
+    @Test
+    void rolesOfATokenApplyUntilItExpires() {
+        String before = _jwtUtils.generateAccessToken(_user);
+
+        _user.setRole(AppUserRole.ROLE_ADMIN);
+        String after = _jwtUtils.generateAccessToken(_user);
+
+        // the token issued before the change keeps its roles, at most for the access token lifetime (5 minutes)
+        AccessTokenClaims stale = _jwtUtils.verifyAndExtract(before);
+        assertThat(stale.getRoles()).containsExactly(AppUserRole.ROLE_USER.name());
+        assertThat(stale.getExpiresAt()).isBeforeOrEqualTo(Instant.now().plus(Duration.ofMinutes(5)));
+        assertThat(_jwtUtils.verifyAndExtract(after).getRoles()).containsExactly(AppUserRole.ROLE_ADMIN.name());
+    }
+
+    @Test
+    void previousSecretsAreAcceptedAfterARestart() {
+        String oldToken = _jwtUtils.generateAccessToken(_user);
+
+        JWTUtils restarted = jwtUtils(NEW_ACCESS_SECRET, NEW_REFRESH_SECRET, List.of(ACCESS_SECRET), 0);
+        String newToken = restarted.generateAccessToken(_user);
+
+        assertThat(restarted.verifyAndExtract(oldToken).getEmail()).isEqualTo(_user.getEmail());
+        assertThat(restarted.verifyAndExtract(newToken).getEmail()).isEqualTo(_user.getEmail());
+    }
+
+    @Test
+    void tokensSignedWithAnUnknownKeyAreRejected() {
+        String token = jwtUtils(NEW_ACCESS_SECRET, NEW_REFRESH_SECRET, List.of(), 0).generateAccessToken(_user);
+
+        assertThatThrownBy(() -> _jwtUtils.verifyAndExtract(token)).isInstanceOf(JwtException.class);
+    }
+
+
+    static JWTUtils jwtUtils(String accessSecret, String refreshSecret, List<String> previousAccessSecrets, long verifiedCacheSize) {
+        JWTUtils jwtUtils = new JWTUtils(new VerifiedTokenCache(verifiedCacheSize, new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(jwtUtils, "accessTokenSecret", accessSecret);
+        ReflectionTestUtils.setField(jwtUtils, "accessTokenPreviousSecrets", previousAccessSecrets);
+        ReflectionTestUtils.setField(jwtUtils, "accessTokenExpirationMinutes", "5");
+        ReflectionTestUtils.setField(jwtUtils, "refreshTokenSecret", refreshSecret);
+        ReflectionTestUtils.setField(jwtUtils, "refreshTokenPreviousSecrets", List.of());
+        ReflectionTestUtils.setField(jwtUtils, "refreshTokenExpirationDays", "7");
+        jwtUtils.init();
+        return jwtUtils;
+    }
+
+
+    static AppUser user() {
+        AppUser user = new AppUser();
+        user.setId(7L);
+        user.setEmail("user@example.com");
+        user.setPassword("password");
+        user.setRole(AppUserRole.ROLE_USER);
+        return user;
+    }
+}
@@ -0,0 +1,75 @@
+package com.sasindu.shoppingcart.security.ratelimit;
+
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CachedBodyHttpServletRequestTest {
+
+    @Test
+    void completeBodyIsAvailableAndReplayed() throws IOException {
+        CachedBodyHttpServletRequest request = new CachedBodyHttpServletRequest(request("{\"email\":\"a@b.c\"}"), 64);
+
+        assertThat(new String(request.getBody(), StandardCharsets.UTF_8)).isEqualTo("{\"email\":\"a@b.c\"}");
+        assertThat(request.getReader().readLine()).isEqualTo("{\"email\":\"a@b.c\"}");
+    }
+
+    @Test
+    void longBodyIsReplayedWholeButNotInspected() throws IOException {
+        String body = "x".repeat(100);
+        CachedBodyHttpServletRequest request = new CachedBodyHttpServletRequest(request(body), 10);
+
+        assertThat(request.getBody()).isNull();
+        assertThat(new String(request.getInputStream().readAllBytes(), StandardCharsets.UTF_8)).isEqualTo(body);
+        assertThat(request.getInputStream().isFinished()).isTrue();
+    }
+
+    @Test
+    void readListenerOfACompleteBodyIsNotifiedImmediately() throws IOException {
+        CachedBodyHttpServletRequest request = new CachedBodyHttpServletRequest(request("body"), 64);
+        ServletInputStream inputStream = request.getInputStream();
+        List<String> events = new ArrayList<>();
+        ByteArrayOutputStream read = new ByteArrayOutputStream();
+
+        inputStream.setReadListener(new ReadListener() {
+            @Override
+            public void onDataAvailable() throws IOException {
+                events.add("data");
+                byte[] buffer = new byte[2];
+                int count;
+                while (inputStream.isReady() && (count = inputStream.read(buffer)) != -1) {
+                    read.write(buffer, 0, count);
+                }
+            }
+
+            @Override
+            public void onAllDataRead() {
+                events.add("done");
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                events.add("error");
+            }
+        });
+
+        assertThat(events).containsExactly("data", "done");
+        assertThat(read.toString(StandardCharsets.UTF_8)).isEqualTo("body");
+    }
+
+
+    private static MockHttpServletRequest request(String body) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/auth/login");
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+}
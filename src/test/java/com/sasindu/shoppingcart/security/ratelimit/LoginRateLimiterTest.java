@@ -0,0 +1,98 @@
+package com.sasindu.shoppingcart.security.ratelimit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LoginRateLimiterTest {
+    private static final long INTERVAL = TimeUnit.SECONDS.toNanos(12); // 5 requests per minute
+    private static final long TOLERANCE = INTERVAL * 5; // burst of 5
+
+    @Test
+    void fullBucketAllowsTheBurstThenAsksToWaitOneInterval() {
+        LoginRateLimiter.TokenBucket bucket = new LoginRateLimiter.TokenBucket();
+        long now = 1_000_000_000L;
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(bucket.tryAcquire(now, INTERVAL, TOLERANCE)).isZero();
+        }
+        assertThat(bucket.tryAcquire(now, INTERVAL, TOLERANCE)).isEqualTo(Duration.ofNanos(INTERVAL));
+    }
+
+    @Test
+    void bucketRefillsOneRequestPerInterval() {
+        LoginRateLimiter.TokenBucket bucket = new LoginRateLimiter.TokenBucket();
+        long now = 0L;
+        for (int i = 0; i < 5; i++) {
+            bucket.tryAcquire(now, INTERVAL, TOLERANCE);
+        }
+
+        assertThat(bucket.tryAcquire(now + INTERVAL / 2, INTERVAL, TOLERANCE)).isEqualTo(Duration.ofNanos(INTERVAL / 2));
+        assertThat(bucket.tryAcquire(now + INTERVAL, INTERVAL, TOLERANCE)).isZero();
+        assertThat(bucket.tryAcquire(now + INTERVAL, INTERVAL, TOLERANCE)).isPositive();
+    }
+
+    @Test
+    void idleBucketDoesNotSaveMoreThanTheBurst() {
+        LoginRateLimiter.TokenBucket bucket = new LoginRateLimiter.TokenBucket();
+        bucket.tryAcquire(0L, INTERVAL, TOLERANCE);
+
+        long later = INTERVAL * 100;
+        for (int i = 0; i < 5; i++) {
+            assertThat(bucket.tryAcquire(later, INTERVAL, TOLERANCE)).isZero();
+        }
+        assertThat(bucket.tryAcquire(later, INTERVAL, TOLERANCE)).isPositive();
+    }
+
+    @Test
+    void concurrentRequestsNeverExceedTheBurst() throws Exception {
+        LoginRateLimiter.TokenBucket bucket = new LoginRateLimiter.TokenBucket();
+        int threads = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    int allowed = 0;
+                    for (int i = 0; i < 100; i++) {
+                        if (bucket.tryAcquire(0L, INTERVAL, TOLERANCE).isZero()) {
+                            allowed++;
+                        }
+                    }
+                    return allowed;
+                }));
+            }
+            start.countDown();
+            int allowed = 0;
+            for (Future<Integer> result : results) {
+                allowed += result.get();
+            }
+            assertThat(allowed).isEqualTo(5);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void emailsAreCaseInsensitiveAndIndependentOfIps() {
+        LoginRateLimiter limiter = new LoginRateLimiter(30, 10, 5, 2, 1000, new SimpleMeterRegistry());
+
+        assertThat(limiter.tryAcquireForEmail("User@Example.com")).isZero();
+        assertThat(limiter.tryAcquireForEmail(" user@example.com")).isZero();
+        assertThat(limiter.tryAcquireForEmail("USER@EXAMPLE.COM")).isPositive();
+        assertThat(limiter.tryAcquireForEmail("other@example.com")).isZero();
+        assertThat(limiter.tryAcquireForIp("10.0.0.1")).isZero();
+    }
+}
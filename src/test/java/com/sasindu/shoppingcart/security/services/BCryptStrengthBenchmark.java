@@ -0,0 +1,40 @@
+package com.sasindu.shoppingcart.security.services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.Arrays;
+
+/**
+ * Latency of a BCrypt verification (one login) per strength, to pick security.bcrypt.strength for the login SLO
+ * <p>
+ * Opt-in, it takes several seconds: mvn test -Dtest=BCryptStrengthBenchmark -Dbenchmarks=true
+ * With security.bcrypt.max-concurrent hashes at a time, the login throughput of an instance is about
+ * max-concurrent / median seconds.
+ */
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+class BCryptStrengthBenchmark {
+    private static final int WARMUP = 3;
+    private static final int ITERATIONS = 10;
+
+    @Test
+    void verificationLatencyPerStrength() {
+        for (int strength = 8; strength <= 13; strength++) {
+            BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(strength);
+            String hash = encoder.encode("Password1!");
+            for (int i = 0; i < WARMUP; i++) {
+                encoder.matches("Password1!", hash);
+            }
+            long[] nanos = new long[ITERATIONS];
+            for (int i = 0; i < ITERATIONS; i++) {
+                long start = System.nanoTime();
+                encoder.matches("Password1!", hash);
+                nanos[i] = System.nanoTime() - start;
+            }
+            Arrays.sort(nanos);
+            System.out.printf("bcrypt strength %2d: median %7.1f ms, max %7.1f ms%n",
+                    strength, nanos[ITERATIONS / 2] / 1e6, nanos[ITERATIONS - 1] / 1e6);
+        }
+    }
+}
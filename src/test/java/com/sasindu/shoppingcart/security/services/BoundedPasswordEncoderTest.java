@@ -0,0 +1,66 @@
+package com.sasindu.shoppingcart.security.services;
+
+import com.sasindu.shoppingcart.exceptions.ServiceUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BoundedPasswordEncoderTest {
+
+    @Test
+    void encodesAndMatchesWithTheDelegate() {
+        BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(new BCryptPasswordEncoder(4), 1, 100, 1, new SimpleMeterRegistry());
+
+        String hash = encoder.encode("Password1!");
+
+        assertThat(encoder.matches("Password1!", hash)).isTrue();
+        assertThat(encoder.matches("password", hash)).isFalse();
+    }
+
+    @Test
+    void failsFastWhenEveryPermitIsTaken() throws Exception {
+        CountDownLatch hashing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        PasswordEncoder slowDelegate = new BCryptPasswordEncoder(4) {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                hashing.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.encode(rawPassword);
+            }
+        };
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(slowDelegate, 1, 50, 3, meterRegistry);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> first = executor.submit(() -> encoder.encode("first"));
+            hashing.await();
+
+            assertThatThrownBy(() -> encoder.encode("second"))
+                    .isInstanceOfSatisfying(ServiceUnavailableException.class,
+                            e -> assertThat(e.getRetryAfterSeconds()).isEqualTo(3));
+            assertThat(meterRegistry.get("password.encoder.rejections").counter().count()).isEqualTo(1);
+            assertThat(meterRegistry.get("password.encoder.active").gauge().value()).isEqualTo(1);
+
+            release.countDown();
+            assertThat(first.get()).isNotBlank();
+            // the permit is given back once the hash is done
+            assertThat(encoder.encode("third")).isNotBlank();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.sasindu.shoppingcart.services;
+
+import com.sasindu.shoppingcart.cache.CatalogCache;
+import com.sasindu.shoppingcart.cache.ProductCountCache;
+import com.sasindu.shoppingcart.inventory.HotProductInventory;
+import com.sasindu.shoppingcart.models.Category;
+import com.sasindu.shoppingcart.models.Image;
+import com.sasindu.shoppingcart.models.ImageVariant;
+import com.sasindu.shoppingcart.models.Product;
+import com.sasindu.shoppingcart.repository.CategoryRepository;
+import com.sasindu.shoppingcart.repository.ImageRepository;
+import com.sasindu.shoppingcart.repository.ProductRepository;
+import com.sasindu.shoppingcart.storage.ImageContentCleaner;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentCaptor.forClass;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Deleting a category deletes its products and images in cascade, in a committed transaction
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(CategoryService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CategoryServiceTest {
+
+    @Autowired
+    private CategoryService _categoryService;
+
+    @Autowired
+    private CategoryRepository _categoryRepository;
+
+    @Autowired
+    private ProductRepository _productRepository;
+
+    @Autowired
+    private ImageRepository _imageRepository;
+
+    @MockitoBean
+    private CatalogCache _catalogCache;
+
+    @MockitoBean
+    private ProductCountCache _productCountCache;
+
+    @MockitoBean
+    private ImageContentCleaner _imageContentCleaner;
+
+    @MockitoBean
+    private HotProductInventory _hotProductInventory;
+
+    @AfterEach
+    void tearDown() {
+        _imageRepository.deleteAll();
+        _productRepository.deleteAll();
+        _categoryRepository.deleteAll();
+    }
+
+    @Test
+    void deletedCategoryReleasesTheImageContentOfItsProducts() {
+        Category category = _categoryRepository.save(new Category("phones"));
+        Product product = _productRepository.save(new Product("phone", "brand", BigDecimal.TEN, 5, "phone", category));
+        image(product, "a".repeat(64), "b".repeat(64));
+        image(product, "c".repeat(64));
+
+        _categoryService.deleteCategoryById(category.getId());
+
+        @SuppressWarnings("unchecked")
+        var contentHashes = forClass(Collection.class);
+        verify(_imageContentCleaner).deleteUnreferenced(contentHashes.capture());
+        assertThat(contentHashes.getValue()).containsExactlyInAnyOrder("a".repeat(64), "b".repeat(64), "c".repeat(64));
+        assertThat(_productRepository.count()).isZero();
+        assertThat(_imageRepository.count()).isZero();
+    }
+
+
+    @Test
+    void deletedCategoryInvalidatesTheStockOfItsProducts() {
+        Category category = _categoryRepository.save(new Category("phones"));
+        Product first = _productRepository.save(new Product("phone", "brand", BigDecimal.TEN, 5, "phone", category));
+        Product second = _productRepository.save(new Product("tablet", "brand", BigDecimal.TEN, 5, "tablet", category));
+
+        _categoryService.deleteCategoryById(category.getId());
+
+        // the hot product stock is reloaded from the deleted products, it stops selling them
+        verify(_hotProductInventory).invalidate(first.getId());
+        verify(_hotProductInventory).invalidate(second.getId());
+    }
+
+
+    private void image(Product product, String contentHash, String... variantHashes) {
+        Image image = new Image();
+        image.setFileName("image");
+        image.setFileType("image/png");
+        image.setContentHash(contentHash);
+        image.setProduct(product);
+        for (String variantHash : variantHashes) {
+            ImageVariant variant = new ImageVariant();
+            variant.setImage(image);
+            variant.setContentHash(variantHash);
+            image.getVariants().add(variant);
+        }
+        _imageRepository.save(image);
+    }
+}
@@ -0,0 +1,93 @@
+package com.sasindu.shoppingcart.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sasindu.shoppingcart.exceptions.ConflictException;
+import com.sasindu.shoppingcart.models.IdempotencyKey;
+import com.sasindu.shoppingcart.repository.IdempotencyKeyRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class IdempotencyServiceTest {
+    private static final Long USER_ID = 1L;
+
+    @Autowired
+    private IdempotencyKeyRepository _idempotencyKeyRepository;
+
+    @Autowired
+    private PlatformTransactionManager _transactionManager;
+
+    private IdempotencyService _idempotencyService;
+
+    @BeforeEach
+    void setUp() {
+        _idempotencyService = idempotencyService();
+    }
+
+    @AfterEach
+    void tearDown() {
+        _idempotencyKeyRepository.deleteAll();
+    }
+
+    @Test
+    void retriesGetTheResponseOfTheFirstRun() {
+        AtomicInteger runs = new AtomicInteger();
+
+        String first = _idempotencyService.execute(USER_ID, "key", String.class, () -> "order " + runs.incrementAndGet());
+        String retry = _idempotencyService.execute(USER_ID, "key", String.class, () -> "order " + runs.incrementAndGet());
+        // another instance, without the cached response
+        String otherInstance = idempotencyService().execute(USER_ID, "key", String.class, () -> "order " + runs.incrementAndGet());
+
+        assertThat(runs).hasValue(1);
+        assertThat(retry).isEqualTo(first);
+        assertThat(otherInstance).isEqualTo(first);
+    }
+
+    @Test
+    void expiredKeyThatIsNotPurgedRunsAgain() {
+        IdempotencyKey expired = new IdempotencyKey(USER_ID, "key");
+        expired.setCreatedAt(Instant.now().minus(Duration.ofHours(25)));
+        expired.setResponse("\"old order\"");
+        _idempotencyKeyRepository.save(expired);
+
+        String response = _idempotencyService.execute(USER_ID, "key", String.class, () -> "new order");
+
+        assertThat(response).isEqualTo("new order");
+        assertThat(_idempotencyKeyRepository.findByUserIdAndIdempotencyKey(USER_ID, "key"))
+                .hasValueSatisfying(key -> assertThat(key.getResponse()).isEqualTo("\"new order\""));
+    }
+
+    @Test
+    void keyOfARequestStillRunningIsAConflict() {
+        // stored by another instance that did not store its response yet
+        _idempotencyKeyRepository.save(new IdempotencyKey(USER_ID, "key"));
+
+        assertThatThrownBy(() -> _idempotencyService.execute(USER_ID, "key", String.class, () -> "order"))
+                .isInstanceOf(ConflictException.class);
+    }
+
+
+    private IdempotencyService idempotencyService() {
+        return new IdempotencyService(_idempotencyKeyRepository, new ObjectMapper(), _transactionManager,
+                new SimpleMeterRegistry(), 24, 100, 1);
+    }
+}
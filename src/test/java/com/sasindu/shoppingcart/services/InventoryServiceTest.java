@@ -0,0 +1,181 @@
+package com.sasindu.shoppingcart.services;
+
+import com.sasindu.shoppingcart.cache.CatalogCache;
+import com.sasindu.shoppingcart.exceptions.BadRequestException;
+import com.sasindu.shoppingcart.inventory.HotProductInventory;
+import com.sasindu.shoppingcart.models.Category;
+import com.sasindu.shoppingcart.models.Product;
+import com.sasindu.shoppingcart.repository.CategoryRepository;
+import com.sasindu.shoppingcart.repository.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Concurrent orders of the same products, each in its own committed transaction, must never oversell them
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(InventoryService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class InventoryServiceTest {
+    private static final int THREADS = 16;
+    private static final int ORDERS = 200;
+
+    @Autowired
+    private InventoryService _inventoryService;
+
+    @Autowired
+    private ProductRepository _productRepository;
+
+    @Autowired
+    private CategoryRepository _categoryRepository;
+
+    @Autowired
+    private PlatformTransactionManager _transactionManager;
+
+    @MockitoBean
+    private CatalogCache _catalogCache;
+
+    @MockitoBean
+    private HotProductInventory _hotProductInventory;
+
+    @AfterEach
+    void tearDown() {
+        _productRepository.deleteAll();
+        _categoryRepository.deleteAll();
+    }
+
+    @Test
+    void concurrentOrdersNeverOversell() throws Exception {
+        Long productId = product(50);
+
+        int placed = placeConcurrently(i -> Map.of(productId, 1));
+
+        assertThat(placed).isEqualTo(50);
+        assertThat(inventory(productId)).isZero();
+    }
+
+    @Test
+    void concurrentOrdersOfSeveralProductsAreAllOrNothing() throws Exception {
+        Long first = product(40);
+        Long second = product(60);
+
+        // the same two products, listed in both orders, with a quantity that cannot always be served
+        int placed = placeConcurrently(i -> (i % 2 == 0) ? Map.of(first, 1, second, 2) : Map.of(second, 2, first, 1));
+
+        assertThat(placed).isEqualTo(30);
+        assertThat(inventory(first)).isEqualTo(10);
+        assertThat(inventory(second)).isZero();
+    }
+
+    @Test
+    void repositoryDecrementNeverGoesBelowZero() throws Exception {
+        Long productId = product(7);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(_transactionManager);
+
+        List<Integer> updated = runConcurrently(i -> transactionTemplate.execute(
+                status -> _productRepository.decrementInventory(productId, 2)
+        ));
+
+        assertThat(updated.stream().mapToInt(Integer::intValue).sum()).isEqualTo(3);
+        assertThat(inventory(productId)).isEqualTo(1);
+    }
+
+
+    @Test
+    void cachedProductIsEvictedOnlyOnceTheOrderIsCommitted() {
+        Long productId = product(5);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(_transactionManager);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            _inventoryService.decrementStock(Map.of(productId, 1));
+            verify(_catalogCache, never()).evictProduct(productId);
+            status.setRollbackOnly();
+        });
+        verify(_catalogCache, never()).evictProduct(productId);
+
+        transactionTemplate.executeWithoutResult(status -> _inventoryService.decrementStock(Map.of(productId, 1)));
+        verify(_catalogCache).evictProduct(productId);
+        assertThat(inventory(productId)).isEqualTo(4);
+    }
+
+    private Long product(int inventory) {
+        Category category = _categoryRepository.save(new Category("category " + inventory));
+        return _productRepository.save(new Product("product " + inventory, "brand", BigDecimal.TEN, inventory, "description", category)).getId();
+    }
+
+    private int inventory(Long productId) {
+        return _productRepository.findById(productId).orElseThrow().getInventory();
+    }
+
+    private int placeConcurrently(OrderFactory orders) throws Exception {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(_transactionManager);
+        AtomicInteger placed = new AtomicInteger();
+        runConcurrently(i -> {
+            try {
+                transactionTemplate.executeWithoutResult(status -> _inventoryService.decrementStock(orders.order(i)));
+                placed.incrementAndGet();
+            } catch (BadRequestException e) {
+                // not enough stock, the order is rolled back
+            }
+            return 0;
+        });
+        return placed.get();
+    }
+
+    private static <T> List<T> runConcurrently(Attempt<T> attempt) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<T>> futures = new ArrayList<>();
+            for (int i = 0; i < ORDERS; i++) {
+                int order = i;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return attempt.run(order);
+                }));
+            }
+            start.countDown();
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private interface OrderFactory {
+        Map<Long, Integer> order(int index);
+    }
+
+    private interface Attempt<T> {
+        T run(int index);
+    }
+}
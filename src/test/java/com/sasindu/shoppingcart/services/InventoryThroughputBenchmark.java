@@ -0,0 +1,159 @@
+package com.sasindu.shoppingcart.services;
+
+import com.sasindu.shoppingcart.cache.CatalogCache;
+import com.sasindu.shoppingcart.exceptions.BadRequestException;
+import com.sasindu.shoppingcart.inventory.HotProductInventory;
+import com.sasindu.shoppingcart.models.Category;
+import com.sasindu.shoppingcart.models.Product;
+import com.sasindu.shoppingcart.repository.CategoryRepository;
+import com.sasindu.shoppingcart.repository.InventoryFlushRepository;
+import com.sasindu.shoppingcart.repository.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Checkouts per second of one product ordered by many threads at once, each order in its own committed transaction
+ * <p>
+ * Opt-in, it takes several seconds: mvn test -Dtest=InventoryThroughputBenchmark -Dbenchmarks=true
+ * Every order of the product waits on the lock of its row until the previous order commits, so the throughput
+ * stops growing with the threads once the row is the bottleneck. The striped path (see HotProductInventory) takes
+ * the stock in memory and only opens the transaction of the order. H2 commits in memory, the numbers of MySQL are
+ * lower but scale the same way.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+class InventoryThroughputBenchmark {
+    private static final int[] THREADS = {1, 4, 16, 64};
+    private static final int WARMUP = 1_000;
+    private static final int ORDERS = 10_000;
+
+    @TempDir
+    private Path _journalDirectory;
+
+    @Autowired
+    private ProductRepository _productRepository;
+
+    @Autowired
+    private CategoryRepository _categoryRepository;
+
+    @Autowired
+    private InventoryFlushRepository _inventoryFlushRepository;
+
+    @Autowired
+    private PlatformTransactionManager _transactionManager;
+
+    @AfterEach
+    void tearDown() {
+        _inventoryFlushRepository.deleteAll();
+        _productRepository.deleteAll();
+        _categoryRepository.deleteAll();
+    }
+
+    @Test
+    void rowLockCheckoutsPerSecond() throws Exception {
+        for (int threads : THREADS) {
+            Long productId = product(WARMUP + ORDERS);
+            InventoryService inventoryService = inventoryService(disabledHotProductInventory());
+            placeConcurrently(inventoryService, productId, threads, WARMUP);
+            double seconds = placeConcurrently(inventoryService, productId, threads, ORDERS);
+            System.out.printf("row lock, %2d threads: %8.0f checkouts/s%n", threads, ORDERS / seconds);
+        }
+    }
+
+    @Test
+    void stripedCheckoutsPerSecond() throws Exception {
+        for (int threads : THREADS) {
+            Long productId = product(WARMUP + ORDERS);
+            HotProductInventory hotProductInventory = hotProductInventory(productId, threads);
+            InventoryService inventoryService = inventoryService(hotProductInventory);
+            placeConcurrently(inventoryService, productId, threads, WARMUP);
+            double seconds = placeConcurrently(inventoryService, productId, threads, ORDERS);
+            hotProductInventory.shutdown();
+            System.out.printf("striped,  %2d threads: %8.0f checkouts/s%n", threads, ORDERS / seconds);
+        }
+    }
+
+
+    private InventoryService inventoryService(HotProductInventory hotProductInventory) {
+        return new InventoryService(_productRepository, mock(CatalogCache.class), hotProductInventory);
+    }
+
+    private HotProductInventory disabledHotProductInventory() throws Exception {
+        return new HotProductInventory(false, List.of(), 0, _journalDirectory.toString(),
+                _productRepository, _inventoryFlushRepository, _transactionManager);
+    }
+
+    private HotProductInventory hotProductInventory(Long productId, int threads) throws Exception {
+        HotProductInventory inventory = new HotProductInventory(true, List.of(productId), 0,
+                _journalDirectory.resolve("threads-" + threads).toString(),
+                _productRepository, _inventoryFlushRepository, _transactionManager);
+        inventory.recover();
+        return inventory;
+    }
+
+    private Long product(int inventory) {
+        Category category = _categoryRepository.save(new Category("category " + System.nanoTime()));
+        return _productRepository.save(new Product("product", "brand", BigDecimal.TEN, inventory, "description", category)).getId();
+    }
+
+    /**
+     * Place single unit orders of the product from the given number of threads
+     *
+     * @return seconds taken by all the orders
+     */
+    private double placeConcurrently(InventoryService inventoryService, Long productId, int threads, int orders) throws Exception {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(_transactionManager);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int share = orders / threads + (t < orders % threads ? 1 : 0);
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < share; i++) {
+                        try {
+                            transactionTemplate.executeWithoutResult(status -> inventoryService.decrementStock(Map.of(productId, 1)));
+                        } catch (BadRequestException e) {
+                            // not enough stock, the product is sized for every order
+                        }
+                    }
+                    return null;
+                }));
+            }
+            long begin = System.nanoTime();
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            return (System.nanoTime() - begin) / 1e9;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.sasindu.shoppingcart.services;
+
+import com.sasindu.shoppingcart.cache.RevokedRefreshTokenFilter;
+import com.sasindu.shoppingcart.exceptions.UnAuthorizedException;
+import com.sasindu.shoppingcart.models.AppUser;
+import com.sasindu.shoppingcart.models.RefreshToken;
+import com.sasindu.shoppingcart.repository.RefreshTokenRepository;
+import com.sasindu.shoppingcart.security.jwt.JWTUtils;
+import com.sasindu.shoppingcart.security.jwt.RefreshTokenClaims;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+/**
+ * Rotation of the refresh tokens in committed (or rolled back) transactions
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({RefreshTokenService.class, RevokedRefreshTokenFilter.class, SimpleMeterRegistry.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class RefreshTokenServiceTest {
+
+    @Autowired
+    private RefreshTokenService _refreshTokenService;
+
+    @Autowired
+    private RefreshTokenRepository _refreshTokenRepository;
+
+    @MockitoBean
+    private JWTUtils _jwtUtils;
+
+    private final AppUser _user = new AppUser();
+
+    @BeforeEach
+    void setUp() {
+        _user.setId(7L);
+        when(_jwtUtils.getRefreshTokenExpiration()).thenReturn(Instant.now().plus(Duration.ofDays(7)));
+        when(_jwtUtils.generateRefreshToken(any(), anyString(), anyString(), any())).thenReturn("signed token");
+    }
+
+    @AfterEach
+    void tearDown() {
+        _refreshTokenRepository.deleteAll();
+    }
+
+    @Test
+    void failedRotationLeavesTheTokenUsable() {
+        RefreshTokenClaims claims = claims(issue());
+        when(_jwtUtils.generateRefreshToken(any(), anyString(), anyString(), any()))
+                .thenThrow(new IllegalStateException("signing failed"))
+                .thenReturn("rotated token");
+
+        assertThatThrownBy(() -> _refreshTokenService.rotateToken(claims, _user)).isInstanceOf(IllegalStateException.class);
+
+        // the retry of the client rotates the token instead of revoking its family
+        assertThat(_refreshTokenService.rotateToken(claims, _user)).isEqualTo("rotated token");
+        assertThat(_refreshTokenRepository.findAll()).filteredOn(token -> !token.isRevoked()).hasSize(1);
+    }
+
+    @Test
+    void rotatedTokenCannotBeUsedAgain() {
+        RefreshTokenClaims claims = claims(issue());
+        _refreshTokenService.rotateToken(claims, _user);
+
+        assertThatThrownBy(() -> _refreshTokenService.rotateToken(claims, _user)).isInstanceOf(UnAuthorizedException.class);
+
+        // the reuse revoked the whole family
+        assertThat(_refreshTokenRepository.findAll()).allMatch(RefreshToken::isRevoked);
+    }
+
+    @Test
+    void tokenOfARevokedFamilyIsRejected() {
+        RefreshTokenClaims claims = claims(issue());
+
+        _refreshTokenService.revokeFamily(claims);
+
+        assertThatThrownBy(() -> _refreshTokenService.rotateToken(claims, _user)).isInstanceOf(UnAuthorizedException.class);
+    }
+
+
+    private RefreshToken issue() {
+        _refreshTokenService.issueToken(_user);
+        return _refreshTokenRepository.findAll().get(0);
+    }
+
+    private static RefreshTokenClaims claims(RefreshToken token) {
+        return new RefreshTokenClaims(token.getUserId(), token.getId(), token.getFamilyId(), token.getExpiresAt());
+    }
+}
@@ -0,0 +1,57 @@
+package com.sasindu.shoppingcart.services;
+
+import com.sasindu.shoppingcart.exceptions.BadRequestException;
+import com.sasindu.shoppingcart.inventory.HotProductInventory;
+import com.sasindu.shoppingcart.inventory.StockReservationIndex;
+import com.sasindu.shoppingcart.models.Product;
+import com.sasindu.shoppingcart.repository.StockReservationRepository;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Holds are checked against the inventory of the product, or the in-memory stock of a hot product
+ */
+class StockReservationServiceTest {
+    private final HotProductInventory _hotProductInventory = mock(HotProductInventory.class);
+    private final StockReservationService _stockReservationService = new StockReservationService(
+            mock(StockReservationRepository.class), new StockReservationIndex(), _hotProductInventory, 15, 1000
+    );
+
+    @Test
+    void availableToSellIsTheInventoryMinusTheHolds() {
+        Product product = product(1L, 10);
+
+        _stockReservationService.holdStock(1L, product, 4);
+        _stockReservationService.holdStock(2L, product, 5);
+
+        assertThat(_stockReservationService.getAvailableToSell(product)).isEqualTo(1);
+        assertThatThrownBy(() -> _stockReservationService.holdStock(3L, product, 2)).isInstanceOf(BadRequestException.class);
+    }
+
+    @Test
+    void hotProductIsHeldAgainstItsInMemoryStock() {
+        // the products table still has the inventory from before the orders taken in memory
+        Product product = product(2L, 10);
+        when(_hotProductInventory.isHot(2L)).thenReturn(true);
+        when(_hotProductInventory.getStock(2L)).thenReturn(3L);
+
+        assertThat(_stockReservationService.getAvailableToSell(product)).isEqualTo(3);
+        assertThatThrownBy(() -> _stockReservationService.holdStock(1L, product, 4)).isInstanceOf(BadRequestException.class);
+
+        _stockReservationService.holdStock(1L, product, 3);
+        assertThat(_stockReservationService.getAvailableToSell(product)).isZero();
+    }
+
+
+    private static Product product(Long id, int inventory) {
+        Product product = new Product("product", "brand", BigDecimal.TEN, inventory, "description", null);
+        product.setId(id);
+        return product;
+    }
+}
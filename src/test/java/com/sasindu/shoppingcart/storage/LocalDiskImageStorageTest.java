@@ -0,0 +1,101 @@
+package com.sasindu.shoppingcart.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LocalDiskImageStorageTest {
+    private static final byte[] CONTENT = "image content".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    private Path _root;
+
+    private LocalDiskImageStorage _storage;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        _storage = new LocalDiskImageStorage(_root.toString());
+    }
+
+    @Test
+    void identicalContentIsStoredOnce() throws IOException {
+        StoredContent first = store();
+        StoredContent second = store();
+
+        assertThat(second.contentHash()).isEqualTo(first.contentHash());
+        assertThat(_storage.load(first.contentHash()).getContentAsByteArray()).isEqualTo(CONTENT);
+        try (var files = Files.list(_root.resolve("tmp"))) {
+            assertThat(files).isEmpty();
+        }
+    }
+
+    @Test
+    void contentStoredBeforeTheInstantIsDeleted() throws IOException {
+        String contentHash = store().contentHash();
+        age(contentHash, Duration.ofHours(1));
+
+        assertThat(_storage.delete(contentHash, Instant.now().minus(Duration.ofMinutes(10)))).isTrue();
+
+        assertThat(Files.exists(path(contentHash))).isFalse();
+        assertThat(_storage.delete(contentHash, Instant.now())).isTrue();
+    }
+
+    @Test
+    void recentlyStoredContentIsKept() throws IOException {
+        String contentHash = store().contentHash();
+
+        FileTime storedAt = Files.getLastModifiedTime(path(contentHash));
+
+        assertThat(_storage.delete(contentHash, Instant.now().minus(Duration.ofMinutes(10)))).isFalse();
+
+        assertThat(Files.getLastModifiedTime(path(contentHash))).isEqualTo(storedAt);
+        assertThat(_storage.load(contentHash).getContentAsByteArray()).isEqualTo(CONTENT);
+    }
+
+    @Test
+    void duplicateUploadRenewsTheContent() throws IOException {
+        String contentHash = store().contentHash();
+        age(contentHash, Duration.ofHours(1));
+
+        // the content is shared by a new upload before the old image is cleaned up
+        store();
+
+        assertThat(_storage.delete(contentHash, Instant.now().minus(Duration.ofMinutes(10)))).isFalse();
+        assertThat(Files.exists(path(contentHash))).isTrue();
+    }
+
+    @Test
+    void duplicateOfDeletedContentIsStoredAgain() throws IOException {
+        String contentHash = store().contentHash();
+        age(contentHash, Duration.ofHours(1));
+        _storage.delete(contentHash, Instant.now());
+
+        store();
+
+        assertThat(_storage.load(contentHash).getContentAsByteArray()).isEqualTo(CONTENT);
+    }
+
+
+    private StoredContent store() throws IOException {
+        return _storage.store(new ByteArrayInputStream(CONTENT));
+    }
+
+    private void age(String contentHash, Duration age) throws IOException {
+        Files.setLastModifiedTime(path(contentHash), FileTime.from(Instant.now().minus(age)));
+    }
+
+    private Path path(String contentHash) {
+        return _root.resolve(contentHash.substring(0, 2)).resolve(contentHash.substring(2, 4)).resolve(contentHash);
+    }
+}